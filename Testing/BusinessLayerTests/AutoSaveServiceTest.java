@@ -0,0 +1,169 @@
+package BusinessLayerTests;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import bll.AutoSaveService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * White-Box Testing for AutoSaveService
+ * Tests verify:
+ * - A burst of snapshots of one page is written once, with the latest content
+ * - Failed writes are retried
+ * - Flush writes pending snapshots without waiting for the debounce delay
+ * - An explicit save supersedes a waiting autosave of the same page
+ * - An asynchronous flush completes once pending snapshots are written
+ * - A flush after shutdown returns quietly
+ */
+public class AutoSaveServiceTest {
+
+    private List<String> written;
+    private AtomicInteger failuresLeft;
+    private AutoSaveService service;
+
+    @Before
+    public void setUp() {
+        written = Collections.synchronizedList(new ArrayList<>());
+        failuresLeft = new AtomicInteger(0);
+        service = new AutoSaveService((fileId, fileName, pageNumber, content) -> {
+            if (failuresLeft.getAndDecrement() > 0) {
+                return false;
+            }
+            written.add(fileId + ":" + pageNumber + ":" + content);
+            return true;
+        }, 60000, 2, 1);
+    }
+
+    @After
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    /**
+     * Test Case ID: AUTOSAVE-001
+     * Path: Several snapshots of the same page before the drain
+     * Expected: One write of the last content; every caller's future completes
+     */
+    @Test
+    public void testSchedule_BurstCoalescesToOneWrite() throws Exception {
+        // Arrange
+        CompletableFuture<Boolean> first = service.schedule(1, "a.txt", 1, "one");
+        CompletableFuture<Boolean> second = service.schedule(1, "a.txt", 1, "two");
+        CompletableFuture<Boolean> third = service.schedule(1, "a.txt", 1, "three");
+
+        // Act
+        assertEquals("Snapshots of one page should coalesce", 1, service.getPendingCount());
+        boolean flushed = service.flush(5000);
+
+        // Assert
+        assertTrue("Flush should finish", flushed);
+        assertEquals("Only the latest snapshot should be written", 1, written.size());
+        assertEquals("1:1:three", written.get(0));
+        assertTrue(first.get(1, TimeUnit.SECONDS));
+        assertTrue(second.get(1, TimeUnit.SECONDS));
+        assertTrue(third.get(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test Case ID: AUTOSAVE-002
+     * Path: Saver fails twice, then succeeds
+     * Expected: Write is retried and reported as saved
+     */
+    @Test
+    public void testSaveNow_RetriesFailedWrite() throws Exception {
+        // Arrange
+        failuresLeft.set(2);
+
+        // Act
+        boolean saved = service.saveNow(2, "b.txt", 3, "text").get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue("Write should succeed on the third attempt", saved);
+        assertEquals(1, written.size());
+    }
+
+    /**
+     * Test Case ID: AUTOSAVE-003
+     * Path: Saver keeps failing beyond the retry limit
+     * Expected: Future completes with false
+     */
+    @Test
+    public void testSaveNow_GivesUpAfterRetries() throws Exception {
+        // Arrange
+        failuresLeft.set(10);
+
+        // Act
+        boolean saved = service.saveNow(2, "b.txt", 3, "text").get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertFalse("Write should be reported as failed", saved);
+        assertTrue(written.isEmpty());
+    }
+
+    /**
+     * Test Case ID: AUTOSAVE-004
+     * Path: Autosave waiting, explicit save of the same page
+     * Expected: Only the explicit save is written and the autosave's future completes with it
+     */
+    @Test
+    public void testSaveNow_SupersedesPendingSnapshot() throws Exception {
+        // Arrange
+        CompletableFuture<Boolean> pending = service.schedule(1, "a.txt", 2, "draft");
+        service.schedule(1, "a.txt", 3, "other page");
+
+        // Act
+        boolean saved = service.saveNow(1, "a.txt", 2, "final").get(5, TimeUnit.SECONDS);
+        service.flush(5000);
+
+        // Assert
+        assertTrue(saved);
+        assertTrue(pending.get(1, TimeUnit.SECONDS));
+        assertEquals(2, written.size());
+        assertEquals("1:2:final", written.get(0));
+        assertEquals("1:3:other page", written.get(1));
+    }
+
+    /**
+     * Test Case ID: AUTOSAVE-005
+     * Path: Snapshot waiting, asynchronous flush
+     * Expected: Future completes after the snapshot is written
+     */
+    @Test
+    public void testFlushAsync_CompletesAfterPendingWrites() throws Exception {
+        // Arrange
+        service.schedule(4, "d.txt", 1, "latest");
+
+        // Act
+        boolean flushed = service.flushAsync().get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(flushed);
+        assertEquals(Collections.singletonList("4:1:latest"), written);
+    }
+
+    /**
+     * Test Case ID: AUTOSAVE-006
+     * Path: Snapshot waiting, shutdown, then flush again
+     * Expected: Shutdown writes the snapshot; the later flush has nothing to do
+     */
+    @Test
+    public void testFlush_AfterShutdown_ReturnsQuietly() {
+        // Arrange
+        service.schedule(5, "e.txt", 1, "last");
+
+        // Act
+        service.shutdown();
+        boolean flushed = service.flush(1000);
+
+        // Assert
+        assertTrue(flushed);
+        assertEquals(Collections.singletonList("5:1:last"), written);
+    }
+}
@@ -0,0 +1,205 @@
+package BusinessLayerTests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.junit.Before;
+import org.junit.Test;
+import bll.DocumentCache;
+import bll.EditorBO;
+import dal.IFacadeDAO;
+import dto.Documents;
+import dto.Pages;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * White-Box Testing for DocumentCache
+ * Tests verify:
+ * - Cached documents are returned by id
+ * - Least recently used documents are evicted once the byte budget is exceeded
+ * - Invalidation removes an entry and releases its size
+ * - EditorBO drops a file from the cache only after its write completes
+ * - A document loaded before an invalidation is not cached after it
+ */
+public class DocumentCacheTest {
+
+    private DocumentCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new DocumentCache(1000);
+    }
+
+    private Documents document(int id, int contentLength) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < contentLength; i++) {
+            content.append('a');
+        }
+        List<Pages> pages = new ArrayList<>();
+        pages.add(new Pages(id, id, 1, content.toString()));
+        return new Documents(id, "doc" + id, "HASH", "2024-01-01", "2024-01-01", pages);
+    }
+
+    /**
+     * Test Case ID: CACHE-001
+     * Path: Put then get
+     * Expected: The same instance is returned for the id
+     */
+    @Test
+    public void testGet_ReturnsCachedDocument() {
+        // Arrange
+        Documents doc = document(1, 10);
+
+        // Act
+        cache.put(doc);
+
+        // Assert
+        assertSame("Cached document should be returned", doc, cache.get(1));
+        assertNull("Unknown id should miss", cache.get(2));
+    }
+
+    /**
+     * Test Case ID: CACHE-002
+     * Path: Budget exceeded
+     * Expected: Least recently used document is evicted, recently read one survives
+     */
+    @Test
+    public void testPut_EvictsLeastRecentlyUsed() {
+        // Arrange - each document is roughly 300 bytes
+        cache.put(document(1, 100));
+        cache.put(document(2, 100));
+        cache.put(document(3, 100));
+        cache.get(1);
+
+        // Act
+        cache.put(document(4, 100));
+
+        // Assert
+        assertNotNull("Recently read document should stay", cache.get(1));
+        assertNull("Least recently used document should be evicted", cache.get(2));
+        assertNotNull(cache.get(4));
+        assertTrue("Cache should stay within budget", cache.getCurrentBytes() <= 1000);
+    }
+
+    /**
+     * Test Case ID: CACHE-003
+     * Path: Invalidate
+     * Expected: Entry removed and its size released
+     */
+    @Test
+    public void testInvalidate_RemovesEntry() {
+        // Arrange
+        cache.put(document(1, 50));
+
+        // Act
+        cache.invalidate(1);
+
+        // Assert
+        assertNull(cache.get(1));
+        assertEquals(0, cache.getCurrentBytes());
+    }
+
+    /**
+     * Test Case ID: CACHE-004
+     * Path: Document larger than the budget
+     * Expected: Not cached, existing entries untouched
+     */
+    @Test
+    public void testPut_OversizedDocumentNotCached() {
+        // Arrange
+        cache.put(document(1, 10));
+
+        // Act
+        cache.put(document(2, 5000));
+
+        // Assert
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(1));
+    }
+
+    /**
+     * Test Case ID: CACHE-005
+     * Path: File read through EditorBO while its delete is still running
+     * Expected: The copy cached during the delete is dropped once it completes
+     */
+    @Test
+    public void testDeleteFile_ReadDuringWrite_NotServedAfterwards() {
+        // Arrange
+        IFacadeDAO mockDAO = mock(IFacadeDAO.class);
+        EditorBO bo = new EditorBO(mockDAO);
+        when(mockDAO.getFileFromDB(1)).thenReturn(document(1, 10));
+        when(mockDAO.deleteFileInDB(1)).thenAnswer(invocation -> {
+            bo.getFile(1);
+            return true;
+        });
+
+        // Act
+        bo.deleteFile(1);
+        bo.getFile(1);
+
+        // Assert
+        verify(mockDAO, times(2)).getFileFromDB(1);
+    }
+
+    /**
+     * Test Case ID: CACHE-006
+     * Path: Reader loads a file, a delete completes, then the reader caches what it loaded
+     * Expected: The copy loaded before the delete is not cached
+     */
+    @Test
+    public void testGetFile_InvalidatedWhileLoading_NotCached() throws Exception {
+        // Arrange
+        IFacadeDAO mockDAO = mock(IFacadeDAO.class);
+        EditorBO bo = new EditorBO(mockDAO);
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch deleted = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        when(mockDAO.getFileFromDB(1)).thenAnswer(invocation -> {
+            if (loads.getAndIncrement() == 0) {
+                loaded.countDown();
+                deleted.await(5, TimeUnit.SECONDS);
+            }
+            return document(1, 10);
+        });
+        when(mockDAO.deleteFileInDB(1)).thenReturn(true);
+        Thread reader = new Thread(() -> bo.getFile(1));
+
+        // Act
+        reader.start();
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        bo.deleteFile(1);
+        deleted.countDown();
+        reader.join(5000);
+        bo.getFile(1);
+
+        // Assert
+        assertEquals("The stale copy should not have been cached", 2, loads.get());
+    }
+
+    /**
+     * Test Case ID: CACHE-007
+     * Path: Put with a generation taken before an invalidate or a clear
+     * Expected: Document not cached; a current generation is cached
+     */
+    @Test
+    public void testPut_StaleGeneration_Skipped() {
+        // Arrange
+        long beforeInvalidate = cache.generation(1);
+        cache.invalidate(1);
+        long beforeClear = cache.generation(2);
+        cache.clear();
+
+        // Act
+        cache.put(document(1, 10), beforeInvalidate);
+        cache.put(document(2, 10), beforeClear);
+        cache.put(document(3, 10), cache.generation(3));
+
+        // Assert
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+    }
+}
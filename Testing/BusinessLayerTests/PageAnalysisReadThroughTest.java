@@ -0,0 +1,120 @@
+package BusinessLayerTests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.junit.Before;
+import org.junit.Test;
+import bll.EditorBO;
+import dal.IFacadeDAO;
+import dto.PageAnalysis;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * White-Box Testing for reading page analytics through EditorBO
+ * Tests verify:
+ * - Stored analytics are served when they match the page shown
+ * - Missing or out-of-date analytics are computed instead
+ * - Words are shown without diacritics, as the editor always showed them
+ */
+public class PageAnalysisReadThroughTest {
+
+    private static final String CONTENT = "كتب الولد الدرس";
+
+    private IFacadeDAO mockDAO;
+    private EditorBO bo;
+
+    @Before
+    public void setUp() {
+        mockDAO = mock(IFacadeDAO.class);
+        bo = new EditorBO(mockDAO);
+    }
+
+    private PageAnalysis stored(String content) {
+        PageAnalysis analysis = new PageAnalysis(5, 1, content);
+        analysis.setLemmas(Collections.singletonMap("كتب", "كتب"));
+        analysis.setPosTags(new HashMap<>());
+        analysis.setRoots(new HashMap<>());
+        return analysis;
+    }
+
+    /**
+     * Test Case ID: READ-001
+     * Path: Stored analytics for the same content
+     * Expected: Stored analytics returned as they are
+     */
+    @Test
+    public void testGetPageAnalysis_StoredAndCurrent_ServedFromStore() {
+        // Arrange
+        PageAnalysis analysis = stored(CONTENT);
+        when(mockDAO.getPageAnalysisFromDB(5)).thenReturn(analysis);
+
+        // Act
+        PageAnalysis result = bo.getPageAnalysis(5, 1, CONTENT);
+
+        // Assert
+        assertSame(analysis, result);
+        verify(mockDAO, never()).lemmatizeWords(anyString());
+    }
+
+    /**
+     * Test Case ID: READ-002
+     * Path: Stored analytics taken from other content, and none stored at all
+     * Expected: Fresh analytics for the content shown
+     */
+    @Test
+    public void testGetPageAnalysis_StaleOrMissing_Recomputed() {
+        // Arrange
+        when(mockDAO.getPageAnalysisFromDB(5)).thenReturn(stored("نص قديم"));
+
+        // Act
+        PageAnalysis stale = bo.getPageAnalysis(5, 1, CONTENT);
+        PageAnalysis missing = bo.getPageAnalysis(6, 2, CONTENT);
+
+        // Assert
+        assertEquals(CONTENT, stale.getPageContent());
+        assertNotNull("Fresh analytics should include lemmas", stale.getLemmas());
+        assertEquals(2, missing.getPageNumber());
+        assertNotNull(missing.getPklScores());
+    }
+
+    /**
+     * Test Case ID: READ-003
+     * Path: Page with diacritics and Latin characters, nothing stored
+     * Expected: Word analytics keyed by the normalised words
+     */
+    @Test
+    public void testGetPageAnalysis_Diacritics_KeysNormalised() {
+        // Act
+        PageAnalysis result = bo.getPageAnalysis(6, 1, "كَتَبَ الولدُ abc");
+
+        // Assert
+        assertTrue(result.getLemmas().containsKey("كتب"));
+        assertTrue(result.getPosTags().containsKey("الولد"));
+        assertFalse(result.getLemmas().containsKey("كَتَبَ"));
+        assertFalse(result.getRoots().containsKey("abc"));
+    }
+
+    /**
+     * Test Case ID: READ-004
+     * Path: Stored analytics for the same content, keyed by words with diacritics
+     * Expected: Computed again with normalised keys
+     */
+    @Test
+    public void testGetPageAnalysis_StoredUnnormalised_Recomputed() {
+        // Arrange
+        String content = "كَتَبَ الولد";
+        PageAnalysis analysis = new PageAnalysis(5, 1, content);
+        analysis.setLemmas(Collections.singletonMap("كَتَبَ", "كتب"));
+        analysis.setPosTags(new HashMap<>());
+        analysis.setRoots(new HashMap<>());
+        when(mockDAO.getPageAnalysisFromDB(5)).thenReturn(analysis);
+
+        // Act
+        PageAnalysis result = bo.getPageAnalysis(5, 1, content);
+
+        // Assert
+        assertNotSame(analysis, result);
+        assertTrue(result.getLemmas().containsKey("كتب"));
+    }
+}
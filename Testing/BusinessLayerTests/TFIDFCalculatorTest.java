@@ -172,4 +172,30 @@ public class TFIDFCalculatorTest {
         // Assert
         assertTrue("Large document should have valid score", score >= 0);
     }
+
+    /**
+     * Test Case ID: TFIDF-009
+     * Path: Positive - Score from document frequencies only
+     * Expected: Same score as scoring against the full corpus text
+     */
+    @Test
+    public void testCalculateTFIDF_FromDocumentFrequencies_MatchesCorpusScore() {
+        // Arrange
+        String[] corpus = { "بسم الله الرحمن الرحيم", "الحمد لله رب العالمين", "الرحمن الرحيم" };
+        java.util.Map<String, Integer> documentFrequencies = new java.util.HashMap<>();
+        for (String doc : corpus) {
+            calculator.addDocumentToCorpus(doc);
+            for (String term : TFIDFCalculator.uniqueTerms(doc)) {
+                documentFrequencies.merge(term, 1, Integer::sum);
+            }
+        }
+        String document = "الرحمن علم القرآن";
+
+        // Act
+        double expected = calculator.calculateDocumentTfIdf(document);
+        double score = TFIDFCalculator.calculateDocumentTfIdf(document, documentFrequencies, corpus.length);
+
+        // Assert
+        assertEquals("Index-based score should match corpus score", expected, score, 1e-12);
+    }
 }
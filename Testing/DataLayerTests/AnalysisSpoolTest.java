@@ -0,0 +1,79 @@
+package DataLayerTests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import dal.AnalysisSpool;
+import dto.PageAnalysis;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * White-Box Testing for AnalysisSpool
+ * Tests verify:
+ * - Spooled pages come back in order with their content and analytics
+ * - An empty spool reads back nothing
+ */
+public class AnalysisSpoolTest {
+
+    private PageAnalysis page(int pageNumber, String content, String transliteration) {
+        PageAnalysis analysis = new PageAnalysis(0, pageNumber, content);
+        analysis.setTransliteratedText(transliteration);
+        Map<String, List<String>> pos = new HashMap<>();
+        pos.put(content, Arrays.asList("اسم"));
+        analysis.setPosTags(pos);
+        analysis.setLemmas(Collections.singletonMap(content, "كتب"));
+        analysis.setRoots(new HashMap<String, String>());
+        analysis.setSegments(new HashMap<String, String>());
+        analysis.setStems(new HashMap<String, String>());
+        analysis.setPklScores(new HashMap<String, Double>());
+        analysis.setPmiScores(Collections.singletonMap(content, 0.5));
+        return analysis;
+    }
+
+    /**
+     * Test Case ID: SPOOL-001
+     * Path: Two pages added, then read back
+     * Expected: Same order, content, transliteration (including null) and analytics
+     */
+    @Test
+    public void testNext_ReturnsPagesInOrder() throws Exception {
+        // Arrange
+        try (AnalysisSpool spool = new AnalysisSpool()) {
+            spool.add(page(1, "كتاب", "kitab"));
+            spool.add(page(2, "قلم", null));
+
+            // Act
+            PageAnalysis first = spool.next();
+            PageAnalysis second = spool.next();
+
+            // Assert
+            assertEquals(2, spool.size());
+            assertEquals(1, first.getPageNumber());
+            assertEquals("كتاب", first.getPageContent());
+            assertEquals("kitab", first.getTransliteratedText());
+            assertEquals("كتب", first.getLemmas().get("كتاب"));
+            assertEquals(Arrays.asList("اسم"), first.getPosTags().get("كتاب"));
+            assertEquals(2, second.getPageNumber());
+            assertNull(second.getTransliteratedText());
+            assertEquals(0.5, second.getPmiScores().get("قلم"), 0.0);
+            assertNull(spool.next());
+        }
+    }
+
+    /**
+     * Test Case ID: SPOOL-002
+     * Path: Nothing added
+     * Expected: First read returns null
+     */
+    @Test
+    public void testNext_EmptySpool_ReturnsNull() throws Exception {
+        // Act & Assert
+        try (AnalysisSpool spool = new AnalysisSpool()) {
+            assertNull(spool.next());
+            assertEquals(0, spool.size());
+        }
+    }
+}
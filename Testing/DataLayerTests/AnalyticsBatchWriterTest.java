@@ -0,0 +1,46 @@
+package DataLayerTests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.junit.Test;
+import dal.AnalyticsBatchWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+/**
+ * White-Box Testing for AnalyticsBatchWriter
+ * Tests verify:
+ * - Rows are sent in chunks of a few fixed sizes, so statements are reused
+ */
+public class AnalyticsBatchWriterTest {
+
+    /**
+     * Test Case ID: BATCH-001
+     * Path: Seven rows flushed, then six more
+     * Expected: Chunks of 4, 2 and 1 rows; the second flush reuses their statements
+     */
+    @Test
+    public void testFlush_ChunksOfPowersOfTwo_StatementsReused() throws Exception {
+        // Arrange
+        Connection conn = mock(Connection.class);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(stmt);
+
+        // Act
+        try (AnalyticsBatchWriter writer = new AnalyticsBatchWriter(conn, 1000, 1 << 20)) {
+            for (int page = 1; page <= 7; page++) {
+                writer.addPage(page, 1, page, "نص", "HASH");
+            }
+            writer.flush();
+            for (int page = 8; page <= 13; page++) {
+                writer.addPage(page, 1, page, "نص", "HASH");
+            }
+            writer.flush();
+
+            // Assert
+            assertEquals("4 + 2 + 1, then 4 + 2", 5, writer.getStatementCount());
+        }
+        verify(conn, times(3)).prepareStatement(anyString());
+        verify(conn).prepareStatement(argThat((String sql) -> sql.split("\\(\\?").length - 1 == 4));
+    }
+}
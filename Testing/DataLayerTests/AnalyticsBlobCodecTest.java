@@ -0,0 +1,125 @@
+package DataLayerTests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import dal.AnalyticsBlobCodec;
+import dto.PageAnalysis;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * White-Box Testing for AnalyticsBlobCodec
+ * Tests verify:
+ * - Every analytics map survives an encode/decode round trip
+ * - Null values and empty maps are preserved
+ * - Repeated strings are stored once
+ * - Unknown versions are rejected
+ */
+public class AnalyticsBlobCodecTest {
+
+    private PageAnalysis sampleAnalysis() {
+        PageAnalysis analysis = new PageAnalysis(7, 3, "بسم الله الرحمن");
+        Map<String, List<String>> pos = new HashMap<>();
+        pos.put("بسم", Arrays.asList("اسم", "مجرور"));
+        pos.put("الله", Arrays.asList("اسم"));
+        analysis.setPosTags(pos);
+
+        Map<String, String> lemmas = new HashMap<>();
+        lemmas.put("بسم", "اسم");
+        lemmas.put("الله", null);
+        analysis.setLemmas(lemmas);
+
+        Map<String, String> roots = new HashMap<>();
+        roots.put("الرحمن", "رحم");
+        analysis.setRoots(roots);
+        analysis.setSegments(new HashMap<String, String>());
+        analysis.setStems(new HashMap<String, String>());
+
+        Map<String, Double> pkl = new LinkedHashMap<>();
+        pkl.put("الله (بسم, الرحمن)", -0.366);
+        analysis.setPklScores(pkl);
+
+        Map<String, Double> pmi = new LinkedHashMap<>();
+        pmi.put("بسم الله", 1.0986);
+        pmi.put("الله الرحمن", Double.NaN);
+        analysis.setPmiScores(pmi);
+        return analysis;
+    }
+
+    /**
+     * Test Case ID: BLOB-001
+     * Path: Encode then decode
+     * Expected: All seven maps equal the originals, including null values
+     */
+    @Test
+    public void testRoundTrip_PreservesAllMaps() {
+        // Arrange
+        PageAnalysis original = sampleAnalysis();
+
+        // Act
+        PageAnalysis decoded = AnalyticsBlobCodec.decode(AnalyticsBlobCodec.encode(original), 7, 3);
+
+        // Assert
+        assertEquals(7, decoded.getPageId());
+        assertEquals(3, decoded.getPageNumber());
+        assertEquals(original.getPosTags(), decoded.getPosTags());
+        assertEquals(original.getLemmas(), decoded.getLemmas());
+        assertTrue(decoded.getLemmas().containsKey("الله"));
+        assertNull(decoded.getLemmas().get("الله"));
+        assertEquals(original.getRoots(), decoded.getRoots());
+        assertTrue(decoded.getSegments().isEmpty());
+        assertTrue(decoded.getStems().isEmpty());
+        assertEquals(original.getPklScores(), decoded.getPklScores());
+        assertEquals(new ArrayList<>(original.getPmiScores().keySet()),
+                new ArrayList<>(decoded.getPmiScores().keySet()));
+        assertTrue(Double.isNaN(decoded.getPmiScores().get("الله الرحمن")));
+    }
+
+    /**
+     * Test Case ID: BLOB-002
+     * Path: Same word in every map
+     * Expected: Word bytes appear once in the blob
+     */
+    @Test
+    public void testEncode_SharesStringTable() {
+        // Arrange
+        PageAnalysis analysis = sampleAnalysis();
+        String word = "كلمةطويلةجدامكررة";
+        analysis.getLemmas().put(word, word);
+        analysis.getRoots().put(word, word);
+        analysis.getSegments().put(word, word);
+        analysis.getStems().put(word, word);
+
+        // Act
+        byte[] blob = AnalyticsBlobCodec.encode(analysis);
+
+        // Assert
+        byte[] wordBytes = word.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        int occurrences = 0;
+        for (int i = 0; i + wordBytes.length <= blob.length; i++) {
+            if (Arrays.equals(wordBytes, Arrays.copyOfRange(blob, i, i + wordBytes.length))) {
+                occurrences++;
+            }
+        }
+        assertEquals("Repeated string should be stored once", 1, occurrences);
+    }
+
+    /**
+     * Test Case ID: BLOB-003
+     * Path: Blob written by an unknown format version
+     * Expected: IllegalArgumentException
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecode_UnknownVersion_Throws() {
+        // Arrange
+        byte[] blob = AnalyticsBlobCodec.encode(sampleAnalysis());
+        blob[0] = 99;
+
+        // Act
+        AnalyticsBlobCodec.decode(blob, 7, 3);
+    }
+}
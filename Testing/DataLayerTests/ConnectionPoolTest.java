@@ -0,0 +1,303 @@
+package DataLayerTests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.junit.Before;
+import org.junit.Test;
+import dal.ConnectionPool;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * White-Box Testing for the JDBC Connection Pool
+ * Tests verify:
+ * - Connections are reused after close()
+ * - Pool never grows past its maximum size
+ * - Borrowers time out when the pool is exhausted
+ * - Transactions left open are rolled back on return
+ * - Isolation level, read-only flag and catalog are restored on return
+ * - Invalid connections are replaced during validation
+ * - Prepared statements are cached per connection and leaked statements are closed
+ */
+public class ConnectionPoolTest {
+
+    private AtomicInteger created;
+
+    @Before
+    public void setUp() {
+        created = new AtomicInteger();
+    }
+
+    private ConnectionPool newPool(int maxSize, long timeoutMs, long idleValidationMs) {
+        return new ConnectionPool(() -> {
+            created.incrementAndGet();
+            Connection physical = mock(Connection.class);
+            when(physical.getAutoCommit()).thenReturn(true);
+            when(physical.isValid(anyInt())).thenReturn(true);
+            return physical;
+        }, maxSize, 0, timeoutMs, 1, idleValidationMs, 0, 0);
+    }
+
+    /**
+     * Test Case ID: POOL-001
+     * Path: Borrow, close, borrow again
+     * Expected: Second borrow reuses the physical connection
+     */
+    @Test
+    public void testBorrow_AfterClose_ReusesConnection() throws Exception {
+        // Arrange
+        ConnectionPool pool = newPool(2, 1000, 60000);
+
+        // Act
+        Connection first = pool.borrow();
+        first.close();
+        Connection second = pool.borrow();
+
+        // Assert
+        assertEquals("Only one physical connection should be opened", 1, created.get());
+        assertTrue("Returned handle should report closed", first.isClosed());
+        assertFalse("New handle should be open", second.isClosed());
+        assertEquals("One connection should be active", 1, pool.getActiveConnections());
+        second.close();
+        assertEquals("Connection should be idle again", 1, pool.getIdleConnections());
+    }
+
+    /**
+     * Test Case ID: POOL-002
+     * Path: Pool exhausted
+     * Expected: Borrow times out instead of opening more connections
+     */
+    @Test
+    public void testBorrow_PoolExhausted_TimesOut() throws Exception {
+        // Arrange
+        ConnectionPool pool = newPool(1, 100, 60000);
+        Connection held = pool.borrow();
+
+        // Act & Assert
+        try {
+            pool.borrow();
+            fail("Borrow should time out when the pool is exhausted");
+        } catch (SQLException e) {
+            assertEquals("Timeout should be counted", 1, pool.getTimeoutCount());
+        }
+        assertEquals("Pool should not grow past its maximum", 1, pool.getTotalConnections());
+        held.close();
+    }
+
+    /**
+     * Test Case ID: POOL-003
+     * Path: Waiting borrower
+     * Expected: Borrower blocked on a full pool gets the returned connection
+     */
+    @Test
+    public void testBorrow_WaitsForReturnedConnection() throws Exception {
+        // Arrange
+        ConnectionPool pool = newPool(1, 5000, 60000);
+        Connection held = pool.borrow();
+        final Connection[] received = new Connection[1];
+        Thread waiter = new Thread(() -> {
+            try {
+                received[0] = pool.borrow();
+            } catch (SQLException e) {
+                // leave null, asserted below
+            }
+        });
+
+        // Act
+        waiter.start();
+        Thread.sleep(100);
+        held.close();
+        waiter.join(5000);
+
+        // Assert
+        assertNotNull("Waiting thread should receive a connection", received[0]);
+        assertEquals("Returned connection should be reused", 1, created.get());
+        received[0].close();
+    }
+
+    /**
+     * Test Case ID: POOL-004
+     * Path: Connection returned mid-transaction
+     * Expected: Pool rolls back and restores auto-commit
+     */
+    @Test
+    public void testClose_OpenTransaction_RolledBack() throws Exception {
+        // Arrange
+        Connection physical = mock(Connection.class);
+        when(physical.getAutoCommit()).thenReturn(false);
+        ConnectionPool pool = new ConnectionPool(() -> physical, 1, 0, 1000, 1, 60000, 0, 0);
+
+        // Act
+        pool.borrow().close();
+
+        // Assert
+        verify(physical).rollback();
+        verify(physical).setAutoCommit(true);
+    }
+
+    /**
+     * Test Case ID: POOL-005
+     * Path: Idle connection fails validation
+     * Expected: Connection is discarded and a new one is opened
+     */
+    @Test
+    public void testBorrow_InvalidIdleConnection_Replaced() throws Exception {
+        // Arrange
+        Connection broken = mock(Connection.class);
+        when(broken.getAutoCommit()).thenReturn(true);
+        when(broken.isValid(anyInt())).thenReturn(false);
+        Connection healthy = mock(Connection.class);
+        Connection[] sequence = { broken, healthy };
+        ConnectionPool pool = new ConnectionPool(() -> sequence[created.getAndIncrement()], 1, 0, 1000, 1, 0, 0, 0);
+        pool.borrow().close();
+
+        // Act
+        Connection conn = pool.borrow();
+        conn.getMetaData();
+
+        // Assert
+        verify(broken).close();
+        verify(healthy).getMetaData();
+        assertEquals("Validation failure should be counted", 1, pool.getValidationFailures());
+        conn.close();
+    }
+
+    /**
+     * Test Case ID: POOL-006
+     * Path: Stale handle used after close
+     * Expected: SQLException instead of touching a connection now owned by someone else
+     */
+    @Test
+    public void testStaleHandle_AfterClose_Rejected() throws Exception {
+        // Arrange
+        ConnectionPool pool = newPool(1, 1000, 60000);
+        Connection stale = pool.borrow();
+        stale.close();
+        Connection current = pool.borrow();
+
+        // Act & Assert
+        try {
+            stale.createStatement();
+            fail("Stale handle should be rejected");
+        } catch (SQLException e) {
+            assertFalse("Current handle should stay open", current.isClosed());
+        }
+        current.close();
+    }
+
+    /**
+     * Test Case ID: POOL-007
+     * Path: Same SQL prepared on two borrows of one connection
+     * Expected: Statement is prepared once and reset between uses
+     */
+    @Test
+    public void testPrepareStatement_ReusedAcrossBorrows() throws Exception {
+        // Arrange
+        Connection physical = mock(Connection.class);
+        when(physical.getAutoCommit()).thenReturn(true);
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        when(physical.prepareStatement("SELECT 1")).thenReturn(prepared);
+        ConnectionPool pool = new ConnectionPool(() -> physical, 1, 0, 1000, 1, 60000, 0, 0, 10);
+
+        // Act
+        try (Connection conn = pool.borrow(); PreparedStatement stmt = conn.prepareStatement("SELECT 1")) {
+            stmt.setInt(1, 5);
+        }
+        try (Connection conn = pool.borrow(); PreparedStatement stmt = conn.prepareStatement("SELECT 1")) {
+            stmt.executeQuery();
+        }
+
+        // Assert
+        verify(physical, times(1)).prepareStatement("SELECT 1");
+        verify(prepared, times(2)).clearParameters();
+        verify(prepared, never()).close();
+        assertEquals("Second prepare should be a cache hit", 1, pool.getStatementCacheHits());
+    }
+
+    /**
+     * Test Case ID: POOL-008
+     * Path: Statement left open when the connection is closed
+     * Expected: Pool closes the statement
+     */
+    @Test
+    public void testClose_LeakedStatementClosed() throws Exception {
+        // Arrange
+        Connection physical = mock(Connection.class);
+        when(physical.getAutoCommit()).thenReturn(true);
+        Statement leaked = mock(Statement.class);
+        when(physical.createStatement()).thenReturn(leaked);
+        ConnectionPool pool = new ConnectionPool(() -> physical, 1, 0, 1000, 1, 60000, 0, 0, 10);
+
+        // Act
+        Connection conn = pool.borrow();
+        conn.createStatement();
+        conn.close();
+
+        // Assert
+        verify(leaked).close();
+    }
+
+    /**
+     * Test Case ID: POOL-009
+     * Path: Borrower changes fetch size, row limit and timeout of a cached statement
+     * Expected: Settings restored to their prepared values on close
+     */
+    @Test
+    public void testClose_CachedStatementSettingsRestored() throws Exception {
+        // Arrange
+        Connection physical = mock(Connection.class);
+        when(physical.getAutoCommit()).thenReturn(true);
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        when(prepared.getFetchSize()).thenReturn(0, 500);
+        when(prepared.getMaxRows()).thenReturn(0, 10);
+        when(prepared.getQueryTimeout()).thenReturn(0, 30);
+        when(physical.prepareStatement("SELECT 1")).thenReturn(prepared);
+        ConnectionPool pool = new ConnectionPool(() -> physical, 1, 0, 1000, 1, 60000, 0, 0, 10);
+
+        // Act
+        try (Connection conn = pool.borrow(); PreparedStatement stmt = conn.prepareStatement("SELECT 1")) {
+            stmt.setFetchSize(500);
+            stmt.setMaxRows(10);
+            stmt.setQueryTimeout(30);
+        }
+
+        // Assert
+        verify(prepared).setFetchSize(0);
+        verify(prepared).setMaxRows(0);
+        verify(prepared).setQueryTimeout(0);
+        verify(prepared, never()).close();
+    }
+
+    /**
+     * Test Case ID: POOL-010
+     * Path: Borrower changes isolation level, read-only flag and catalog
+     * Expected: Pool restores the values the connection was opened with
+     */
+    @Test
+    public void testClose_SessionSettingsRestored() throws Exception {
+        // Arrange
+        Connection physical = mock(Connection.class);
+        when(physical.getAutoCommit()).thenReturn(true);
+        when(physical.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_REPEATABLE_READ,
+                Connection.TRANSACTION_SERIALIZABLE);
+        when(physical.isReadOnly()).thenReturn(false, true);
+        when(physical.getCatalog()).thenReturn("editor", "other");
+        ConnectionPool pool = new ConnectionPool(() -> physical, 1, 0, 1000, 1, 60000, 0, 0);
+
+        // Act
+        try (Connection conn = pool.borrow()) {
+            conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            conn.setReadOnly(true);
+            conn.setCatalog("other");
+        }
+
+        // Assert
+        verify(physical).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        verify(physical).setReadOnly(false);
+        verify(physical).setCatalog("editor");
+        verify(physical, never()).close();
+    }
+}
@@ -0,0 +1,173 @@
+package DataLayerTests;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import dal.EmbeddedEditorDAO;
+import dto.Documents;
+import dto.PageAnalysis;
+import dto.Pages;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * White-Box Testing for EmbeddedEditorDAO
+ * Tests verify:
+ * - Imported, edited and deleted files survive reopening the store
+ * - A record torn off at the end of the log is discarded on open
+ * - Duplicate content is linked to the stored pages
+ * - Corpus queries are answered from the stored analytics
+ * - Several files can be deleted at once
+ */
+public class EmbeddedEditorDAOTest {
+
+    private static final String CONTENT = "كتب الولد الدرس في البيت. ذهب الولد إلى المدرسة صباحا.\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String join(List<Pages> pages) {
+        StringBuilder content = new StringBuilder();
+        for (Pages page : pages) {
+            content.append(page.getPageContent());
+        }
+        return content.toString();
+    }
+
+    /**
+     * Test Case ID: EMBED-001
+     * Path: Import, edit a page, reopen
+     * Expected: The edited content and file name are read back from the log
+     */
+    @Test
+    public void testReopen_ReplaysImportAndEdit() throws Exception {
+        // Arrange
+        File directory = folder.newFolder();
+        EmbeddedEditorDAO dao = new EmbeddedEditorDAO(directory.toPath());
+        assertTrue(dao.createFileInDB("a.txt", CONTENT));
+        int fileId = dao.getFileSummariesFromDB().get(0).getId();
+        assertTrue(dao.updateFileInDB(fileId, "b.txt", 1, "نص جديد"));
+        dao.close();
+
+        // Act
+        EmbeddedEditorDAO reopened = new EmbeddedEditorDAO(directory.toPath());
+        Documents document = reopened.getFileFromDB(fileId);
+
+        // Assert
+        assertEquals("b.txt", document.getName());
+        assertEquals("نص جديد", document.getPages().get(0).getPageContent());
+        assertNotNull("Analytics should be stored with the page",
+                reopened.getPageAnalysisFromDB(document.getPages().get(0).getPageId()));
+        reopened.close();
+    }
+
+    /**
+     * Test Case ID: EMBED-002
+     * Path: Log ends with a partly written record
+     * Expected: Earlier records are kept, the torn one is dropped, new writes succeed
+     */
+    @Test
+    public void testReopen_DiscardsTornRecord() throws Exception {
+        // Arrange
+        File directory = folder.newFolder();
+        EmbeddedEditorDAO dao = new EmbeddedEditorDAO(directory.toPath());
+        assertTrue(dao.createFileInDB("a.txt", CONTENT));
+        dao.close();
+        Files.write(new File(directory, "editor.log").toPath(), new byte[] { 0, 0, 1, 0, 7, 7 },
+                StandardOpenOption.APPEND);
+
+        // Act
+        EmbeddedEditorDAO reopened = new EmbeddedEditorDAO(directory.toPath());
+        boolean deleted = reopened.deleteFileInDB(reopened.getFileSummariesFromDB().get(0).getId());
+        reopened.close();
+        EmbeddedEditorDAO again = new EmbeddedEditorDAO(directory.toPath());
+
+        // Assert
+        assertTrue(deleted);
+        assertTrue("The delete after the torn record should be replayed", again.getFileSummariesFromDB().isEmpty());
+        again.close();
+    }
+
+    /**
+     * Test Case ID: EMBED-003
+     * Path: Same content imported twice under different names
+     * Expected: Two files with the same pages
+     */
+    @Test
+    public void testCreateFile_DuplicateContentIsLinked() throws Exception {
+        // Arrange
+        EmbeddedEditorDAO dao = new EmbeddedEditorDAO(folder.newFolder().toPath());
+
+        // Act
+        assertTrue(dao.createFileInDB("a.txt", CONTENT));
+        assertTrue(dao.createFileInDB("copy.txt", CONTENT));
+
+        // Assert
+        List<Documents> documents = dao.getFilesFromDB();
+        assertEquals(2, documents.size());
+        assertEquals(join(documents.get(0).getPages()), join(documents.get(1).getPages()));
+        assertEquals(CONTENT, join(documents.get(1).getPages()));
+        dao.close();
+    }
+
+    /**
+     * Test Case ID: EMBED-004
+     * Path: Corpus queries for a root, lemma and tag taken from a stored page
+     * Expected: The page, its file and the word are found from the stored analytics
+     */
+    @Test
+    public void testCorpusQueries_ReadStoredAnalytics() throws Exception {
+        // Arrange
+        EmbeddedEditorDAO dao = new EmbeddedEditorDAO(folder.newFolder().toPath());
+        assertTrue(dao.createFileInDB("a.txt", CONTENT));
+        Pages page = dao.getFilesFromDB().get(0).getPages().get(0);
+        PageAnalysis analysis = dao.getPageAnalysisFromDB(page.getPageId());
+        String root = analysis.getRoots().values().iterator().next();
+        String lemma = analysis.getLemmas().values().iterator().next();
+        Map.Entry<String, List<String>> tagged = analysis.getPosTags().entrySet().iterator().next();
+
+        // Act
+        List<Pages> pages = dao.getPagesByRootFromDB(root);
+        Map<Integer, Integer> counts = dao.getLemmaCountsPerFileFromDB(lemma);
+        List<String> words = dao.getWordsByPOSFromDB(tagged.getValue().get(0));
+
+        // Assert
+        assertEquals(page.getPageId(), pages.get(0).getPageId());
+        assertTrue(counts.get(page.getFileId()) > 0);
+        assertTrue(words.contains(tagged.getKey()));
+        assertTrue(dao.getPagesByRootFromDB("no such root").isEmpty());
+        dao.close();
+    }
+
+    /**
+     * Test Case ID: EMBED-005
+     * Path: Two of three files deleted together, then the store reopened
+     * Expected: Only the third file is left
+     */
+    @Test
+    public void testDeleteFiles_RemovesAllSelected() throws Exception {
+        // Arrange
+        File directory = folder.newFolder();
+        EmbeddedEditorDAO dao = new EmbeddedEditorDAO(directory.toPath());
+        assertTrue(dao.createFileInDB("a.txt", "نص أول"));
+        assertTrue(dao.createFileInDB("b.txt", "نص ثان"));
+        assertTrue(dao.createFileInDB("c.txt", "نص ثالث"));
+        List<Documents> documents = dao.getFileSummariesFromDB();
+
+        // Act
+        boolean deleted = dao.deleteFilesInDB(Arrays.asList(documents.get(0).getId(), documents.get(1).getId()));
+        dao.close();
+        EmbeddedEditorDAO reopened = new EmbeddedEditorDAO(directory.toPath());
+
+        // Assert
+        assertTrue(deleted);
+        assertEquals(1, reopened.getFileSummariesFromDB().size());
+        assertEquals("c.txt", reopened.getFileSummariesFromDB().get(0).getName());
+        reopened.close();
+    }
+}
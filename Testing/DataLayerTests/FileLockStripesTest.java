@@ -0,0 +1,66 @@
+package DataLayerTests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import dal.FileLockStripes;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * White-Box Testing for FileLockStripes
+ * Tests verify:
+ * - A file always gets the same lock
+ * - A held lock does not hold up files on other stripes
+ */
+public class FileLockStripesTest {
+
+    /**
+     * Test Case ID: FLOCK-001
+     * Path: Same file asked for twice, and a file one stripe count further on
+     * Expected: Same lock each time; ids that wrap around share it
+     */
+    @Test
+    public void testForFile_SameFile_SameLock() {
+        // Arrange
+        FileLockStripes stripes = new FileLockStripes(8);
+
+        // Act & Assert
+        assertSame(stripes.forFile(3), stripes.forFile(3));
+        assertSame(stripes.forFile(3), stripes.forFile(11));
+        assertNotSame(stripes.forFile(3), stripes.forFile(4));
+    }
+
+    /**
+     * Test Case ID: FLOCK-002
+     * Path: One thread holds a file's lock while another thread writes
+     * Expected: Another file's lock is free; the same file's lock is not
+     */
+    @Test
+    public void testForFile_HeldLock_OnlyBlocksSameStripe() throws Exception {
+        // Arrange
+        FileLockStripes stripes = new FileLockStripes(8);
+        Lock held = stripes.forFile(1);
+        held.lock();
+
+        try {
+            // Act
+            boolean otherFile = CompletableFuture.supplyAsync(() -> tryLock(stripes.forFile(2))).get(5, TimeUnit.SECONDS);
+            boolean sameFile = CompletableFuture.supplyAsync(() -> tryLock(stripes.forFile(1))).get(5, TimeUnit.SECONDS);
+
+            // Assert
+            assertTrue("Other files should not wait", otherFile);
+            assertFalse("The same file should wait", sameFile);
+        } finally {
+            held.unlock();
+        }
+    }
+
+    private boolean tryLock(Lock lock) {
+        if (lock.tryLock()) {
+            lock.unlock();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,61 @@
+package DataLayerTests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import dal.KeywordMatcher;
+import dto.SearchResult;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * White-Box Testing for KeywordMatcher
+ * Tests verify:
+ * - Only whole-word matches are reported, ignoring case
+ * - Offsets and the preceding word describe the first match
+ */
+public class KeywordMatcherTest {
+
+    /**
+     * Test Case ID: MATCH-001
+     * Path: Keyword as a whole word, inside a longer word and in another case
+     * Expected: Offsets of the whole-word matches only
+     */
+    @Test
+    public void testOffsets_WholeWordsOnly() {
+        // Arrange
+        String content = "The fox, a foxhound and the FOX";
+
+        // Act & Assert
+        assertEquals(Arrays.asList(4, 28), KeywordMatcher.offsets(content, "fox"));
+    }
+
+    /**
+     * Test Case ID: MATCH-002
+     * Path: Arabic keyword with diacritics on the stored word
+     * Expected: A word carrying extra marks is a different word
+     */
+    @Test
+    public void testOffsets_ArabicDiacritics_NotSplit() {
+        // Act & Assert
+        assertEquals(Collections.singletonList(0), KeywordMatcher.offsets("كتب الدرس", "كتب"));
+        assertTrue(KeywordMatcher.offsets("كتبَ الدرس", "كتب").isEmpty());
+    }
+
+    /**
+     * Test Case ID: MATCH-003
+     * Path: Page the full-text index matched
+     * Expected: Result with file, page, offsets and the preceding word; null when nothing matches
+     */
+    @Test
+    public void testMatch_ReturnsResultWithContext() {
+        // Act
+        SearchResult result = KeywordMatcher.match(7, "notes.txt", 3, "ذهب الولد إلى المدرسة", "المدرسة");
+
+        // Assert
+        assertEquals(7, result.getFileId());
+        assertEquals(3, result.getPageNumber());
+        assertEquals(Collections.singletonList(14), result.getOffsets());
+        assertEquals("إلى", result.getPrecedingWord());
+        assertNull(KeywordMatcher.match(7, "notes.txt", 3, "ذهب الولد", "المدرسة"));
+    }
+}
@@ -0,0 +1,52 @@
+package DataLayerTests;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import dal.LoadFileWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * White-Box Testing for LoadFileWriter
+ * Tests verify:
+ * - Rows are staged as tab-separated lines in the LOAD DATA format
+ * - Tabs, newlines, backslashes and NULL are escaped
+ * - Staged files are removed on close
+ */
+public class LoadFileWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test Case ID: LOADFILE-001
+     * Path: File and term rows with special characters and a NULL
+     * Expected: One escaped line per row in each table's file
+     */
+    @Test
+    public void testFlush_StagesEscapedRows() throws Exception {
+        // Arrange
+        File directory = folder.newFolder();
+        LoadFileWriter writer = new LoadFileWriter(directory.toPath());
+
+        // Act
+        writer.addFile(7, "a\tb\\c.txt", "hash\nline", null);
+        writer.addTerms(7, new TreeSet<>(Arrays.asList("كتاب", "قلم")));
+        writer.flush();
+
+        // Assert
+        List<String> files = Files.readAllLines(new File(directory, "files.tsv").toPath(), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("7\ta\\tb\\\\c.txt\thash\\nline\t\\N"), files);
+        List<String> terms = Files.readAllLines(new File(directory, "file_terms.tsv").toPath(), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("7\tقلم", "7\tكتاب"), terms);
+
+        writer.close();
+        assertFalse("Staged files should be removed", new File(directory, "files.tsv").exists());
+    }
+}
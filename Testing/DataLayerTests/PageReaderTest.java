@@ -0,0 +1,120 @@
+package DataLayerTests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import dal.PageLayout;
+import dal.PageLayout.Boundary;
+import dal.PageLayout.Unit;
+import dal.PageReader;
+import dto.Pages;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * White-Box Testing for PageReader
+ * Tests verify:
+ * - Pages end between words, preferring sentence ends
+ * - Page size can be measured in characters, words or UTF-8 bytes
+ * - Joining the pages gives back the input unchanged
+ */
+public class PageReaderTest {
+
+    private static final String TEXT = "كتب الولد الدرس في البيت. ذهب الولد إلى المدرسة صباحا. "
+            + "قرأ المعلم الكتاب\nثم كتب الطلاب الواجب";
+
+    private List<Pages> paginate(String content, PageLayout layout) throws Exception {
+        List<Pages> pages = new ArrayList<>();
+        try (PageReader reader = new PageReader(new StringReader(content), layout)) {
+            Pages page;
+            while ((page = reader.next()) != null) {
+                pages.add(page);
+            }
+        }
+        return pages;
+    }
+
+    private String join(List<Pages> pages) {
+        StringBuilder content = new StringBuilder();
+        for (Pages page : pages) {
+            content.append(page.getPageContent());
+        }
+        return content.toString();
+    }
+
+    /**
+     * Test Case ID: PAGER-001
+     * Path: Character pages with word boundaries
+     * Expected: No page longer than the size, no word split across pages
+     */
+    @Test
+    public void testNext_WordBoundary_DoesNotSplitWords() throws Exception {
+        // Act
+        List<Pages> pages = paginate(TEXT, new PageLayout(Unit.CHARS, 20, Boundary.WORD));
+
+        // Assert
+        assertEquals("Pages should join back to the input", TEXT, join(pages));
+        for (int i = 0; i < pages.size(); i++) {
+            String content = pages.get(i).getPageContent();
+            assertTrue("Page should fit the size", content.length() <= 20);
+            if (i < pages.size() - 1) {
+                assertTrue("Page should end at whitespace", Character.isWhitespace(content.charAt(content.length() - 1)));
+            }
+            assertEquals("Pages should be numbered in order", i + 1, pages.get(i).getPageNumber());
+        }
+    }
+
+    /**
+     * Test Case ID: PAGER-002
+     * Path: Sentence end within the second half of the page
+     * Expected: Page ends after the sentence instead of the last word that fits
+     */
+    @Test
+    public void testNext_SentenceBoundary_EndsAfterSentence() throws Exception {
+        // Act
+        List<Pages> pages = paginate(TEXT, new PageLayout(Unit.CHARS, 40, Boundary.SENTENCE));
+
+        // Assert
+        assertEquals("كتب الولد الدرس في البيت. ", pages.get(0).getPageContent());
+        assertEquals(TEXT, join(pages));
+    }
+
+    /**
+     * Test Case ID: PAGER-003
+     * Path: Page size in words
+     * Expected: Each page holds the configured number of words
+     */
+    @Test
+    public void testNext_WordUnit_CountsWords() throws Exception {
+        // Act
+        List<Pages> pages = paginate(TEXT, new PageLayout(Unit.WORDS, 4, Boundary.WORD));
+
+        // Assert
+        assertEquals("كتب الولد الدرس في ", pages.get(0).getPageContent());
+        for (Pages page : pages) {
+            assertTrue(page.getPageContent().trim().split("\\s+").length <= 4);
+        }
+        assertEquals(TEXT, join(pages));
+    }
+
+    /**
+     * Test Case ID: PAGER-004
+     * Path: Page size in bytes, Arabic text and an unbroken run
+     * Expected: No page is larger than the byte limit in UTF-8
+     */
+    @Test
+    public void testNext_ByteUnit_StaysWithinLimit() throws Exception {
+        // Arrange
+        String content = TEXT + "بببببببببببببببببببببببببببببببب";
+
+        // Act
+        List<Pages> pages = paginate(content, new PageLayout(Unit.BYTES, 30, Boundary.SENTENCE));
+
+        // Assert
+        for (Pages page : pages) {
+            assertTrue("Page should fit in 30 bytes", page.getPageContent().getBytes(StandardCharsets.UTF_8).length <= 30);
+        }
+        assertEquals(content, join(pages));
+    }
+}
@@ -0,0 +1,150 @@
+package DataLayerTests;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import dal.HashCalculator;
+import dal.PageReader;
+import dal.TFIDFCalculator;
+import dal.TermCounter;
+import dal.TextFileSource;
+import dto.Pages;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * White-Box Testing for the streaming import path
+ * Tests verify:
+ * - Files read through TextFileSource match the old line-by-line import
+ * - PageReader produces the same pages as paginate
+ * - Hashes and term counts built from pieces match the whole-text versions
+ */
+public class StreamingImportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String readAll(Reader reader) throws Exception {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[7];
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            text.append(buffer, 0, read);
+        }
+        reader.close();
+        return text.toString();
+    }
+
+    private String readLines(File file) throws Exception {
+        StringBuilder text = new StringBuilder();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                text.append(line).append("\n");
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Test Case ID: STREAM-001
+     * Path: CRLF, CR, LF and a missing final newline
+     * Expected: Same text as reading the file line by line
+     */
+    @Test
+    public void testTextFileSource_NormalizesLineEndingsLikeReadLine() throws Exception {
+        // Arrange
+        String[] contents = { "", "\n", "a", "سلام\r\nعليكم\rو\n\nرحمة", "line\r\n", "\r\r\n\n" };
+
+        for (String content : contents) {
+            File file = folder.newFile();
+            Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+            // Act
+            String streamed = readAll(new TextFileSource(file, StandardCharsets.UTF_8).open());
+
+            // Assert
+            assertEquals("Streamed text should match readLine import", readLines(file), streamed);
+        }
+    }
+
+    /**
+     * Test Case ID: STREAM-002
+     * Path: Content longer than several pages
+     * Expected: Pages of 100 characters numbered from 1, the last one partial
+     */
+    @Test
+    public void testPageReader_SplitsIntoNumberedPages() throws Exception {
+        // Arrange
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 250; i++) {
+            content.append((char) ('a' + i % 26));
+        }
+        List<Pages> pages = new ArrayList<>();
+
+        // Act
+        try (PageReader reader = new PageReader(new StringReader(content.toString()))) {
+            Pages page;
+            while ((page = reader.next()) != null) {
+                pages.add(page);
+            }
+        }
+
+        // Assert
+        assertEquals(3, pages.size());
+        assertEquals(content.substring(0, 100), pages.get(0).getPageContent());
+        assertEquals(content.substring(200), pages.get(2).getPageContent());
+        assertEquals(3, pages.get(2).getPageNumber());
+    }
+
+    /**
+     * Test Case ID: STREAM-003
+     * Path: Text fed in pieces cut inside words and whitespace runs
+     * Expected: Same counts as tokenizing the whole text
+     */
+    @Test
+    public void testTermCounter_PiecesMatchWholeText() {
+        // Arrange
+        String[] texts = { "", "   ", " كتب  الولد\nالدرس ", "كتب الولد الدرس كتب", "abc كتاب" };
+
+        for (String text : texts) {
+            TermCounter counter = new TermCounter();
+            for (int i = 0; i < text.length(); i += 3) {
+                counter.add(text.substring(i, Math.min(text.length(), i + 3)));
+            }
+
+            // Act
+            Map<String, Integer> counts = counter.finish();
+
+            // Assert
+            assertEquals("Counts should match for \"" + text + "\"", TFIDFCalculator.termCounts(text), counts);
+        }
+    }
+
+    /**
+     * Test Case ID: STREAM-004
+     * Path: Text split between the two halves of a surrogate pair
+     * Expected: Same hash as hashing the whole text
+     */
+    @Test
+    public void testIncrementalHash_SplitSurrogatePair() throws Exception {
+        // Arrange
+        String text = "abc😀def";
+        HashCalculator.Incremental hash = new HashCalculator.Incremental();
+
+        // Act
+        hash.update(text.substring(0, 4));
+        hash.update(text.substring(4));
+
+        // Assert
+        assertEquals(HashCalculator.calculateHash(text), hash.finish());
+    }
+}
@@ -0,0 +1,77 @@
+package DataLayerTests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import dal.TokenDelta;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * White-Box Testing for TokenDelta
+ * Tests verify:
+ * - Only tokens that appear or disappear are reported
+ * - Repeated and reordered tokens do not count as changes
+ * - Tokenisation matches the analysers (split on whitespace)
+ */
+public class TokenDeltaTest {
+
+    /**
+     * Test Case ID: DELTA-001
+     * Path: One word replaced
+     * Expected: Old word removed, new word added, nothing else
+     */
+    @Test
+    public void testBetween_WordReplaced_ReportsOnlyThatWord() {
+        // Act
+        TokenDelta delta = TokenDelta.between("بسم الله الرحمن الرحيم", "بسم الله الرحمن الكريم");
+
+        // Assert
+        assertEquals(new HashSet<>(Arrays.asList("الكريم")), delta.getAdded());
+        assertEquals(new HashSet<>(Arrays.asList("الرحيم")), delta.getRemoved());
+        assertFalse(delta.isEmpty());
+    }
+
+    /**
+     * Test Case ID: DELTA-002
+     * Path: Same words, different order and spacing
+     * Expected: Empty delta
+     */
+    @Test
+    public void testBetween_ReorderedAndRespaced_IsEmpty() {
+        // Act
+        TokenDelta delta = TokenDelta.between("الله الرحمن الله", "الرحمن   الله");
+
+        // Assert
+        assertTrue("Same distinct tokens should give an empty delta", delta.isEmpty());
+    }
+
+    /**
+     * Test Case ID: DELTA-003
+     * Path: Duplicate of an existing word added
+     * Expected: No added tokens
+     */
+    @Test
+    public void testBetween_DuplicateWordAdded_NothingAdded() {
+        // Act
+        TokenDelta delta = TokenDelta.between("الحمد لله", "الحمد لله لله");
+
+        // Assert
+        assertTrue(delta.getAdded().isEmpty());
+        assertTrue(delta.getRemoved().isEmpty());
+    }
+
+    /**
+     * Test Case ID: DELTA-004
+     * Path: Leading whitespace introduced
+     * Expected: Empty token reported as added, as the analysers would see it
+     */
+    @Test
+    public void testBetween_LeadingWhitespace_AddsEmptyToken() {
+        // Act
+        TokenDelta delta = TokenDelta.between("الحمد لله", " الحمد لله");
+
+        // Assert
+        assertEquals(new HashSet<>(Arrays.asList("")), delta.getAdded());
+        assertTrue(delta.getRemoved().isEmpty());
+    }
+}
@@ -0,0 +1,136 @@
+-- Upgrades an existing realeditor database to the current schema.
+-- Run the sections that are newer than your installation, in order.
+Use realeditor
+
+-- Page and file id blocks reserved by dal.IdAllocator
+CREATE TABLE IF NOT EXISTS `idallocator` (
+	`name` VARCHAR(64) NOT NULL COLLATE 'utf8mb4_general_ci',
+	`nextId` BIGINT(20) NOT NULL,
+	PRIMARY KEY (`name`) USING BTREE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+
+-- Document-frequency index for TF-IDF, filled from existing files on first use
+CREATE TABLE IF NOT EXISTS `term_df` (
+	`term` VARCHAR(255) NOT NULL COLLATE 'utf8mb4_bin',
+	`df` INT(11) NOT NULL DEFAULT '0',
+	PRIMARY KEY (`term`) USING BTREE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE IF NOT EXISTS `file_terms` (
+	`fileId` INT(11) NOT NULL,
+	`term` VARCHAR(255) NOT NULL COLLATE 'utf8mb4_bin',
+	PRIMARY KEY (`fileId`, `term`) USING BTREE,
+	CONSTRAINT `file_terms_fk` FOREIGN KEY (`fileId`) REFERENCES `files` (`fileId`) ON UPDATE RESTRICT ON DELETE CASCADE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+
+-- Duplicate detection on import looks files up by content hash
+ALTER TABLE `files` ADD INDEX IF NOT EXISTS `file_hash` (`fileHash`) USING BTREE;
+
+-- Per-page content hash; pages saved before this are re-analysed once on their next save
+ALTER TABLE `pages` ADD COLUMN IF NOT EXISTS `pageHash` CHAR(32) NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci' AFTER `pageContent`;
+
+-- Analytics tables reference a words dictionary instead of repeating each word as LONGTEXT.
+-- With the editor closed, run the converter on the application classpath:
+--     java dal.WordDictionaryMigration
+-- It creates `words`, fills it from the existing rows and swaps the `word` column of
+-- pos, lemmatization, rootextraction, stemmation, wordsegementation, pkl and pmi
+-- for an indexed `wordId`. It skips tables that are already converted.
+
+-- One binary analysis row per page, used when analytics.storage = blob
+CREATE TABLE IF NOT EXISTS `pageanalytics` (
+	`pageId` INT(11) NOT NULL,
+	`version` TINYINT(4) NOT NULL,
+	`analysis` LONGBLOB NOT NULL,
+	PRIMARY KEY (`pageId`) USING BTREE,
+	CONSTRAINT `pageanalytics_fk` FOREIGN KEY (`pageId`) REFERENCES `pages` (`pageId`) ON UPDATE RESTRICT ON DELETE CASCADE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+
+-- Page layout each file was paginated with (unit:size:boundary); NULL means the original
+-- fixed 100-character pages. Files are moved to the configured layout by dal.RepaginationJob.
+ALTER TABLE `files` ADD COLUMN IF NOT EXISTS `pageLayout` VARCHAR(64) NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci' AFTER `fileHash`;
+
+-- Analytics tables partitioned by file. With db.analytics.partitioned = auto the editor notices
+-- on its next start; if the flag was set to false, set it to true (or auto) after this section.
+-- It rewrites each table, so run it with the editor closed.
+ALTER TABLE `lemmatization` DROP FOREIGN KEY `lemmatization_ibfk_1`, DROP FOREIGN KEY `lemmatization_word_fk`;
+ALTER TABLE `lemmatization` ADD COLUMN `fileId` INT(11) NOT NULL DEFAULT '0' AFTER `id`;
+UPDATE `lemmatization` a JOIN `pages` p ON p.pageId = a.pageId SET a.fileId = p.fileId;
+ALTER TABLE `lemmatization` ALTER `fileId` DROP DEFAULT, DROP INDEX `page_id`, DROP INDEX `lemmatization_ibfk_1`, DROP PRIMARY KEY,
+	ADD PRIMARY KEY (`id`, `fileId`) USING BTREE, ADD INDEX `page_id` (`fileId`, `pageId`) USING BTREE;
+ALTER TABLE `lemmatization` PARTITION BY HASH (`fileId`) PARTITIONS 16;
+
+ALTER TABLE `pos` DROP FOREIGN KEY `pos_ibfk_1`, DROP FOREIGN KEY `pos_word_fk`;
+ALTER TABLE `pos` ADD COLUMN `fileId` INT(11) NOT NULL DEFAULT '0' AFTER `id`;
+UPDATE `pos` a JOIN `pages` p ON p.pageId = a.pageId SET a.fileId = p.fileId;
+ALTER TABLE `pos` ALTER `fileId` DROP DEFAULT, DROP INDEX `page_id`, DROP INDEX `pos_ibfk_1`, DROP PRIMARY KEY,
+	ADD PRIMARY KEY (`id`, `fileId`) USING BTREE, ADD INDEX `page_id` (`fileId`, `pageId`) USING BTREE;
+ALTER TABLE `pos` PARTITION BY HASH (`fileId`) PARTITIONS 16;
+
+ALTER TABLE `rootextraction` DROP FOREIGN KEY `rootExtraction_ibfk_1`, DROP FOREIGN KEY `rootextraction_word_fk`;
+ALTER TABLE `rootextraction` ADD COLUMN `fileId` INT(11) NOT NULL DEFAULT '0' AFTER `id`;
+UPDATE `rootextraction` a JOIN `pages` p ON p.pageId = a.pageId SET a.fileId = p.fileId;
+ALTER TABLE `rootextraction` ALTER `fileId` DROP DEFAULT, DROP INDEX `page_id`, DROP INDEX `rootExtraction_ibfk_1`, DROP PRIMARY KEY,
+	ADD PRIMARY KEY (`id`, `fileId`) USING BTREE, ADD INDEX `page_id` (`fileId`, `pageId`) USING BTREE;
+ALTER TABLE `rootextraction` PARTITION BY HASH (`fileId`) PARTITIONS 16;
+
+ALTER TABLE `stemmation` DROP FOREIGN KEY `stemmation_ibfk_1`, DROP FOREIGN KEY `stemmation_word_fk`;
+ALTER TABLE `stemmation` ADD COLUMN `fileId` INT(11) NOT NULL DEFAULT '0' AFTER `id`;
+UPDATE `stemmation` a JOIN `pages` p ON p.pageId = a.pageId SET a.fileId = p.fileId;
+ALTER TABLE `stemmation` ALTER `fileId` DROP DEFAULT, DROP INDEX `page_id`, DROP INDEX `stemmation_ibfk_1`, DROP PRIMARY KEY,
+	ADD PRIMARY KEY (`id`, `fileId`) USING BTREE, ADD INDEX `page_id` (`fileId`, `pageId`) USING BTREE;
+ALTER TABLE `stemmation` PARTITION BY HASH (`fileId`) PARTITIONS 16;
+
+ALTER TABLE `wordsegementation` DROP FOREIGN KEY `wordSegementation_ibfk_1`, DROP FOREIGN KEY `wordsegementation_word_fk`;
+ALTER TABLE `wordsegementation` ADD COLUMN `fileId` INT(11) NOT NULL DEFAULT '0' AFTER `id`;
+UPDATE `wordsegementation` a JOIN `pages` p ON p.pageId = a.pageId SET a.fileId = p.fileId;
+ALTER TABLE `wordsegementation` ALTER `fileId` DROP DEFAULT, DROP INDEX `page_id`, DROP INDEX `wordSegementation_ibfk_1`, DROP PRIMARY KEY,
+	ADD PRIMARY KEY (`id`, `fileId`) USING BTREE, ADD INDEX `page_id` (`fileId`, `pageId`) USING BTREE;
+ALTER TABLE `wordsegementation` PARTITION BY HASH (`fileId`) PARTITIONS 16;
+
+ALTER TABLE `pkl` DROP FOREIGN KEY `pkl_ibfk_1`, DROP FOREIGN KEY `pkl_word_fk`;
+ALTER TABLE `pkl` ADD COLUMN `fileId` INT(11) NOT NULL DEFAULT '0' AFTER `id`;
+UPDATE `pkl` a JOIN `pages` p ON p.pageId = a.pageId SET a.fileId = p.fileId;
+ALTER TABLE `pkl` ALTER `fileId` DROP DEFAULT, DROP INDEX `page_id`, DROP INDEX `pkl_ibfk_1`, DROP PRIMARY KEY,
+	ADD PRIMARY KEY (`id`, `fileId`) USING BTREE, ADD INDEX `page_id` (`fileId`, `pageId`) USING BTREE;
+ALTER TABLE `pkl` PARTITION BY HASH (`fileId`) PARTITIONS 16;
+
+ALTER TABLE `pmi` DROP FOREIGN KEY `pmi_ibfk_1`, DROP FOREIGN KEY `pmi_word_fk`;
+ALTER TABLE `pmi` ADD COLUMN `fileId` INT(11) NOT NULL DEFAULT '0' AFTER `id`;
+UPDATE `pmi` a JOIN `pages` p ON p.pageId = a.pageId SET a.fileId = p.fileId;
+ALTER TABLE `pmi` ALTER `fileId` DROP DEFAULT, DROP INDEX `page_id`, DROP INDEX `pmi_ibfk_1`, DROP PRIMARY KEY,
+	ADD PRIMARY KEY (`id`, `fileId`) USING BTREE, ADD INDEX `page_id` (`fileId`, `pageId`) USING BTREE;
+ALTER TABLE `pmi` PARTITION BY HASH (`fileId`) PARTITIONS 16;
+
+ALTER TABLE `pageanalytics` DROP FOREIGN KEY `pageanalytics_fk`;
+ALTER TABLE `pageanalytics` ADD COLUMN `fileId` INT(11) NOT NULL DEFAULT '0' FIRST;
+UPDATE `pageanalytics` a JOIN `pages` p ON p.pageId = a.pageId SET a.fileId = p.fileId;
+ALTER TABLE `pageanalytics` ALTER `fileId` DROP DEFAULT, DROP PRIMARY KEY,
+	ADD PRIMARY KEY (`pageId`, `fileId`) USING BTREE, ADD INDEX `page_id` (`fileId`, `pageId`) USING BTREE;
+ALTER TABLE `pageanalytics` PARTITION BY HASH (`fileId`) PARTITIONS 16;
+
+-- Full-text index for keyword search; see the note on `pages` in EditorDBQuery.sql for the
+-- server settings that suit Arabic text
+ALTER TABLE `pages` ADD FULLTEXT INDEX IF NOT EXISTS `page_content` (`pageContent`);
+
+-- Prefix indexes for corpus queries by root, lemma, part of speech, stem and segment
+ALTER TABLE `lemmatization` ADD INDEX IF NOT EXISTS `lemmatization_value` (`lemma`(32)) USING BTREE;
+ALTER TABLE `pos` ADD INDEX IF NOT EXISTS `pos_value` (`pos`(32)) USING BTREE;
+ALTER TABLE `rootextraction` ADD INDEX IF NOT EXISTS `rootextraction_value` (`root`(32)) USING BTREE;
+ALTER TABLE `stemmation` ADD INDEX IF NOT EXISTS `stemmation_value` (`stem`(32)) USING BTREE;
+ALTER TABLE `wordsegementation` ADD INDEX IF NOT EXISTS `wordsegementation_value` (`segment`(32)) USING BTREE;
+
+-- Soft delete: deleted files are hidden at once and their rows removed by dal.FilePurger
+ALTER TABLE `files` ADD COLUMN IF NOT EXISTS `isDeleted` TINYINT(1) NOT NULL DEFAULT '0' AFTER `lastModified`;
+ALTER TABLE `files` ADD COLUMN IF NOT EXISTS `deletedAt` TIMESTAMP NULL DEFAULT NULL AFTER `isDeleted`;
+ALTER TABLE `files` ADD INDEX IF NOT EXISTS `file_deleted` (`isDeleted`, `deletedAt`) USING BTREE;
@@ -5,21 +5,33 @@ CREATE TABLE `files` (
 	`fileid` INT(11) NOT NULL AUTO_INCREMENT,
 	`fileName` VARCHAR(255) NOT NULL COLLATE 'utf8mb4_general_ci',
 	`fileHash` VARCHAR(255) NOT NULL COLLATE 'utf8mb4_general_ci',
+	`pageLayout` VARCHAR(64) NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
 	`dateCreated` TIMESTAMP NOT NULL DEFAULT current_timestamp(),
 	`lastModified` TIMESTAMP NOT NULL DEFAULT current_timestamp() ON UPDATE current_timestamp(),
-	PRIMARY KEY (`fileid`) USING BTREE
+	`isDeleted` TINYINT(1) NOT NULL DEFAULT '0',
+	`deletedAt` TIMESTAMP NULL DEFAULT NULL,
+	PRIMARY KEY (`fileid`) USING BTREE,
+	INDEX `file_hash` (`fileHash`) USING BTREE,
+	INDEX `file_deleted` (`isDeleted`, `deletedAt`) USING BTREE
 )
 COLLATE='utf8mb4_general_ci'
 ENGINE=InnoDB
 AUTO_INCREMENT=70
 ;
+-- Keyword search uses the FULLTEXT index on pageContent. MariaDB has no n-gram parser; its
+-- built-in parser splits Arabic on spaces and punctuation like any other script. For
+-- three-letter Arabic roots set innodb_ft_min_token_size = 3 (the default) or lower, and
+-- innodb_ft_enable_stopword = OFF, since the default stopword list is English. On MySQL the
+-- index can use WITH PARSER ngram with ngram_token_size = 3 instead.
 CREATE TABLE `pages` (
 	`pageId` INT(11) NOT NULL AUTO_INCREMENT,
 	`fileId` INT(11) NOT NULL,
 	`pageNumber` INT(11) NOT NULL,
 	`pageContent` LONGTEXT NOT NULL COLLATE 'utf8mb4_general_ci',
+	`pageHash` CHAR(32) NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
 	PRIMARY KEY (`pageId`) USING BTREE,
 	UNIQUE INDEX `file_id` (`fileId`, `pageNumber`) USING BTREE,
+	FULLTEXT INDEX `page_content` (`pageContent`),
 	CONSTRAINT `pages_ibfk_1` FOREIGN KEY (`fileId`) REFERENCES `files` (`fileid`) ON UPDATE RESTRICT ON DELETE CASCADE
 )
 COLLATE='utf8mb4_general_ci'
@@ -39,108 +51,134 @@ ENGINE=InnoDB
 AUTO_INCREMENT=32
 ;
 
+CREATE TABLE `words` (
+	`wordId` INT(11) NOT NULL AUTO_INCREMENT,
+	`word` VARCHAR(768) NOT NULL COLLATE 'utf8mb4_bin',
+	PRIMARY KEY (`wordId`) USING BTREE,
+	UNIQUE INDEX `word` (`word`) USING BTREE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+
+-- The analytics tables and pageanalytics are partitioned by file so deleting a file or
+-- re-analysing a page touches one partition. Partitioned InnoDB tables cannot have foreign
+-- keys; dal.EditorDBDAO deletes their rows itself. Set db.analytics.partitioned = false in
+-- config.properties for a database created before this layout.
 CREATE TABLE `lemmatization` (
 	`id` INT(11) NOT NULL AUTO_INCREMENT,
+	`fileId` INT(11) NOT NULL,
 	`pageId` INT(11) NOT NULL,
-	`word` LONGTEXT NOT NULL COLLATE 'utf8mb4_general_ci',
+	`wordId` INT(11) NOT NULL,
 	`lemma` LONGTEXT NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
-	PRIMARY KEY (`id`) USING BTREE,
-	UNIQUE INDEX `page_id` (`id`, `pageId`) USING BTREE,
-	INDEX `lemmatization_ibfk_1` (`pageId`) USING BTREE,
-	CONSTRAINT `lemmatization_ibfk_1` FOREIGN KEY (`pageId`) REFERENCES `pages` (`pageId`) ON UPDATE RESTRICT ON DELETE CASCADE
+	PRIMARY KEY (`id`, `fileId`) USING BTREE,
+	INDEX `page_id` (`fileId`, `pageId`) USING BTREE,
+	INDEX `lemmatization_word` (`wordId`) USING BTREE,
+	INDEX `lemmatization_value` (`lemma`(32)) USING BTREE
 )
 COLLATE='utf8mb4_general_ci'
 ENGINE=InnoDB
 AUTO_INCREMENT=14573
+PARTITION BY HASH (`fileId`) PARTITIONS 16
 ;
 
 CREATE TABLE `pos` (
 	`id` INT(11) NOT NULL AUTO_INCREMENT,
+	`fileId` INT(11) NOT NULL,
 	`pageId` INT(11) NOT NULL,
-	`word` LONGTEXT NOT NULL COLLATE 'utf8mb4_general_ci',
+	`wordId` INT(11) NOT NULL,
 	`pos` LONGTEXT NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
-	PRIMARY KEY (`id`) USING BTREE,
-	UNIQUE INDEX `page_id` (`id`, `pageId`) USING BTREE,
-	INDEX `pos_ibfk_1` (`pageId`) USING BTREE,
-	CONSTRAINT `pos_ibfk_1` FOREIGN KEY (`pageId`) REFERENCES `pages` (`pageId`) ON UPDATE RESTRICT ON DELETE CASCADE
+	PRIMARY KEY (`id`, `fileId`) USING BTREE,
+	INDEX `page_id` (`fileId`, `pageId`) USING BTREE,
+	INDEX `pos_word` (`wordId`) USING BTREE,
+	INDEX `pos_value` (`pos`(32)) USING BTREE
 )
 COLLATE='utf8mb4_general_ci'
 ENGINE=InnoDB
 AUTO_INCREMENT=613
+PARTITION BY HASH (`fileId`) PARTITIONS 16
 ;
 
 CREATE TABLE `rootextraction` (
 	`id` INT(11) NOT NULL AUTO_INCREMENT,
+	`fileId` INT(11) NOT NULL,
 	`pageId` INT(11) NOT NULL,
-	`word` LONGTEXT NOT NULL COLLATE 'utf8mb4_general_ci',
+	`wordId` INT(11) NOT NULL,
 	`root` LONGTEXT NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
-	PRIMARY KEY (`id`) USING BTREE,
-	UNIQUE INDEX `page_id` (`id`, `pageId`) USING BTREE,
-	INDEX `rootExtraction_ibfk_1` (`pageId`) USING BTREE,
-	CONSTRAINT `rootExtraction_ibfk_1` FOREIGN KEY (`pageId`) REFERENCES `pages` (`pageId`) ON UPDATE RESTRICT ON DELETE CASCADE
+	PRIMARY KEY (`id`, `fileId`) USING BTREE,
+	INDEX `page_id` (`fileId`, `pageId`) USING BTREE,
+	INDEX `rootextraction_word` (`wordId`) USING BTREE,
+	INDEX `rootextraction_value` (`root`(32)) USING BTREE
 )
 COLLATE='utf8mb4_general_ci'
 ENGINE=InnoDB
 AUTO_INCREMENT=14506
+PARTITION BY HASH (`fileId`) PARTITIONS 16
 ;
 
 CREATE TABLE `stemmation` (
 	`id` INT(11) NOT NULL AUTO_INCREMENT,
+	`fileId` INT(11) NOT NULL,
 	`pageId` INT(11) NOT NULL,
-	`word` LONGTEXT NOT NULL COLLATE 'utf8mb4_general_ci',
+	`wordId` INT(11) NOT NULL,
 	`stem` LONGTEXT NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
-	PRIMARY KEY (`id`) USING BTREE,
-	UNIQUE INDEX `page_id` (`id`, `pageId`) USING BTREE,
-	INDEX `stemmation_ibfk_1` (`pageId`) USING BTREE,
-	CONSTRAINT `stemmation_ibfk_1` FOREIGN KEY (`pageId`) REFERENCES `pages` (`pageId`) ON UPDATE RESTRICT ON DELETE CASCADE
+	PRIMARY KEY (`id`, `fileId`) USING BTREE,
+	INDEX `page_id` (`fileId`, `pageId`) USING BTREE,
+	INDEX `stemmation_word` (`wordId`) USING BTREE,
+	INDEX `stemmation_value` (`stem`(32)) USING BTREE
 )
 COLLATE='utf8mb4_general_ci'
 ENGINE=InnoDB
 AUTO_INCREMENT=14460
+PARTITION BY HASH (`fileId`) PARTITIONS 16
 ;
 
 CREATE TABLE `wordsegementation` (
 	`id` INT(11) NOT NULL AUTO_INCREMENT,
+	`fileId` INT(11) NOT NULL,
 	`pageId` INT(11) NOT NULL,
-	`word` LONGTEXT NOT NULL COLLATE 'utf8mb4_general_ci',
+	`wordId` INT(11) NOT NULL,
 	`segment` LONGTEXT NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
-	PRIMARY KEY (`id`) USING BTREE,
-	UNIQUE INDEX `page_id` (`id`, `pageId`) USING BTREE,
-	INDEX `wordSegementation_ibfk_1` (`pageId`) USING BTREE,
-	CONSTRAINT `wordSegementation_ibfk_1` FOREIGN KEY (`pageId`) REFERENCES `pages` (`pageId`) ON UPDATE RESTRICT ON DELETE CASCADE
+	PRIMARY KEY (`id`, `fileId`) USING BTREE,
+	INDEX `page_id` (`fileId`, `pageId`) USING BTREE,
+	INDEX `wordsegementation_word` (`wordId`) USING BTREE,
+	INDEX `wordsegementation_value` (`segment`(32)) USING BTREE
 )
 COLLATE='utf8mb4_general_ci'
 ENGINE=InnoDB
 AUTO_INCREMENT=14475
+PARTITION BY HASH (`fileId`) PARTITIONS 16
 ;
 
 CREATE TABLE `pkl` (
 	`id` INT(11) NOT NULL AUTO_INCREMENT,
+	`fileId` INT(11) NOT NULL,
 	`pageId` INT(11) NOT NULL,
-	`word` LONGTEXT NOT NULL COLLATE 'utf8mb4_general_ci',
+	`wordId` INT(11) NOT NULL,
 	`pklScore` DOUBLE NOT NULL DEFAULT '0',
-	PRIMARY KEY (`id`) USING BTREE,
-	UNIQUE INDEX `page_id` (`id`, `pageId`) USING BTREE,
-	INDEX `pkl_ibfk_1` (`pageId`) USING BTREE,
-	CONSTRAINT `pkl_ibfk_1` FOREIGN KEY (`pageId`) REFERENCES `pages` (`pageId`) ON UPDATE RESTRICT ON DELETE CASCADE
+	PRIMARY KEY (`id`, `fileId`) USING BTREE,
+	INDEX `page_id` (`fileId`, `pageId`) USING BTREE,
+	INDEX `pkl_word` (`wordId`) USING BTREE
 )
 COLLATE='utf8mb4_general_ci'
 ENGINE=InnoDB
 AUTO_INCREMENT=14394
+PARTITION BY HASH (`fileId`) PARTITIONS 16
 ;
 CREATE TABLE `pmi` (
 	`id` INT(11) NOT NULL AUTO_INCREMENT,
+	`fileId` INT(11) NOT NULL,
 	`pageId` INT(11) NOT NULL,
-	`word` LONGTEXT NOT NULL COLLATE 'utf8mb4_general_ci',
+	`wordId` INT(11) NOT NULL,
 	`pmiScore` DOUBLE NOT NULL DEFAULT '0',
-	PRIMARY KEY (`id`) USING BTREE,
-	UNIQUE INDEX `page_id` (`id`, `pageId`) USING BTREE,
-	INDEX `pmi_ibfk_1` (`pageId`) USING BTREE,
-	CONSTRAINT `pmi_ibfk_1` FOREIGN KEY (`pageId`) REFERENCES `pages` (`pageId`) ON UPDATE RESTRICT ON DELETE CASCADE
+	PRIMARY KEY (`id`, `fileId`) USING BTREE,
+	INDEX `page_id` (`fileId`, `pageId`) USING BTREE,
+	INDEX `pmi_word` (`wordId`) USING BTREE
 )
 COLLATE='utf8mb4_general_ci'
 ENGINE=InnoDB
 AUTO_INCREMENT=14386
+PARTITION BY HASH (`fileId`) PARTITIONS 16
 ;
 CREATE TABLE `tfidf` (
 	`tfidfId` INT(11) NOT NULL AUTO_INCREMENT,
@@ -154,3 +192,41 @@ COLLATE='utf8mb4_general_ci'
 ENGINE=InnoDB
 AUTO_INCREMENT=14517
 ;
+CREATE TABLE `idallocator` (
+	`name` VARCHAR(64) NOT NULL COLLATE 'utf8mb4_general_ci',
+	`nextId` BIGINT(20) NOT NULL,
+	PRIMARY KEY (`name`) USING BTREE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `term_df` (
+	`term` VARCHAR(255) NOT NULL COLLATE 'utf8mb4_bin',
+	`df` INT(11) NOT NULL DEFAULT '0',
+	PRIMARY KEY (`term`) USING BTREE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `file_terms` (
+	`fileId` INT(11) NOT NULL,
+	`term` VARCHAR(255) NOT NULL COLLATE 'utf8mb4_bin',
+	PRIMARY KEY (`fileId`, `term`) USING BTREE,
+	CONSTRAINT `file_terms_fk` FOREIGN KEY (`fileId`) REFERENCES `files` (`fileId`) ON UPDATE RESTRICT ON DELETE CASCADE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+
+CREATE TABLE `pageanalytics` (
+	`fileId` INT(11) NOT NULL,
+	`pageId` INT(11) NOT NULL,
+	`version` TINYINT(4) NOT NULL,
+	`analysis` LONGBLOB NOT NULL,
+	PRIMARY KEY (`pageId`, `fileId`) USING BTREE,
+	INDEX `page_id` (`fileId`, `pageId`) USING BTREE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+PARTITION BY HASH (`fileId`) PARTITIONS 16
+;
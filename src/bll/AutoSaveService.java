@@ -0,0 +1,215 @@
+package bll;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.EditorPO;
+
+/**
+ * Write-behind queue for page saves. Snapshots of the same page replace each
+ * other while they wait, so a burst of edits ends in one write of the latest
+ * text. Everything is written by a single worker thread, which keeps explicit
+ * saves and autosaves of a page in the order they were made. Pending
+ * snapshots are written on {@link #flush(long)} and when the JVM shuts down.
+ */
+public class AutoSaveService {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+
+	public interface PageSaver {
+		boolean save(int fileId, String fileName, int pageNumber, String content);
+	}
+
+	private final PageSaver saver;
+	private final long debounceMillis;
+	private final int maxRetries;
+	private final long retryDelayMillis;
+	private final ScheduledExecutorService worker;
+	private final Thread shutdownHook;
+	private final Map<String, Snapshot> pending = new LinkedHashMap<>();
+	private ScheduledFuture<?> scheduledDrain;
+
+	public AutoSaveService(PageSaver saver, long debounceMillis, int maxRetries, long retryDelayMillis) {
+		this.saver = saver;
+		this.debounceMillis = Math.max(0, debounceMillis);
+		this.maxRetries = Math.max(0, maxRetries);
+		this.retryDelayMillis = Math.max(0, retryDelayMillis);
+
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "autosave-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		this.worker = executor;
+
+		this.shutdownHook = new Thread(() -> flush(10000), "autosave-shutdown");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Queues a snapshot of a page. The returned future completes once this
+	 * snapshot, or a newer one of the same page that replaced it, is written.
+	 */
+	public CompletableFuture<Boolean> schedule(int fileId, String fileName, int pageNumber, String content) {
+		CompletableFuture<Boolean> result = new CompletableFuture<>();
+		synchronized (pending) {
+			String key = key(fileId, pageNumber);
+			Snapshot snapshot = new Snapshot(fileId, fileName, pageNumber, content);
+			Snapshot replaced = pending.remove(key);
+			if (replaced != null) {
+				snapshot.waiters.addAll(replaced.waiters);
+			}
+			snapshot.waiters.add(result);
+			pending.put(key, snapshot);
+
+			if (scheduledDrain == null || scheduledDrain.isDone()) {
+				scheduledDrain = worker.schedule(this::drain, debounceMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Writes a page without waiting for the debounce delay. A waiting
+	 * autosave of the same page is superseded by this save.
+	 */
+	public CompletableFuture<Boolean> saveNow(int fileId, String fileName, int pageNumber, String content) {
+		CompletableFuture<Boolean> result = new CompletableFuture<>();
+		Snapshot snapshot = new Snapshot(fileId, fileName, pageNumber, content);
+		synchronized (pending) {
+			Snapshot replaced = pending.remove(key(fileId, pageNumber));
+			if (replaced != null) {
+				snapshot.waiters.addAll(replaced.waiters);
+			}
+		}
+		snapshot.waiters.add(result);
+		worker.execute(() -> write(snapshot));
+		return result;
+	}
+
+	/**
+	 * Writes every waiting snapshot and blocks until the worker is idle or the
+	 * timeout passes.
+	 */
+	public boolean flush(long timeoutMillis) {
+		try {
+			return flushAsync().get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			LOGGER.error("Autosave flush did not finish: " + e.getMessage());
+		}
+		return false;
+	}
+
+	/**
+	 * Writes every waiting snapshot without blocking the caller. The returned
+	 * future completes once the worker has written them.
+	 */
+	public CompletableFuture<Boolean> flushAsync() {
+		CompletableFuture<Boolean> result = new CompletableFuture<>();
+		if (worker.isShutdown()) {
+			// Already flushed by shutdown()
+			result.complete(true);
+			return result;
+		}
+		try {
+			worker.execute(() -> {
+				drain();
+				result.complete(true);
+			});
+		} catch (RejectedExecutionException e) {
+			LOGGER.error("Autosave flush did not start: " + e.getMessage());
+			result.complete(false);
+		}
+		return result;
+	}
+
+	public int getPendingCount() {
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+
+	private void drain() {
+		List<Snapshot> batch;
+		synchronized (pending) {
+			// Snapshots queued from here on need a drain of their own
+			scheduledDrain = null;
+			batch = new ArrayList<>(pending.values());
+			pending.clear();
+		}
+		for (Snapshot snapshot : batch) {
+			write(snapshot);
+		}
+	}
+
+	private void write(Snapshot snapshot) {
+		boolean saved = false;
+		for (int attempt = 0; attempt <= maxRetries && !saved; attempt++) {
+			if (attempt > 0) {
+				try {
+					Thread.sleep(retryDelayMillis * attempt);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			try {
+				saved = saver.save(snapshot.fileId, snapshot.fileName, snapshot.pageNumber, snapshot.content);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				LOGGER.error(e.getMessage());
+			}
+		}
+		if (!saved) {
+			LOGGER.error("Autosave of file " + snapshot.fileId + " page " + snapshot.pageNumber + " failed after "
+					+ (maxRetries + 1) + " attempts");
+		}
+		for (CompletableFuture<Boolean> waiter : snapshot.waiters) {
+			waiter.complete(saved);
+		}
+	}
+
+	public void shutdown() {
+		flush(10000);
+		worker.shutdown();
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// The JVM is already shutting down and runs the hook itself
+		}
+	}
+
+	private static String key(int fileId, int pageNumber) {
+		return fileId + ":" + pageNumber;
+	}
+
+	private static final class Snapshot {
+		private final int fileId;
+		private final String fileName;
+		private final int pageNumber;
+		private final String content;
+		private final List<CompletableFuture<Boolean>> waiters = new ArrayList<>();
+
+		Snapshot(int fileId, String fileName, int pageNumber, String content) {
+			this.fileId = fileId;
+			this.fileName = fileName;
+			this.pageNumber = pageNumber;
+			this.content = content;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package bll;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import dto.Documents;
+import dto.Pages;
+
+/**
+ * In-process LRU cache of fully loaded documents, bounded by the estimated
+ * size of their page content rather than by entry count. A reader takes the
+ * id's {@link #generation(int)} before loading a document and hands it to
+ * {@link #put(Documents, long)}, which drops the document if the id was
+ * invalidated in the meantime.
+ */
+public class DocumentCache {
+	private final long maxBytes;
+	private final LinkedHashMap<Integer, Documents> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<Integer, Long> sizes = new LinkedHashMap<>();
+	private long currentBytes = 0;
+	// Counter value of each id's last invalidation, and of the last clear
+	private final Map<Integer, Long> invalidatedAt = new HashMap<>();
+	private long clearedAt = 0;
+	private long counter = 0;
+
+	public DocumentCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	public synchronized Documents get(int id) {
+		return entries.get(id);
+	}
+
+	public synchronized long generation(int id) {
+		return Math.max(invalidatedAt.getOrDefault(id, 0L), clearedAt);
+	}
+
+	/**
+	 * Caches a document loaded after {@link #generation(int)} returned the
+	 * given value, unless the id has been invalidated since.
+	 */
+	public synchronized void put(Documents doc, long generation) {
+		if (generation(doc.getId()) == generation) {
+			put(doc);
+		}
+	}
+
+	public synchronized void put(Documents doc) {
+		long size = estimateSize(doc);
+		remove(doc.getId());
+		if (size > maxBytes) {
+			return;
+		}
+		entries.put(doc.getId(), doc);
+		sizes.put(doc.getId(), size);
+		currentBytes += size;
+
+		Iterator<Map.Entry<Integer, Documents>> eldest = entries.entrySet().iterator();
+		while (currentBytes > maxBytes && eldest.hasNext()) {
+			int evictedId = eldest.next().getKey();
+			eldest.remove();
+			currentBytes -= sizes.remove(evictedId);
+		}
+	}
+
+	public synchronized void invalidate(int id) {
+		remove(id);
+		invalidatedAt.put(id, ++counter);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		sizes.clear();
+		currentBytes = 0;
+		invalidatedAt.clear();
+		clearedAt = ++counter;
+	}
+
+	private void remove(int id) {
+		if (entries.remove(id) != null) {
+			currentBytes -= sizes.remove(id);
+		}
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getCurrentBytes() {
+		return currentBytes;
+	}
+
+	static long estimateSize(Documents doc) {
+		long size = 64;
+		if (doc.getName() != null) {
+			size += doc.getName().length() * 2L;
+		}
+		if (doc.getPages() != null) {
+			for (Pages page : doc.getPages()) {
+				size += 32;
+				if (page.getPageContent() != null) {
+					size += page.getPageContent().length() * 2L;
+				}
+			}
+		}
+		return size;
+	}
+}
@@ -1,27 +1,44 @@
 package bll;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import dal.AnalysisPipeline;
+import dal.EditorConfig;
 import dal.IFacadeDAO;
+import dal.PageLayout;
+import dal.PreProcessText;
+import dal.RepaginationJob;
+import dal.TextFileSource;
 import dto.Documents;
+import dto.PageAnalysis;
 import dto.Pages;
+import dto.SearchResult;
 import pl.EditorPO;
 
 public class EditorBO implements IEditorBO {
 	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
 
 	private IFacadeDAO db;
+	private DocumentCache cache;
+	private AutoSaveService autoSave;
 
 	public EditorBO(IFacadeDAO db) {
 		this.db = db;
+		this.cache = new DocumentCache(EditorConfig.getLong("cache.maxBytes", 67108864));
+		this.autoSave = new AutoSaveService(this::writePage, EditorConfig.getLong("autosave.debounceMs", 2000),
+				EditorConfig.getInt("autosave.maxRetries", 3), EditorConfig.getLong("autosave.retryDelayMs", 1000));
+		if (EditorConfig.getBoolean("repagination.enabled", false)) {
+			// Moves existing files to the configured page layout while the editor runs
+			new RepaginationJob(db, PageLayout.configured(), cache::invalidate).start();
+		}
 	}
 
 	@Override
@@ -32,17 +49,46 @@ public class EditorBO implements IEditorBO {
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
 			return false;
+		} finally {
+			cache.clear();
 		}
 	}
 
 	@Override
 	public boolean updateFile(int id, String fileName, int pageNumber, String content) {
+		return saveFileAsync(id, fileName, pageNumber, content).join();
+	}
+
+	@Override
+	public CompletableFuture<Boolean> saveFileAsync(int id, String fileName, int pageNumber, String content) {
+		return autoSave.saveNow(id, fileName, pageNumber, content);
+	}
+
+	@Override
+	public CompletableFuture<Boolean> scheduleAutoSave(int id, String fileName, int pageNumber, String content) {
+		return autoSave.schedule(id, fileName, pageNumber, content);
+	}
+
+	@Override
+	public boolean flushAutoSaves() {
+		return autoSave.flush(EditorConfig.getLong("autosave.flushTimeoutMs", 10000));
+	}
+
+	@Override
+	public CompletableFuture<Boolean> flushAutoSavesAsync() {
+		return autoSave.flushAsync();
+	}
+
+	private boolean writePage(int id, String fileName, int pageNumber, String content) {
 		try {
 			return db.updateFileInDB(id, fileName, pageNumber, content);
 		} catch (Exception e) {
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
 			return false;
+		} finally {
+			// After the write, so a read racing it cannot cache the old pages again
+			cache.invalidate(id);
 		}
 	}
 
@@ -54,42 +100,77 @@ public class EditorBO implements IEditorBO {
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
 			return false;
+		} finally {
+			cache.invalidate(id);
 		}
 	}
 
 	@Override
-	public boolean importTextFiles(File file, String fileName) {
-		StringBuilder fileContent = new StringBuilder();
-		String fileExtension = getFileExtension(fileName);
-		BufferedReader reader;
+	public boolean deleteFiles(List<Integer> ids) {
 		try {
-			reader = new BufferedReader(new FileReader(file));
-			String line;
-
-			while ((line = reader.readLine()) != null) {
-				fileContent.append(line).append("\n");
+			return db.deleteFilesInDB(ids);
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		} finally {
+			for (int id : ids) {
+				cache.invalidate(id);
 			}
-			reader.close();
+		}
+	}
 
+	@Override
+	public boolean importTextFiles(File file, String fileName) {
+		String fileExtension = getFileExtension(fileName);
+		try {
 			if (fileExtension.equalsIgnoreCase("txt") || fileExtension.equalsIgnoreCase("md5")) {
-				return db.createFileInDB(fileName, fileContent.toString());
+				// Streamed from disk so large files are never held in memory whole
+				return db.createFileInDB(fileName, new TextFileSource(file));
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
+		} finally {
+			cache.clear();
 		}
 		return false;
 	}
 
+	/**
+	 * Imports many files in one bulk load. Files that are not .txt or .md5 are
+	 * left out; the load succeeds or fails as a whole.
+	 */
+	@Override
+	public int importTextFilesInBulk(List<File> files) {
+		List<File> textFiles = new ArrayList<>();
+		for (File file : files) {
+			String fileExtension = getFileExtension(file.getName());
+			if (fileExtension.equalsIgnoreCase("txt") || fileExtension.equalsIgnoreCase("md5")) {
+				textFiles.add(file);
+			}
+		}
+		if (textFiles.isEmpty()) {
+			return 0;
+		}
+		try {
+			return db.bulkLoadFilesInDB(textFiles);
+		} finally {
+			cache.clear();
+		}
+	}
+
 	@Override
 	public Documents getFile(int id) {
-		List<Documents> docs = getAllFiles();
-		for (int i = 0; i < docs.size(); i++) {
-			if (id == docs.get(i).getId()) {
-				return docs.get(i);
+		Documents doc = cache.get(id);
+		if (doc == null) {
+			long generation = cache.generation(id);
+			doc = db.getFileFromDB(id);
+			if (doc != null) {
+				cache.put(doc, generation);
 			}
 		}
-		return null;
+		return doc;
 	}
 
 	@Override
@@ -103,15 +184,86 @@ public class EditorBO implements IEditorBO {
 		return db.getFilesFromDB();
 	}
 
+	@Override
+	public List<Documents> getFileSummaries() {
+		return db.getFileSummariesFromDB();
+	}
+
 	@Override
 	public String transliterate(int pageId, String arabicText) {
 		return db.transliterateInDB(pageId, arabicText);
 	}
 
+	/**
+	 * The analytics stored for a page when they were saved with the content
+	 * shown, otherwise analysed now.
+	 */
+	@Override
+	public PageAnalysis getPageAnalysis(int pageId, int pageNumber, String content) {
+		PageAnalysis stored = db.getPageAnalysisFromDB(pageId);
+		if (stored != null && content.equals(stored.getPageContent()) && isAnalysed(stored) && isNormalised(stored)) {
+			return stored;
+		}
+		try {
+			return AnalysisPipeline.getInstance().submit(new Pages(pageId, 0, pageNumber, content)).join();
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	// Pages stored without analytics read back with every word map empty
+	private boolean isAnalysed(PageAnalysis analysis) {
+		if (analysis.getPageContent().trim().isEmpty()) {
+			return true;
+		}
+		return !isEmpty(analysis.getPosTags()) || !isEmpty(analysis.getLemmas()) || !isEmpty(analysis.getRoots());
+	}
+
+	// Analytics stored before the analysers were given normalised text are keyed by the raw words
+	private boolean isNormalised(PageAnalysis analysis) {
+		for (Map<String, ?> map : Arrays.asList(analysis.getPosTags(), analysis.getLemmas(), analysis.getRoots())) {
+			if (map == null) {
+				continue;
+			}
+			for (String word : map.keySet()) {
+				if (!word.equals(PreProcessText.preprocessText(word))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean isEmpty(Map<?, ?> map) {
+		return map == null || map.isEmpty();
+	}
+
 	@Override
 	public List<String> searchKeyword(String keyword) {
+		SearchWord.checkKeyword(keyword);
+		List<SearchResult> results = db.searchPagesInDB(keyword);
+		if (results == null) {
+			// The search failed, e.g. on a database without the full-text index; scan every page instead
+			return SearchWord.searchKeyword(keyword, getAllFiles());
+		}
+		return SearchWord.describe(keyword, results);
+	}
 
-		return SearchWord.searchKeyword(keyword, getAllFiles());
+	@Override
+	public List<Pages> getPagesByRoot(String root) {
+		return db.getPagesByRootFromDB(root);
+	}
+
+	@Override
+	public Map<Integer, Integer> getLemmaCountsPerFile(String lemma) {
+		return db.getLemmaCountsPerFileFromDB(lemma);
+	}
+
+	@Override
+	public List<String> getWordsByPOS(String tag) {
+		return db.getWordsByPOSFromDB(tag);
 	}
 
 	@Override
@@ -137,6 +289,11 @@ public class EditorBO implements IEditorBO {
 		return db.performTFIDF(unSelectedDocsContent, selectedDocContent);
 	}
 
+	@Override
+	public double getTFIDFScore(int fileId) {
+		return db.getTFIDFScoreFromDB(fileId);
+	}
+
 	@Override
 	public Map<String, Double> performPMI(String content) {
 
@@ -3,8 +3,11 @@ package bll;
 import java.io.File;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import dto.Documents;
+import dto.PageAnalysis;
+import dto.Pages;
 
 public class FacadeBO implements IFacadeBO {
 
@@ -26,18 +29,48 @@ public class FacadeBO implements IFacadeBO {
 		return bo.updateFile(id, fileName, pageNumber, content);
 	}
 
+	@Override
+	public CompletableFuture<Boolean> saveFileAsync(int id, String fileName, int pageNumber, String content) {
+		return bo.saveFileAsync(id, fileName, pageNumber, content);
+	}
+
+	@Override
+	public CompletableFuture<Boolean> scheduleAutoSave(int id, String fileName, int pageNumber, String content) {
+		return bo.scheduleAutoSave(id, fileName, pageNumber, content);
+	}
+
+	@Override
+	public boolean flushAutoSaves() {
+		return bo.flushAutoSaves();
+	}
+
+	@Override
+	public CompletableFuture<Boolean> flushAutoSavesAsync() {
+		return bo.flushAutoSavesAsync();
+	}
+
 	@Override
 	public boolean deleteFile(int id) {
 		// TODO Auto-generated method stub
 		return bo.deleteFile(id);
 	}
 
+	@Override
+	public boolean deleteFiles(List<Integer> ids) {
+		return bo.deleteFiles(ids);
+	}
+
 	@Override
 	public boolean importTextFiles(File file, String fileName) {
 		// TODO Auto-generated method stub
 		return bo.importTextFiles(file, fileName);
 	}
 
+	@Override
+	public int importTextFilesInBulk(List<File> files) {
+		return bo.importTextFilesInBulk(files);
+	}
+
 	@Override
 	public Documents getFile(int id) {
 		// TODO Auto-generated method stub
@@ -50,6 +83,11 @@ public class FacadeBO implements IFacadeBO {
 		return bo.getAllFiles();
 	}
 
+	@Override
+	public List<Documents> getFileSummaries() {
+		return bo.getFileSummaries();
+	}
+
 	@Override
 	public String getFileExtension(String fileName) {
 		// TODO Auto-generated method stub
@@ -61,11 +99,31 @@ public class FacadeBO implements IFacadeBO {
 		return bo.transliterate(pageId, arabicText);
 	}
 
+	@Override
+	public PageAnalysis getPageAnalysis(int pageId, int pageNumber, String content) {
+		return bo.getPageAnalysis(pageId, pageNumber, content);
+	}
+
 	@Override
 	public List<String> searchKeyword(String keyword) {
 		return bo.searchKeyword(keyword);
 	}
 
+	@Override
+	public List<Pages> getPagesByRoot(String root) {
+		return bo.getPagesByRoot(root);
+	}
+
+	@Override
+	public Map<Integer, Integer> getLemmaCountsPerFile(String lemma) {
+		return bo.getLemmaCountsPerFile(lemma);
+	}
+
+	@Override
+	public List<String> getWordsByPOS(String tag) {
+		return bo.getWordsByPOS(tag);
+	}
+
 	@Override
 	public Map<String, String> lemmatizeWords(String text) {
 		// TODO Auto-generated method stub
@@ -90,6 +148,11 @@ public class FacadeBO implements IFacadeBO {
 		return bo.performTFIDF(unSelectedDocsContent, selectedDocContent);
 	}
 
+	@Override
+	public double getTFIDFScore(int fileId) {
+		return bo.getTFIDFScore(fileId);
+	}
+
 	@Override
 	public Map<String, Double> performPMI(String content) {
 		// TODO Auto-generated method stub
@@ -3,28 +3,54 @@ package bll;
 import java.io.File;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import dto.Documents;
+import dto.PageAnalysis;
+import dto.Pages;
 
 public interface IEditorBO {
 	boolean createFile(String nameOfFile, String content);
 
 	boolean updateFile(int id, String fileName, int pageNumber, String content);
 
+	CompletableFuture<Boolean> saveFileAsync(int id, String fileName, int pageNumber, String content);
+
+	CompletableFuture<Boolean> scheduleAutoSave(int id, String fileName, int pageNumber, String content);
+
+	boolean flushAutoSaves();
+
+	CompletableFuture<Boolean> flushAutoSavesAsync();
+
 	boolean deleteFile(int id);
 
+	boolean deleteFiles(List<Integer> ids);
+
 	boolean importTextFiles(File file, String fileName);
 
+	// Number of files imported, or -1 if the bulk load failed
+	int importTextFilesInBulk(List<File> files);
+
 	Documents getFile(int id);
 
 	List<Documents> getAllFiles();
 
+	List<Documents> getFileSummaries();
+
 	String getFileExtension(String fileName);
 
 	String transliterate(int pageId, String arabicText);
 
+	PageAnalysis getPageAnalysis(int pageId, int pageNumber, String content);
+
 	List<String> searchKeyword(String keyword);
 
+	List<Pages> getPagesByRoot(String root);
+
+	Map<Integer, Integer> getLemmaCountsPerFile(String lemma);
+
+	List<String> getWordsByPOS(String tag);
+
 	Map<String, String> lemmatizeWords(String text);
 
 	Map<String, List<String>> extractPOS(String text);
@@ -33,6 +59,8 @@ public interface IEditorBO {
 
 	double performTFIDF(List<String> unSelectedDocsContent, String selectedDocContent);
 
+	double getTFIDFScore(int fileId);
+
 	Map<String, Double> performPMI(String content);
 
 	Map<String, Double> performPKL(String content);
@@ -1,13 +1,16 @@
 package bll;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import dto.Documents;
 import dto.Pages;
+import dto.SearchResult;
 import pl.EditorPO;
 
 public class SearchWord {
@@ -15,9 +18,7 @@ public class SearchWord {
 		final Logger LOGGER = LogManager.getLogger(EditorPO.class);
 		// TODO Auto-generated method stub
 		List<String> getFiles = new ArrayList<>();
-		if (keyword.length() < 3) {
-			throw new IllegalArgumentException("Could not Search, Please Enter at least 3 letter to search");
-		}
+		checkKeyword(keyword);
 
 		for (Documents doc : docs) {
 			for (Pages page : doc.getPages()) {
@@ -46,4 +47,25 @@ public class SearchWord {
 		return getFiles;
 	}
 
+	/**
+	 * One line per file, for the first page the keyword was found on, in the
+	 * same form as {@link #searchKeyword(String, List)}.
+	 */
+	public static List<String> describe(String keyword, List<SearchResult> results) {
+		List<String> getFiles = new ArrayList<>();
+		Set<Integer> seenFiles = new HashSet<>();
+		for (SearchResult result : results) {
+			if (seenFiles.add(result.getFileId())) {
+				getFiles.add(result.getFileName() + " - " + result.getPrecedingWord() + " " + keyword + "...");
+			}
+		}
+		return getFiles;
+	}
+
+	public static void checkKeyword(String keyword) {
+		if (keyword.length() < 3) {
+			throw new IllegalArgumentException("Could not Search, Please Enter at least 3 letter to search");
+		}
+	}
+
 }
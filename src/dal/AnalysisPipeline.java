@@ -0,0 +1,98 @@
+package dal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dto.PageAnalysis;
+import dto.Pages;
+
+/**
+ * Runs the CPU-bound analysis stages (transliteration, POS, lemma, root,
+ * segment, stem, PKL and PMI) for many pages at once on a shared worker pool.
+ * Nothing in here touches the database, so callers can analyse a whole file
+ * before they open a write transaction.
+ */
+public class AnalysisPipeline {
+	private static AnalysisPipeline INSTANCE;
+
+	private final ExecutorService workers;
+
+	private AnalysisPipeline(int workerCount) {
+		AtomicInteger threadNumber = new AtomicInteger(1);
+		this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+			Thread thread = new Thread(runnable, "analysis-worker-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public static synchronized AnalysisPipeline getInstance() {
+		if (INSTANCE == null) {
+			int workerCount = EditorConfig.getInt("ingest.workers", Runtime.getRuntime().availableProcessors());
+			INSTANCE = new AnalysisPipeline(Math.max(1, workerCount));
+		}
+		return INSTANCE;
+	}
+
+	public CompletableFuture<PageAnalysis> submit(Pages page) {
+		String content = page.getPageContent();
+		// The word analysers see the text without diacritics or non-Arabic characters, as the editor always showed it
+		String words = PreProcessText.preprocessText(content);
+		PageAnalysis analysis = new PageAnalysis(page.getPageId(), page.getPageNumber(), content);
+
+		CompletableFuture<?>[] stages = {
+				CompletableFuture.runAsync(() -> analysis.setTransliteratedText(Transliteration.transliterate(content)),
+						workers),
+				CompletableFuture.runAsync(() -> analysis.setPosTags(POSTagger.extractPOS(words)), workers),
+				CompletableFuture.runAsync(() -> analysis.setLemmas(Lemmatization.lemmatizeWords(words)), workers),
+				CompletableFuture.runAsync(() -> analysis.setRoots(RootExtraction.extractRoots(words)), workers),
+				CompletableFuture.runAsync(() -> analysis.setSegments(WordSegmentation.extractSegments(words)),
+						workers),
+				CompletableFuture.runAsync(() -> analysis.setStems(Stemmation.stemWords(words)), workers),
+				CompletableFuture.runAsync(
+						() -> analysis.setPklScores(new PKLCalculator(content).calculatePKLForAllWords()), workers),
+				CompletableFuture.runAsync(
+						() -> analysis.setPmiScores(new PMICalculator(content).calculatePMIForAllBigrams()), workers) };
+
+		return CompletableFuture.allOf(stages).thenApply(ignored -> analysis);
+	}
+
+	/**
+	 * Analyses every page concurrently and returns the results in page order.
+	 */
+	public List<PageAnalysis> analyze(List<Pages> pages) throws Exception {
+		return collect(submitAll(pages));
+	}
+
+	public List<CompletableFuture<PageAnalysis>> submitAll(List<Pages> pages) {
+		List<CompletableFuture<PageAnalysis>> pending = new ArrayList<>(pages.size());
+		for (Pages page : pages) {
+			pending.add(submit(page));
+		}
+		return pending;
+	}
+
+	/**
+	 * Waits for pages handed to {@link #submitAll(List)}, cancelling the rest
+	 * if one of them fails.
+	 */
+	public List<PageAnalysis> collect(List<CompletableFuture<PageAnalysis>> pending) throws Exception {
+		List<PageAnalysis> results = new ArrayList<>(pending.size());
+		try {
+			for (CompletableFuture<PageAnalysis> future : pending) {
+				results.add(future.join());
+			}
+		} catch (CompletionException e) {
+			for (CompletableFuture<PageAnalysis> future : pending) {
+				future.cancel(true);
+			}
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+		return results;
+	}
+}
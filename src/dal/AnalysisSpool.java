@@ -0,0 +1,112 @@
+package dal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import dto.PageAnalysis;
+
+/**
+ * Holds the analysed pages of one file in a temporary file, so a whole file
+ * can be analysed before its write transaction opens without keeping every
+ * page's analytics in memory. Pages are read back in the order they were
+ * added; the analytics maps are stored in the {@link AnalyticsBlobCodec} form.
+ */
+public class AnalysisSpool implements Closeable {
+	private final Path path;
+	private DataOutputStream out;
+	private DataInputStream in;
+	private int size = 0;
+
+	public AnalysisSpool() throws IOException {
+		this.path = Files.createTempFile("editor-analysis", ".spool");
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+	}
+
+	public void add(PageAnalysis analysis) throws IOException {
+		out.writeInt(analysis.getPageNumber());
+		writeString(analysis.getPageContent());
+		writeString(analysis.getTransliteratedText());
+		byte[] blob = AnalyticsBlobCodec.encode(analysis);
+		out.writeInt(blob.length);
+		out.write(blob);
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the next page, starting from the first once adding is done, or
+	 * null after the last one.
+	 */
+	public PageAnalysis next() throws IOException {
+		if (in == null) {
+			out.close();
+			in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+		}
+		int pageNumber;
+		try {
+			pageNumber = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		String content = readString();
+		String transliteratedText = readString();
+		byte[] blob = new byte[in.readInt()];
+		in.readFully(blob);
+
+		PageAnalysis stored = AnalyticsBlobCodec.decode(blob, 0, pageNumber);
+		PageAnalysis analysis = new PageAnalysis(0, pageNumber, content);
+		analysis.setTransliteratedText(transliteratedText);
+		analysis.setPosTags(stored.getPosTags());
+		analysis.setLemmas(stored.getLemmas());
+		analysis.setRoots(stored.getRoots());
+		analysis.setSegments(stored.getSegments());
+		analysis.setStems(stored.getStems());
+		analysis.setPklScores(stored.getPklScores());
+		analysis.setPmiScores(stored.getPmiScores());
+		return analysis;
+	}
+
+	private void writeString(String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private String readString() throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (in != null) {
+				in.close();
+			} else {
+				out.close();
+			}
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+}
@@ -0,0 +1,301 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dto.PageAnalysis;
+
+/**
+ * Collects page and analytics rows across pages and tables and writes them
+ * as multi-row INSERT statements. Rows are flushed once the buffered row
+ * count or the estimated payload size reaches its limit, and always on
+ * {@link #flush()}. Tables are flushed in the order they were registered so
+ * that pages are written before the rows that reference them. Words of the
+ * analytics rows are replaced by their dictionary id at flush time.
+ */
+public class AnalyticsBatchWriter implements AutoCloseable {
+	private static final int MAX_PLACEHOLDERS = 65535;
+
+	private final Connection conn;
+	private final int maxRows;
+	private final long maxBytes;
+	private final boolean blobStorage;
+	private final boolean partitioned;
+	private final Map<String, TableBuffer> buffers = new LinkedHashMap<>();
+	private final Map<String, PreparedStatement> statements = new HashMap<>();
+	private int bufferedRows = 0;
+	private long bufferedBytes = 0;
+	private int statementCount = 0;
+
+	public AnalyticsBatchWriter(Connection conn) {
+		this(conn, EditorConfig.getInt("db.batch.maxRows", 1000), EditorConfig.getLong("db.batch.maxBytes", 4194304));
+	}
+
+	public AnalyticsBatchWriter(Connection conn, int maxRows, long maxBytes) {
+		this.conn = conn;
+		this.maxRows = Math.max(1, maxRows);
+		this.maxBytes = Math.max(1, maxBytes);
+		this.blobStorage = AnalyticsBlobCodec.isEnabled();
+		this.partitioned = AnalyticsTable.isPartitioned();
+
+		String pageColumns = partitioned ? "fileId, pageId" : "pageId";
+		register("pages", "pageId, fileId, pageNumber, pageContent, pageHash", false);
+		register("transliteratedpages", "pageId, transliteratedText", false);
+		for (AnalyticsTable table : AnalyticsTable.values()) {
+			register(table.getTableName(), pageColumns + ", wordId, " + table.getValueColumn(), true);
+		}
+		register("pageanalytics", pageColumns + ", version, analysis", false);
+	}
+
+	/**
+	 * Adds a table rows can be queued for. In word rows the wordId column
+	 * holds a word, replaced by its dictionary id when the rows are written.
+	 */
+	protected void register(String table, String columnList, boolean wordRows) {
+		buffers.put(table, new TableBuffer(table, columnList, wordRows));
+	}
+
+	/**
+	 * Every word the analytics rows of a page refer to, so callers can resolve
+	 * them before opening a transaction.
+	 */
+	public static Set<String> wordsOf(PageAnalysis analysis) {
+		Set<String> words = new HashSet<>();
+		words.addAll(analysis.getPosTags().keySet());
+		words.addAll(analysis.getLemmas().keySet());
+		words.addAll(analysis.getRoots().keySet());
+		words.addAll(analysis.getSegments().keySet());
+		words.addAll(analysis.getStems().keySet());
+		words.addAll(analysis.getPklScores().keySet());
+		words.addAll(analysis.getPmiScores().keySet());
+		return words;
+	}
+
+	public void addPage(int pageId, int fileId, int pageNumber, String content, String pageHash)
+			throws SQLException {
+		add("pages", pageId, fileId, pageNumber, content, pageHash);
+	}
+
+	public void addTransliteration(int pageId, String transliteratedText) throws SQLException {
+		add("transliteratedpages", pageId, transliteratedText);
+	}
+
+	public void addPosRows(int fileId, int pageId, Map<String, List<String>> posTags) throws SQLException {
+		for (Map.Entry<String, List<String>> entry : posTags.entrySet()) {
+			addPageRow(AnalyticsTable.POS.getTableName(), fileId, pageId, entry.getKey(),
+					String.join("|", entry.getValue()));
+		}
+	}
+
+	public void addWordRows(AnalyticsTable table, int fileId, int pageId, Map<String, String> rows)
+			throws SQLException {
+		for (Map.Entry<String, String> entry : rows.entrySet()) {
+			addPageRow(table.getTableName(), fileId, pageId, entry.getKey(), entry.getValue());
+		}
+	}
+
+	public void addScoreRows(AnalyticsTable table, int fileId, int pageId, Map<String, Double> rows)
+			throws SQLException {
+		for (Map.Entry<String, Double> entry : rows.entrySet()) {
+			addPageRow(table.getTableName(), fileId, pageId, entry.getKey(), entry.getValue());
+		}
+	}
+
+	// The fileId only goes into partitioned tables
+	private void addPageRow(String table, int fileId, int pageId, Object first, Object second) throws SQLException {
+		if (partitioned) {
+			add(table, fileId, pageId, first, second);
+		} else {
+			add(table, pageId, first, second);
+		}
+	}
+
+	/**
+	 * Queues the analytics of one page: a single pageanalytics row in blob
+	 * storage mode, otherwise rows in the seven analytics tables.
+	 */
+	public void addAnalytics(int fileId, int pageId, PageAnalysis analysis) throws SQLException {
+		if (blobStorage) {
+			addPageRow("pageanalytics", fileId, pageId, AnalyticsBlobCodec.VERSION, AnalyticsBlobCodec.encode(analysis));
+			return;
+		}
+		addPosRows(fileId, pageId, analysis.getPosTags());
+		addWordRows(AnalyticsTable.LEMMA, fileId, pageId, analysis.getLemmas());
+		addWordRows(AnalyticsTable.ROOT, fileId, pageId, analysis.getRoots());
+		addWordRows(AnalyticsTable.SEGMENT, fileId, pageId, analysis.getSegments());
+		addWordRows(AnalyticsTable.STEM, fileId, pageId, analysis.getStems());
+		addScoreRows(AnalyticsTable.PKL, fileId, pageId, analysis.getPklScores());
+		addScoreRows(AnalyticsTable.PMI, fileId, pageId, analysis.getPmiScores());
+	}
+
+	protected void add(String table, Object... values) throws SQLException {
+		TableBuffer buffer = buffers.get(table);
+		for (Object value : values) {
+			buffer.values.add(value);
+			if (value instanceof String) {
+				bufferedBytes += ((String) value).length() * 3L + 8;
+			} else if (value instanceof byte[]) {
+				bufferedBytes += ((byte[]) value).length + 8;
+			} else {
+				bufferedBytes += 8;
+			}
+		}
+		buffer.rows++;
+		bufferedRows++;
+		if (bufferedRows >= maxRows || bufferedBytes >= maxBytes) {
+			flush();
+		}
+	}
+
+	public void flush() throws SQLException {
+		Set<String> words = new HashSet<>();
+		for (TableBuffer buffer : buffers.values()) {
+			if (buffer.wordRows) {
+				for (int row = 0; row < buffer.rows; row++) {
+					words.add((String) buffer.values.get(row * buffer.columns + buffer.wordIndex));
+				}
+			}
+		}
+		Map<String, Integer> wordIds = words.isEmpty() ? new HashMap<String, Integer>()
+				: WordVocabulary.getInstance().resolve(words);
+
+		for (TableBuffer buffer : buffers.values()) {
+			if (buffer.wordRows) {
+				for (int row = 0; row < buffer.rows; row++) {
+					int index = row * buffer.columns + buffer.wordIndex;
+					buffer.values.set(index, wordIds.get((String) buffer.values.get(index)));
+				}
+			}
+			if (buffer.rows > 0) {
+				writeRows(buffer.table, buffer.columnList, buffer.columns, buffer.rows, buffer.values);
+			}
+			buffer.values.clear();
+			buffer.rows = 0;
+		}
+		bufferedRows = 0;
+		bufferedBytes = 0;
+	}
+
+	/**
+	 * Writes the buffered rows of one table; {@code values} holds them row
+	 * after row. Sends them as multi-row INSERT statements of the full chunk
+	 * size or a power of two, so each table only ever needs a few distinct
+	 * statements and they stay in the connection's statement cache.
+	 */
+	protected void writeRows(String table, String columnList, int columns, int rows, List<Object> values)
+			throws SQLException {
+		int rowsPerStatement = Math.max(1, Math.min(maxRows, MAX_PLACEHOLDERS / columns));
+		int offset = 0;
+		while (offset < rows) {
+			int left = rows - offset;
+			int chunk = left >= rowsPerStatement ? rowsPerStatement : Integer.highestOneBit(left);
+			PreparedStatement stmt = statementFor(table, columnList, columns, chunk);
+			int base = offset * columns;
+			for (int i = 0; i < chunk * columns; i++) {
+				setValue(stmt, i + 1, values.get(base + i));
+			}
+			stmt.executeUpdate();
+			statementCount++;
+			offset += chunk;
+		}
+	}
+
+	/**
+	 * Registered tables in the order they are written, with their column lists.
+	 */
+	protected Map<String, String> tables() {
+		Map<String, String> tables = new LinkedHashMap<>();
+		for (TableBuffer buffer : buffers.values()) {
+			tables.put(buffer.table, buffer.columnList);
+		}
+		return tables;
+	}
+
+	private PreparedStatement statementFor(String table, String columnList, int columns, int rows)
+			throws SQLException {
+		StringBuilder sql = new StringBuilder("INSERT INTO " + table + " (" + columnList + ") VALUES ");
+		StringBuilder row = new StringBuilder("(");
+		for (int c = 0; c < columns; c++) {
+			row.append(c == 0 ? "?" : ", ?");
+		}
+		row.append(")");
+		for (int r = 0; r < rows; r++) {
+			if (r > 0) {
+				sql.append(", ");
+			}
+			sql.append(row);
+		}
+		String key = sql.toString();
+		PreparedStatement stmt = statements.get(key);
+		if (stmt == null) {
+			stmt = conn.prepareStatement(key);
+			statements.put(key, stmt);
+		}
+		return stmt;
+	}
+
+	private void setValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+		if (value instanceof Integer) {
+			stmt.setInt(index, (Integer) value);
+		} else if (value instanceof Double) {
+			stmt.setDouble(index, (Double) value);
+		} else if (value instanceof byte[]) {
+			stmt.setBytes(index, (byte[]) value);
+		} else {
+			stmt.setString(index, (String) value);
+		}
+	}
+
+	/**
+	 * Number of INSERT statements sent so far, for logging round trips.
+	 */
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		SQLException failure = null;
+		for (PreparedStatement stmt : statements.values()) {
+			try {
+				stmt.close();
+			} catch (SQLException e) {
+				failure = e;
+			}
+		}
+		statements.clear();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private static final class TableBuffer {
+		private final String table;
+		private final String columnList;
+		private final int columns;
+		private final boolean wordRows;
+		private final int wordIndex;
+		private final List<Object> values = new ArrayList<>();
+		private int rows = 0;
+
+		TableBuffer(String table, String columnList, boolean wordRows) {
+			this.table = table;
+			this.columnList = columnList;
+			List<String> names = new ArrayList<>();
+			for (String column : columnList.split(",")) {
+				names.add(column.trim());
+			}
+			this.columns = names.size();
+			this.wordRows = wordRows;
+			this.wordIndex = names.indexOf("wordId");
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package dal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import dto.PageAnalysis;
+
+/**
+ * Binary form of a page's seven analytics maps, stored in one
+ * pageanalytics row when analytics.storage is set to blob.
+ *
+ * Layout (all integers are unsigned LEB128 varints):
+ * <pre>
+ * version
+ * string count, then per string: UTF-8 byte length, bytes
+ * POS:      entry count, then per entry: word, tag count, tags
+ * LEMMA, ROOT, SEGMENT, STEM:
+ *           entry count, then per entry: word, value
+ * PKL, PMI: entry count, then per entry: word, 8-byte IEEE double
+ * </pre>
+ * Words, tags and values are indexes into the string table. Values are
+ * stored as index + 1 so that 0 can stand for null.
+ */
+public class AnalyticsBlobCodec {
+	public static final int VERSION = 1;
+
+	private AnalyticsBlobCodec() {
+	}
+
+	public static boolean isEnabled() {
+		return "blob".equalsIgnoreCase(EditorConfig.getString("analytics.storage", "rows"));
+	}
+
+	public static byte[] encode(PageAnalysis analysis) {
+		StringTable strings = new StringTable();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		writeVarint(body, analysis.getPosTags().size());
+		for (Map.Entry<String, List<String>> entry : analysis.getPosTags().entrySet()) {
+			writeVarint(body, strings.indexOf(entry.getKey()));
+			writeVarint(body, entry.getValue().size());
+			for (String tag : entry.getValue()) {
+				writeVarint(body, strings.indexOf(tag));
+			}
+		}
+		writeWordMap(body, strings, analysis.getLemmas());
+		writeWordMap(body, strings, analysis.getRoots());
+		writeWordMap(body, strings, analysis.getSegments());
+		writeWordMap(body, strings, analysis.getStems());
+		writeScoreMap(body, strings, analysis.getPklScores());
+		writeScoreMap(body, strings, analysis.getPmiScores());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(body.size() + strings.byteSize() + 16);
+		writeVarint(out, VERSION);
+		writeVarint(out, strings.values.size());
+		for (String value : strings.values) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(out, bytes.length);
+			out.write(bytes, 0, bytes.length);
+		}
+		try {
+			body.writeTo(out);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+
+	public static PageAnalysis decode(byte[] blob, int pageId, int pageNumber) {
+		ByteBuffer in = ByteBuffer.wrap(blob);
+		int version = readVarint(in);
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported analytics blob version " + version);
+		}
+
+		int stringCount = readVarint(in);
+		List<String> strings = new ArrayList<>(stringCount);
+		for (int i = 0; i < stringCount; i++) {
+			byte[] bytes = new byte[readVarint(in)];
+			in.get(bytes);
+			strings.add(new String(bytes, StandardCharsets.UTF_8));
+		}
+
+		PageAnalysis analysis = new PageAnalysis(pageId, pageNumber, null);
+
+		int posCount = readVarint(in);
+		Map<String, List<String>> posTags = new HashMap<>();
+		for (int i = 0; i < posCount; i++) {
+			String word = strings.get(readVarint(in));
+			int tagCount = readVarint(in);
+			List<String> tags = new ArrayList<>(tagCount);
+			for (int t = 0; t < tagCount; t++) {
+				tags.add(strings.get(readVarint(in)));
+			}
+			posTags.put(word, tags);
+		}
+		analysis.setPosTags(posTags);
+		analysis.setLemmas(readWordMap(in, strings));
+		analysis.setRoots(readWordMap(in, strings));
+		analysis.setSegments(readWordMap(in, strings));
+		analysis.setStems(readWordMap(in, strings));
+		analysis.setPklScores(readScoreMap(in, strings));
+		analysis.setPmiScores(readScoreMap(in, strings));
+		return analysis;
+	}
+
+	private static void writeWordMap(ByteArrayOutputStream out, StringTable strings, Map<String, String> map) {
+		writeVarint(out, map.size());
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			writeVarint(out, strings.indexOf(entry.getKey()));
+			writeVarint(out, entry.getValue() == null ? 0 : strings.indexOf(entry.getValue()) + 1);
+		}
+	}
+
+	private static void writeScoreMap(ByteArrayOutputStream out, StringTable strings, Map<String, Double> map) {
+		writeVarint(out, map.size());
+		for (Map.Entry<String, Double> entry : map.entrySet()) {
+			writeVarint(out, strings.indexOf(entry.getKey()));
+			long bits = Double.doubleToLongBits(entry.getValue());
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				out.write((int) (bits >>> shift) & 0xFF);
+			}
+		}
+	}
+
+	private static Map<String, String> readWordMap(ByteBuffer in, List<String> strings) {
+		int count = readVarint(in);
+		Map<String, String> map = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			String word = strings.get(readVarint(in));
+			int value = readVarint(in);
+			map.put(word, value == 0 ? null : strings.get(value - 1));
+		}
+		return map;
+	}
+
+	private static Map<String, Double> readScoreMap(ByteBuffer in, List<String> strings) {
+		int count = readVarint(in);
+		Map<String, Double> map = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			String word = strings.get(readVarint(in));
+			map.put(word, in.getDouble());
+		}
+		return map;
+	}
+
+	static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	static int readVarint(ByteBuffer in) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static final class StringTable {
+		private final Map<String, Integer> indexes = new HashMap<>();
+		private final List<String> values = new ArrayList<>();
+		private int byteSize = 0;
+
+		int indexOf(String value) {
+			Integer index = indexes.get(value);
+			if (index == null) {
+				index = values.size();
+				indexes.put(value, index);
+				values.add(value);
+				byteSize += value.length() * 3 + 5;
+			}
+			return index;
+		}
+
+		int byteSize() {
+			return byteSize;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.EditorPO;
+
+/**
+ * The per-page analytics tables. Each one stores a word of the page together
+ * with one value column.
+ */
+public enum AnalyticsTable {
+	POS("pos", "pos", false),
+	LEMMA("lemmatization", "lemma", false),
+	ROOT("rootextraction", "root", false),
+	STEM("stemmation", "stem", false),
+	SEGMENT("wordsegementation", "segment", false),
+	PKL("pkl", "pklScore", true),
+	PMI("pmi", "pmiScore", true);
+
+	private final String tableName;
+	private final String valueColumn;
+	private final boolean score;
+
+	AnalyticsTable(String tableName, String valueColumn, boolean score) {
+		this.tableName = tableName;
+		this.valueColumn = valueColumn;
+		this.score = score;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public String getValueColumn() {
+		return valueColumn;
+	}
+
+	public boolean isScore() {
+		return score;
+	}
+
+	private static Boolean partitioned;
+
+	/**
+	 * Whether the analytics tables, pageanalytics included, carry the fileId
+	 * of each row's page and are partitioned by it, as in the shipped schema.
+	 * Partitioned tables have no foreign keys, so their rows are deleted
+	 * explicitly with the file or page they belong to. Unless
+	 * db.analytics.partitioned says true or false, this is read once from
+	 * information_schema; a database that cannot be checked counts as not
+	 * partitioned.
+	 */
+	public static synchronized boolean isPartitioned() {
+		if (partitioned == null) {
+			String setting = EditorConfig.getString("db.analytics.partitioned", "auto");
+			partitioned = "auto".equalsIgnoreCase(setting) ? detectPartitioning() : Boolean.parseBoolean(setting);
+		}
+		return partitioned;
+	}
+
+	private static boolean detectPartitioning() {
+		StringBuilder names = new StringBuilder("'pageanalytics'");
+		for (AnalyticsTable table : values()) {
+			names.append(", '").append(table.getTableName()).append("'");
+		}
+		String query = "SELECT COUNT(DISTINCT TABLE_NAME) FROM information_schema.PARTITIONS "
+				+ "WHERE TABLE_SCHEMA = DATABASE() AND PARTITION_NAME IS NOT NULL AND TABLE_NAME IN (" + names + ")";
+		Logger logger = LogManager.getLogger(EditorPO.class);
+		try (Connection conn = DatabaseConnection.getInstance().getConnection();
+				Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery(query)) {
+			rs.next();
+			int count = rs.getInt(1);
+			if (count > 0 && count < values().length + 1) {
+				logger.error("Only " + count + " analytics tables are partitioned; finish the partitioning section of "
+						+ "EditorDBMigration.sql. Writing them as unpartitioned tables until then.");
+			}
+			return count == values().length + 1;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			logger.error(e.getMessage());
+			return false;
+		}
+	}
+}
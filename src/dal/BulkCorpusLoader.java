@@ -0,0 +1,50 @@
+package dal;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.EditorPO;
+
+/**
+ * Seeds an empty or existing database with every .txt and .md5 file of a
+ * directory through {@link EditorDBDAO#bulkLoadFilesInDB(List)}. The server
+ * must allow local infile (local_infile = ON), and nothing else should import
+ * while it runs.
+ *
+ * Run with the application's classpath and config.properties:
+ * java dal.BulkCorpusLoader <directory>
+ */
+public class BulkCorpusLoader {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+
+	public static void main(String[] args) {
+		if (args.length != 1 || !new File(args[0]).isDirectory()) {
+			System.err.println("Usage: java dal.BulkCorpusLoader <directory>");
+			System.exit(2);
+		}
+
+		DatabaseConnection database = DatabaseConnection.getInstance();
+		boolean loaded = false;
+		try {
+			List<File> files = new ArrayList<>();
+			File[] entries = new File(args[0]).listFiles();
+			Arrays.sort(entries);
+			for (File entry : entries) {
+				String name = entry.getName().toLowerCase();
+				if (entry.isFile() && (name.endsWith(".txt") || name.endsWith(".md5"))) {
+					files.add(entry);
+				}
+			}
+			LOGGER.info("Bulk loading " + files.size() + " files from " + args[0]);
+			loaded = new EditorDBDAO().bulkLoadFilesInDB(files) >= 0;
+		} finally {
+			database.closeConnection();
+		}
+		System.exit(loaded ? 0 : 1);
+	}
+}
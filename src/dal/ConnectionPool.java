@@ -0,0 +1,671 @@
+package dal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.EditorPO;
+
+/**
+ * Bounded pool of JDBC connections. Callers borrow a connection with
+ * {@link #borrow()} and give it back by calling {@code close()} on it, so the
+ * usual try-with-resources block is all a DAO method needs.
+ *
+ * Each pooled connection keeps up to statementCacheSize prepared statements,
+ * least recently used first out. Preparing the same SQL again on a later
+ * borrow hands back the cached statement, and closing it returns it to the
+ * cache. Statements still open when the connection is given back are closed
+ * by the pool. Parameters, warnings, fetch size, row limit and query timeout
+ * are reset before a cached statement is handed out again.
+ *
+ * A connection given back is rolled back if a transaction is open, and its
+ * isolation level, read-only flag and catalog are put back to what the
+ * driver opened it with; one that cannot be reset is discarded.
+ */
+public class ConnectionPool {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+
+	public interface ConnectionFactory {
+		Connection create() throws SQLException;
+	}
+
+	private final ConnectionFactory factory;
+	private final int maxSize;
+	private final int minIdle;
+	private final long connectionTimeoutMs;
+	private final int validationTimeoutSec;
+	private final long idleValidationMs;
+	private final long leakDetectionThresholdMs;
+	private final long maxLifetimeMs;
+	private final int statementCacheSize;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+	private final Deque<PooledConnection> idle = new ArrayDeque<>();
+	private final Map<PooledConnection, Boolean> borrowed = new ConcurrentHashMap<>();
+	private int totalConnections = 0;
+	private int waitingThreads = 0;
+	private boolean closed = false;
+
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong leakCount = new AtomicLong();
+	private final AtomicLong validationFailures = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong statementCacheHits = new AtomicLong();
+	private final AtomicLong statementCacheMisses = new AtomicLong();
+
+	private Thread housekeeper;
+
+	public ConnectionPool(ConnectionFactory factory, int maxSize, int minIdle, long connectionTimeoutMs,
+			int validationTimeoutSec, long idleValidationMs, long leakDetectionThresholdMs, long maxLifetimeMs) {
+		this(factory, maxSize, minIdle, connectionTimeoutMs, validationTimeoutSec, idleValidationMs,
+				leakDetectionThresholdMs, maxLifetimeMs, 0);
+	}
+
+	public ConnectionPool(ConnectionFactory factory, int maxSize, int minIdle, long connectionTimeoutMs,
+			int validationTimeoutSec, long idleValidationMs, long leakDetectionThresholdMs, long maxLifetimeMs,
+			int statementCacheSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Pool size must be at least 1");
+		}
+		this.factory = factory;
+		this.maxSize = maxSize;
+		this.minIdle = Math.min(Math.max(minIdle, 0), maxSize);
+		this.connectionTimeoutMs = connectionTimeoutMs;
+		this.validationTimeoutSec = validationTimeoutSec;
+		this.idleValidationMs = idleValidationMs;
+		this.leakDetectionThresholdMs = leakDetectionThresholdMs;
+		this.maxLifetimeMs = maxLifetimeMs;
+		this.statementCacheSize = Math.max(0, statementCacheSize);
+	}
+
+	public Connection borrow() throws SQLException {
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(connectionTimeoutMs);
+		while (true) {
+			PooledConnection candidate = null;
+			boolean create = false;
+			lock.lock();
+			try {
+				while (true) {
+					if (closed) {
+						throw new SQLException("Connection pool has been shut down");
+					}
+					if (!idle.isEmpty()) {
+						candidate = idle.pollFirst();
+						break;
+					}
+					if (totalConnections < maxSize) {
+						totalConnections++;
+						create = true;
+						break;
+					}
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						timeoutCount.incrementAndGet();
+						throw new SQLException("Timed out after " + connectionTimeoutMs
+								+ " ms waiting for a pooled connection (" + getStats() + ")");
+					}
+					waitingThreads++;
+					try {
+						available.awaitNanos(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for a pooled connection", e);
+					} finally {
+						waitingThreads--;
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+
+			if (create) {
+				try {
+					candidate = new PooledConnection(factory.create());
+				} catch (SQLException | RuntimeException e) {
+					discardSlot();
+					throw e;
+				}
+			} else if (!isUsable(candidate)) {
+				destroy(candidate);
+				continue;
+			}
+
+			totalWaitNanos.addAndGet(System.nanoTime() - start);
+			borrowCount.incrementAndGet();
+			borrowed.put(candidate, Boolean.TRUE);
+			return candidate.checkOut();
+		}
+	}
+
+	private boolean isUsable(PooledConnection pooled) {
+		long now = System.currentTimeMillis();
+		if (maxLifetimeMs > 0 && now - pooled.createdAt > maxLifetimeMs) {
+			return false;
+		}
+		if (now - pooled.lastReturnedAt < idleValidationMs) {
+			return true;
+		}
+		try {
+			if (pooled.physical.isValid(validationTimeoutSec)) {
+				return true;
+			}
+		} catch (SQLException e) {
+			LOGGER.warn("Pooled connection validation failed: " + e.getMessage());
+		}
+		validationFailures.incrementAndGet();
+		return false;
+	}
+
+	private void giveBack(PooledConnection pooled) {
+		borrowed.remove(pooled);
+		boolean healthy = true;
+		try {
+			if (pooled.physical.isClosed()) {
+				healthy = false;
+			} else {
+				if (!pooled.physical.getAutoCommit()) {
+					pooled.physical.rollback();
+					pooled.physical.setAutoCommit(true);
+				}
+				pooled.restoreDefaults();
+				pooled.physical.clearWarnings();
+			}
+		} catch (SQLException e) {
+			LOGGER.warn("Discarding pooled connection that failed to reset: " + e.getMessage());
+			healthy = false;
+		}
+
+		if (!healthy) {
+			destroy(pooled);
+			return;
+		}
+		lock.lock();
+		try {
+			if (closed) {
+				totalConnections--;
+				closeQuietly(pooled);
+				return;
+			}
+			pooled.lastReturnedAt = System.currentTimeMillis();
+			idle.addFirst(pooled);
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void destroy(PooledConnection pooled) {
+		closeQuietly(pooled);
+		discardSlot();
+	}
+
+	private void discardSlot() {
+		lock.lock();
+		try {
+			totalConnections--;
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void closeQuietly(PooledConnection pooled) {
+		try {
+			pooled.physical.close();
+		} catch (SQLException e) {
+			LOGGER.error(e.getMessage());
+		}
+	}
+
+	public void start() {
+		fillToMinIdle();
+		housekeeper = new Thread(() -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				try {
+					Thread.sleep(Math.max(1000, Math.min(leakDetectionThresholdMs, 30000)));
+				} catch (InterruptedException e) {
+					return;
+				}
+				detectLeaks();
+				fillToMinIdle();
+			}
+		}, "connection-pool-housekeeper");
+		housekeeper.setDaemon(true);
+		housekeeper.start();
+	}
+
+	private void fillToMinIdle() {
+		while (true) {
+			lock.lock();
+			try {
+				if (closed || idle.size() >= minIdle || totalConnections >= maxSize) {
+					return;
+				}
+				totalConnections++;
+			} finally {
+				lock.unlock();
+			}
+			try {
+				PooledConnection pooled = new PooledConnection(factory.create());
+				lock.lock();
+				try {
+					idle.addLast(pooled);
+					available.signal();
+				} finally {
+					lock.unlock();
+				}
+			} catch (SQLException e) {
+				discardSlot();
+				LOGGER.error("Could not open idle connection: " + e.getMessage());
+				return;
+			}
+		}
+	}
+
+	void detectLeaks() {
+		if (leakDetectionThresholdMs <= 0) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		for (PooledConnection pooled : borrowed.keySet()) {
+			if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionThresholdMs) {
+				pooled.leakReported = true;
+				leakCount.incrementAndGet();
+				LOGGER.warn("Possible connection leak: connection held by " + pooled.borrower + " for "
+						+ (now - pooled.borrowedAt) + " ms", pooled.borrowSite);
+			}
+		}
+	}
+
+	public void shutdown() {
+		lock.lock();
+		try {
+			closed = true;
+			while (!idle.isEmpty()) {
+				closeQuietly(idle.pollFirst());
+				totalConnections--;
+			}
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		if (housekeeper != null) {
+			housekeeper.interrupt();
+		}
+	}
+
+	public boolean isShutdown() {
+		lock.lock();
+		try {
+			return closed;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getActiveConnections() {
+		return borrowed.size();
+	}
+
+	public int getIdleConnections() {
+		lock.lock();
+		try {
+			return idle.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getTotalConnections() {
+		lock.lock();
+		try {
+			return totalConnections;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getThreadsAwaitingConnection() {
+		lock.lock();
+		try {
+			return waitingThreads;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getBorrowCount() {
+		return borrowCount.get();
+	}
+
+	public long getTimeoutCount() {
+		return timeoutCount.get();
+	}
+
+	public long getLeakCount() {
+		return leakCount.get();
+	}
+
+	public long getValidationFailures() {
+		return validationFailures.get();
+	}
+
+	public long getStatementCacheHits() {
+		return statementCacheHits.get();
+	}
+
+	public long getStatementCacheMisses() {
+		return statementCacheMisses.get();
+	}
+
+	public double getAverageWaitMillis() {
+		long borrows = borrowCount.get();
+		return borrows == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / borrows;
+	}
+
+	public String getStats() {
+		return "total=" + getTotalConnections() + ", active=" + getActiveConnections() + ", idle="
+				+ getIdleConnections() + ", waiting=" + getThreadsAwaitingConnection() + ", borrowed="
+				+ getBorrowCount() + ", timeouts=" + getTimeoutCount() + ", leaks=" + getLeakCount()
+				+ ", statementCacheHits=" + getStatementCacheHits();
+	}
+
+	private final class PooledConnection {
+		private final Connection physical;
+		private final long createdAt = System.currentTimeMillis();
+		private long lastReturnedAt = createdAt;
+		private volatile long borrowedAt;
+		private volatile String borrower;
+		private volatile Throwable borrowSite;
+		private volatile boolean leakReported;
+		private final int defaultIsolation;
+		private final boolean defaultReadOnly;
+		private final String defaultCatalog;
+		// Only touched by the borrower holding the connection
+		private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+		PooledConnection(Connection physical) throws SQLException {
+			this.physical = physical;
+			try {
+				this.defaultIsolation = physical.getTransactionIsolation();
+				this.defaultReadOnly = physical.isReadOnly();
+				this.defaultCatalog = physical.getCatalog();
+			} catch (SQLException | RuntimeException e) {
+				try {
+					physical.close();
+				} catch (SQLException closeFailure) {
+					LOGGER.error(closeFailure.getMessage());
+				}
+				throw e;
+			}
+		}
+
+		/**
+		 * Puts back any session setting a borrower changed. Called with
+		 * auto-commit on, since some drivers refuse isolation changes inside a
+		 * transaction.
+		 */
+		void restoreDefaults() throws SQLException {
+			if (physical.getTransactionIsolation() != defaultIsolation) {
+				physical.setTransactionIsolation(defaultIsolation);
+			}
+			if (physical.isReadOnly() != defaultReadOnly) {
+				physical.setReadOnly(defaultReadOnly);
+			}
+			if (defaultCatalog != null && !Objects.equals(physical.getCatalog(), defaultCatalog)) {
+				physical.setCatalog(defaultCatalog);
+			}
+		}
+
+		/**
+		 * Returns the cached statement for these prepareStatement arguments, or
+		 * prepares and caches it. A statement already handed out in this borrow
+		 * is prepared again, uncached, for the second caller.
+		 */
+		PreparedStatement prepare(Method method, Object[] args, Lease lease, Connection handle) throws Throwable {
+			String key = Arrays.deepToString(args);
+			CachedStatement cached = statements.get(key);
+			if (cached != null && !cached.inUse) {
+				statementCacheHits.incrementAndGet();
+			} else {
+				statementCacheMisses.incrementAndGet();
+				PreparedStatement prepared = (PreparedStatement) invokeOn(physical, method, args);
+				if (cached != null) {
+					lease.opened.add(prepared);
+					return prepared;
+				}
+				cached = new CachedStatement(key, prepared);
+				statements.put(key, cached);
+				evictStatements();
+			}
+			cached.inUse = true;
+			StatementHandle statementHandle = new StatementHandle(this, cached, handle);
+			lease.handles.add(statementHandle);
+			return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, statementHandle);
+		}
+
+		void release(CachedStatement cached) {
+			cached.inUse = false;
+			try {
+				cached.reset();
+				if (statements.get(cached.key) == cached) {
+					return;
+				}
+			} catch (SQLException e) {
+				LOGGER.warn("Discarding cached statement that failed to reset: " + e.getMessage());
+				statements.remove(cached.key);
+			}
+			closeStatement(cached.physical);
+		}
+
+		private void evictStatements() {
+			Iterator<CachedStatement> eldest = statements.values().iterator();
+			while (statements.size() > statementCacheSize && eldest.hasNext()) {
+				CachedStatement cached = eldest.next();
+				if (!cached.inUse) {
+					eldest.remove();
+					closeStatement(cached.physical);
+				}
+			}
+		}
+
+		Connection checkOut() {
+			borrowedAt = System.currentTimeMillis();
+			borrower = Thread.currentThread().getName();
+			borrowSite = leakDetectionThresholdMs > 0 ? new Throwable("Connection borrowed here") : null;
+			leakReported = false;
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new Lease(this));
+		}
+	}
+
+	private static final class CachedStatement {
+		private final String key;
+		private final PreparedStatement physical;
+		// Settings as prepared, restored before the next borrower gets the statement
+		private final int fetchSize;
+		private final int maxRows;
+		private final int queryTimeout;
+		private boolean inUse;
+
+		CachedStatement(String key, PreparedStatement physical) throws SQLException {
+			this.key = key;
+			this.physical = physical;
+			this.fetchSize = physical.getFetchSize();
+			this.maxRows = physical.getMaxRows();
+			this.queryTimeout = physical.getQueryTimeout();
+		}
+
+		void reset() throws SQLException {
+			physical.clearParameters();
+			physical.clearWarnings();
+			if (physical.getFetchSize() != fetchSize) {
+				physical.setFetchSize(fetchSize);
+			}
+			if (physical.getMaxRows() != maxRows) {
+				physical.setMaxRows(maxRows);
+			}
+			if (physical.getQueryTimeout() != queryTimeout) {
+				physical.setQueryTimeout(queryTimeout);
+			}
+		}
+	}
+
+	/**
+	 * A cached statement as handed to one caller. Closing it puts the
+	 * statement back in the cache of its connection.
+	 */
+	private static final class StatementHandle implements InvocationHandler {
+		private final PooledConnection pooled;
+		private final CachedStatement cached;
+		private final Connection connection;
+		private boolean closed = false;
+
+		StatementHandle(PooledConnection pooled, CachedStatement cached, Connection connection) {
+			this.pooled = pooled;
+			this.cached = cached;
+			this.connection = connection;
+		}
+
+		void close() {
+			if (!closed) {
+				closed = true;
+				pooled.release(cached);
+			}
+		}
+
+		@Override
+		public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ("close".equals(name)) {
+				close();
+				return null;
+			}
+			if ("isClosed".equals(name)) {
+				return closed || cached.physical.isClosed();
+			}
+			if ("getConnection".equals(name)) {
+				return connection;
+			}
+			if ("equals".equals(name)) {
+				return target == args[0];
+			}
+			if ("hashCode".equals(name)) {
+				return System.identityHashCode(target);
+			}
+			if ("toString".equals(name)) {
+				return "Cached[" + cached.physical + "]";
+			}
+			if (closed) {
+				throw new SQLException("Statement has already been closed");
+			}
+			return invokeOn(cached.physical, method, args);
+		}
+	}
+
+	private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static void closeStatement(Statement stmt) {
+		try {
+			stmt.close();
+		} catch (SQLException e) {
+			LOGGER.error(e.getMessage());
+		}
+	}
+
+	/**
+	 * One borrow of a pooled connection. A fresh lease is handed out on every
+	 * borrow so that a stale reference kept after close() cannot reach the
+	 * connection once somebody else has borrowed it.
+	 */
+	private final class Lease implements InvocationHandler {
+		private final PooledConnection pooled;
+		private volatile boolean released = false;
+		private final List<StatementHandle> handles = new ArrayList<>();
+		private final List<Statement> opened = new ArrayList<>();
+
+		Lease(PooledConnection pooled) {
+			this.pooled = pooled;
+		}
+
+		@Override
+		public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ("close".equals(name)) {
+				if (!released) {
+					released = true;
+					closeStatements();
+					giveBack(pooled);
+				}
+				return null;
+			}
+			if ("isClosed".equals(name)) {
+				return released || pooled.physical.isClosed();
+			}
+			if ("equals".equals(name)) {
+				return target == args[0];
+			}
+			if ("hashCode".equals(name)) {
+				return System.identityHashCode(target);
+			}
+			if ("toString".equals(name)) {
+				return "Pooled[" + pooled.physical + "]";
+			}
+			if (released) {
+				throw new SQLException("Connection has already been returned to the pool");
+			}
+			if ("prepareStatement".equals(name) && statementCacheSize > 0) {
+				return pooled.prepare(method, args, this, (Connection) target);
+			}
+			Object result = invokeOn(pooled.physical, method, args);
+			if (result instanceof Statement) {
+				opened.add((Statement) result);
+			}
+			return result;
+		}
+
+		// Statements the borrower left open would otherwise leak with the connection
+		private void closeStatements() {
+			for (StatementHandle handle : handles) {
+				handle.close();
+			}
+			handles.clear();
+			for (Statement stmt : opened) {
+				closeStatement(stmt);
+			}
+			opened.clear();
+		}
+	}
+}
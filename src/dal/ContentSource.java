@@ -0,0 +1,17 @@
+package dal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Text that can be read more than once without being held in memory. Large
+ * imports read their source once to hash it and once more to store it.
+ */
+public interface ContentSource {
+	Reader open() throws IOException;
+
+	static ContentSource of(String content) {
+		return () -> new StringReader(content);
+	}
+}
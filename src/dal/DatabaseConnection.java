@@ -3,37 +3,25 @@ package dal;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import pl.EditorPO;
 
-import java.io.FileInputStream;
-import java.io.IOException;
-
 public class DatabaseConnection {
     private static DatabaseConnection INSTANCE;
-    private Connection connection;
+    private volatile ConnectionPool pool;
     private String url;
     private String username;
     private String password;
     final Logger LOGGER = LogManager.getLogger(EditorPO.class);
 
     private DatabaseConnection() {
-        try {
-            FileInputStream propertiesInput = new FileInputStream("config.properties");
-            Properties properties = new Properties();
-            properties.load(propertiesInput);
-            url = properties.getProperty("db.url");
-            username = properties.getProperty("db.username");
-            password = properties.getProperty("db.password");
-            connection = DriverManager.getConnection(url, username, password);
-        } catch (IOException | SQLException e) {
-            e.printStackTrace();
-            LOGGER.error(e.getMessage());
-        }
+        url = EditorConfig.getString("db.url", null);
+        username = EditorConfig.getString("db.username", null);
+        password = EditorConfig.getString("db.password", null);
+        pool = createPool();
     }
 
     public static synchronized DatabaseConnection getInstance() {
@@ -43,18 +31,52 @@ public class DatabaseConnection {
         return INSTANCE;
     }
 
-    public Connection getConnection() {
-        return connection;
+    private ConnectionPool createPool() {
+        ConnectionPool newPool = new ConnectionPool(() -> DriverManager.getConnection(url, username, password),
+                EditorConfig.getInt("db.pool.maxSize", 10),
+                EditorConfig.getInt("db.pool.minIdle", 2),
+                EditorConfig.getLong("db.pool.connectionTimeoutMs", 30000),
+                EditorConfig.getInt("db.pool.validationTimeoutSec", 5),
+                EditorConfig.getLong("db.pool.idleValidationMs", 30000),
+                EditorConfig.getLong("db.pool.leakDetectionThresholdMs", 60000),
+                EditorConfig.getLong("db.pool.maxLifetimeMs", 1800000),
+                EditorConfig.getInt("db.pool.statementCacheSize", 200));
+        newPool.start();
+        return newPool;
     }
 
-    public void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-                LOGGER.error(e.getMessage());
+    /**
+     * Borrows a connection from the pool. Closing the returned connection hands
+     * it back to the pool instead of closing the socket.
+     */
+    public Connection getConnection() throws SQLException {
+        ConnectionPool current = pool;
+        if (current.isShutdown()) {
+            synchronized (this) {
+                if (pool.isShutdown()) {
+                    pool = createPool();
+                }
+                current = pool;
             }
         }
+        return current.borrow();
+    }
+
+    /**
+     * Opens a connection outside the pool that may send local files with LOAD
+     * DATA LOCAL INFILE. The caller closes it.
+     */
+    public Connection openBulkConnection() throws SQLException {
+        String bulkUrl = url + (url.contains("?") ? "&" : "?") + "allowLocalInfile=true";
+        return DriverManager.getConnection(bulkUrl, username, password);
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    public void closeConnection() {
+        pool.shutdown();
+        LOGGER.info("Connection pool shut down: " + pool.getStats());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,313 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.EditorPO;
+
+/**
+ * Persisted term/document-frequency index used for TF-IDF. file_terms holds
+ * the distinct terms of every file and term_df the number of files containing
+ * each term; both are maintained on the caller's connection so they commit
+ * together with the file change. Terms are always touched in sorted order to
+ * keep row locks on term_df acquired in the same order by every writer.
+ */
+public class DocumentFrequencyIndex {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+	private static DocumentFrequencyIndex INSTANCE;
+
+	private static final int MAX_TERM_LENGTH = 255;
+	private static final int CHUNK_SIZE = 500;
+
+	private volatile boolean backfilled = false;
+
+	private DocumentFrequencyIndex() {
+	}
+
+	public static synchronized DocumentFrequencyIndex getInstance() {
+		if (INSTANCE == null) {
+			INSTANCE = new DocumentFrequencyIndex();
+		}
+		return INSTANCE;
+	}
+
+	public static Set<String> termsOf(String content) {
+		return termsOf(TFIDFCalculator.uniqueTerms(content));
+	}
+
+	public static Set<String> termsOf(Collection<String> uniqueTerms) {
+		Set<String> terms = new TreeSet<>();
+		for (String term : uniqueTerms) {
+			if (term.length() <= MAX_TERM_LENGTH) {
+				terms.add(term);
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * TF-IDF of {@code content} against every other file in the index. Pass the
+	 * file's own id when it is already indexed so it is left out of the corpus,
+	 * or 0 for a file that has not been added yet.
+	 */
+	public double tfidf(Connection conn, int fileId, String content) throws SQLException {
+		return tfidf(conn, fileId, TFIDFCalculator.termCounts(content));
+	}
+
+	/**
+	 * TF-IDF of a document known only by the number of times each of its terms
+	 * occurs.
+	 */
+	public double tfidf(Connection conn, int fileId, Map<String, Integer> termCounts) throws SQLException {
+		Set<String> terms = termsOf(termCounts.keySet());
+		Map<String, Integer> frequencies = documentFrequencies(conn, terms);
+		int totalDocs = indexedDocumentCount(conn);
+
+		if (fileId > 0) {
+			Set<String> ownTerms = termsOfFile(conn, fileId);
+			if (!ownTerms.isEmpty()) {
+				totalDocs--;
+				for (String term : ownTerms) {
+					frequencies.computeIfPresent(term, (key, df) -> df - 1);
+				}
+			}
+		}
+
+		double score = TFIDFCalculator.calculateDocumentTfIdf(termCounts, frequencies, totalDocs);
+		return (Double.isNaN(score) || Double.isInfinite(score)) ? 0.0 : score;
+	}
+
+	public void addDocument(Connection conn, int fileId, Set<String> terms) throws SQLException {
+		insertTerms(conn, fileId, terms);
+		incrementTerms(conn, terms);
+	}
+
+	/**
+	 * Brings the index in line with the new content of a file, touching only
+	 * the terms that appeared or disappeared.
+	 */
+	public void replaceDocument(Connection conn, int fileId, Set<String> terms) throws SQLException {
+		Set<String> previous = termsOfFile(conn, fileId);
+
+		Set<String> added = new TreeSet<>(terms);
+		added.removeAll(previous);
+		Set<String> removed = new TreeSet<>(previous);
+		removed.removeAll(terms);
+
+		deleteTerms(conn, fileId, removed);
+		decrementTerms(conn, removed);
+		insertTerms(conn, fileId, added);
+		incrementTerms(conn, added);
+	}
+
+	/**
+	 * Indexes a new file with the same terms as an already indexed one.
+	 */
+	public void copyDocument(Connection conn, int sourceFileId, int fileId) throws SQLException {
+		try (PreparedStatement stmt = conn
+				.prepareStatement("INSERT INTO file_terms (fileId, term) SELECT ?, term FROM file_terms WHERE fileId = ?")) {
+			stmt.setInt(1, fileId);
+			stmt.setInt(2, sourceFileId);
+			stmt.executeUpdate();
+		}
+		try (PreparedStatement stmt = conn.prepareStatement(
+				"UPDATE term_df t JOIN file_terms f ON f.term = t.term SET t.df = t.df + 1 WHERE f.fileId = ?")) {
+			stmt.setInt(1, fileId);
+			stmt.executeUpdate();
+		}
+	}
+
+	/**
+	 * Drops a file from the index. Must run before the files row is deleted,
+	 * since the cascade would otherwise remove file_terms first.
+	 */
+	public void removeDocument(Connection conn, int fileId) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(
+				"UPDATE term_df t JOIN file_terms f ON f.term = t.term SET t.df = t.df - 1 WHERE f.fileId = ?")) {
+			stmt.setInt(1, fileId);
+			stmt.executeUpdate();
+		}
+		try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM file_terms WHERE fileId = ?")) {
+			stmt.setInt(1, fileId);
+			stmt.executeUpdate();
+		}
+	}
+
+	private Map<String, Integer> documentFrequencies(Connection conn, Set<String> terms) throws SQLException {
+		Map<String, Integer> frequencies = new HashMap<>();
+		for (List<String> chunk : chunks(terms)) {
+			try (PreparedStatement stmt = conn
+					.prepareStatement("SELECT term, df FROM term_df WHERE term IN (" + placeholders(chunk.size()) + ")")) {
+				bind(stmt, 1, chunk);
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						frequencies.put(rs.getString("term"), rs.getInt("df"));
+					}
+				}
+			}
+		}
+		return frequencies;
+	}
+
+	private int indexedDocumentCount(Connection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM files WHERE isDeleted = 0")) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	private Set<String> termsOfFile(Connection conn, int fileId) throws SQLException {
+		Set<String> terms = new TreeSet<>();
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT term FROM file_terms WHERE fileId = ?")) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					terms.add(rs.getString("term"));
+				}
+			}
+		}
+		return terms;
+	}
+
+	private void insertTerms(Connection conn, int fileId, Set<String> terms) throws SQLException {
+		for (List<String> chunk : chunks(terms)) {
+			StringBuilder sql = new StringBuilder("INSERT INTO file_terms (fileId, term) VALUES ");
+			for (int i = 0; i < chunk.size(); i++) {
+				sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+			}
+			try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+				int index = 1;
+				for (String term : chunk) {
+					stmt.setInt(index++, fileId);
+					stmt.setString(index++, term);
+				}
+				stmt.executeUpdate();
+			}
+		}
+	}
+
+	private void deleteTerms(Connection conn, int fileId, Set<String> terms) throws SQLException {
+		for (List<String> chunk : chunks(terms)) {
+			try (PreparedStatement stmt = conn.prepareStatement(
+					"DELETE FROM file_terms WHERE fileId = ? AND term IN (" + placeholders(chunk.size()) + ")")) {
+				stmt.setInt(1, fileId);
+				bind(stmt, 2, chunk);
+				stmt.executeUpdate();
+			}
+		}
+	}
+
+	private void incrementTerms(Connection conn, Set<String> terms) throws SQLException {
+		for (List<String> chunk : chunks(terms)) {
+			StringBuilder sql = new StringBuilder("INSERT INTO term_df (term, df) VALUES ");
+			for (int i = 0; i < chunk.size(); i++) {
+				sql.append(i == 0 ? "(?, 1)" : ", (?, 1)");
+			}
+			sql.append(" ON DUPLICATE KEY UPDATE df = df + 1");
+			try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+				bind(stmt, 1, chunk);
+				stmt.executeUpdate();
+			}
+		}
+	}
+
+	private void decrementTerms(Connection conn, Set<String> terms) throws SQLException {
+		for (List<String> chunk : chunks(terms)) {
+			try (PreparedStatement stmt = conn.prepareStatement(
+					"UPDATE term_df SET df = df - 1 WHERE term IN (" + placeholders(chunk.size()) + ")")) {
+				bind(stmt, 1, chunk);
+				stmt.executeUpdate();
+			}
+		}
+	}
+
+	/**
+	 * Indexes files that existed before the index did, on a connection of its
+	 * own. Call it before opening a write transaction; it only does work the
+	 * first time in a process.
+	 */
+	public void ensureBackfilled() throws SQLException {
+		if (backfilled) {
+			return;
+		}
+		synchronized (this) {
+			if (backfilled) {
+				return;
+			}
+			backfill();
+			backfilled = true;
+		}
+	}
+
+	private void backfill() throws SQLException {
+		try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+			Map<Integer, String> missing = new HashMap<>();
+			String query = "SELECT f.fileId, GROUP_CONCAT(p.pageContent ORDER BY p.pageNumber SEPARATOR '') AS fileContent "
+					+ "FROM files f JOIN pages p ON f.fileId = p.fileId "
+					+ "WHERE f.isDeleted = 0 AND NOT EXISTS (SELECT 1 FROM file_terms t WHERE t.fileId = f.fileId) "
+					+ "GROUP BY f.fileId";
+			try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+				while (rs.next()) {
+					missing.put(rs.getInt("fileId"), rs.getString("fileContent"));
+				}
+			}
+			for (Map.Entry<Integer, String> entry : missing.entrySet()) {
+				conn.setAutoCommit(false);
+				try {
+					addDocument(conn, entry.getKey(), termsOf(entry.getValue()));
+					conn.commit();
+				} catch (SQLException e) {
+					conn.rollback();
+					throw e;
+				}
+			}
+			if (!missing.isEmpty()) {
+				LOGGER.info("Indexed " + missing.size() + " existing files for TF-IDF");
+			}
+		}
+	}
+
+	private static List<List<String>> chunks(Collection<String> terms) {
+		List<List<String>> chunks = new ArrayList<>();
+		List<String> current = new ArrayList<>();
+		for (String term : terms) {
+			current.add(term);
+			if (current.size() == CHUNK_SIZE) {
+				chunks.add(current);
+				current = new ArrayList<>();
+			}
+		}
+		if (!current.isEmpty()) {
+			chunks.add(current);
+		}
+		return chunks;
+	}
+
+	private static String placeholders(int count) {
+		StringBuilder sql = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sql.append(i == 0 ? "?" : ", ?");
+		}
+		return sql.toString();
+	}
+
+	private static void bind(PreparedStatement stmt, int firstIndex, List<String> values) throws SQLException {
+		int index = firstIndex;
+		for (String value : values) {
+			stmt.setString(index++, value);
+		}
+	}
+}
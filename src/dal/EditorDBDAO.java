@@ -1,435 +1,835 @@
 package dal;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import dto.Documents;
+import dto.PageAnalysis;
 import dto.Pages;
+import dto.SearchResult;
 import pl.EditorPO;
 
 public class EditorDBDAO implements IEditorDBDAO {
 	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
-	Connection conn = null;
+
+	// Statements of the save path, prepared once per pooled connection and reused from its statement cache
+	private static final String UPDATE_FILE_NAME_QUERY = "UPDATE files SET fileName = ?, lastModified = CURRENT_TIMESTAMP() WHERE fileId = ? AND isDeleted = 0";
+	private static final String LOCK_PAGE_QUERY = "SELECT pageId, pageContent FROM pages WHERE fileId = ? AND pageNumber = ? FOR UPDATE";
+	private static final String UPDATE_PAGE_QUERY = "UPDATE pages SET pageContent = ?, pageHash = ? WHERE pageId = ?";
+	private static final String UPDATE_FILE_HASH_QUERY = "UPDATE files SET fileHash = ? WHERE fileId = ?";
+	private static final String UPDATE_TFIDF_QUERY = "UPDATE tfidf SET tfidfScore = ? WHERE fileId = ?";
+	private static final String PAGE_CONTENT_QUERY = "SELECT pageContent FROM pages WHERE fileId = ? AND pageNumber = ?";
+	private static final String PAGE_STATE_QUERY = "SELECT p.pageHash, f.fileName FROM pages p JOIN files f ON f.fileId = p.fileId "
+			+ "WHERE p.fileId = ? AND p.pageNumber = ?";
+	private static final String FILE_CONTENT_QUERY = "SELECT pageContent FROM pages WHERE fileId = ? ORDER BY pageNumber";
+	private static final String PAGES_QUERY = "SELECT pageId, pageNumber, pageContent FROM pages WHERE fileId = ? ORDER BY pageNumber";
+
+	// Partitioned analytics rows carry their page's fileId; naming it in every statement confines the
+	// statement to one partition
+	private static final boolean PARTITIONED = AnalyticsTable.isPartitioned();
+	private static final String PAGE_ROW_FILTER = PARTITIONED ? "fileId = ? AND pageId = ?" : "pageId = ?";
+	private static final String PAGE_ANALYSIS_QUERY = "SELECT p.fileId, p.pageNumber, p.pageContent, a.analysis FROM pages p "
+			+ "LEFT JOIN pageanalytics a ON a.pageId = p.pageId" + (PARTITIONED ? " AND a.fileId = p.fileId" : "")
+			+ " WHERE p.pageId = ?";
+	private static final String LOCK_ANALYSIS_BLOB_QUERY = "SELECT analysis FROM pageanalytics WHERE " + PAGE_ROW_FILTER
+			+ " FOR UPDATE";
+	private static final String UPSERT_ANALYSIS_BLOB_QUERY = "INSERT INTO pageanalytics ("
+			+ (PARTITIONED ? "fileId, pageId" : "pageId") + ", version, analysis) VALUES ("
+			+ (PARTITIONED ? "?, ?" : "?") + ", ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE version = VALUES(version), analysis = VALUES(analysis)";
+	// First matching page of each file; the limit counts files, not pages
+	private static final String SEARCH_PAGES_QUERY = "SELECT f.fileId, f.fileName, p.pageNumber, p.pageContent FROM "
+			+ "(SELECT fileId, MIN(pageNumber) AS pageNumber FROM pages WHERE MATCH (pageContent) AGAINST (? IN BOOLEAN MODE) "
+			+ "GROUP BY fileId) m JOIN files f ON f.fileId = m.fileId AND f.isDeleted = 0 "
+			+ "JOIN pages p ON p.fileId = m.fileId AND p.pageNumber = m.pageNumber ORDER BY f.fileId LIMIT ?";
+	private static final String NEXT_MATCHING_PAGE_QUERY = "SELECT pageNumber, pageContent FROM pages WHERE fileId = ? "
+			+ "AND pageNumber > ? AND MATCH (pageContent) AGAINST (? IN BOOLEAN MODE) ORDER BY pageNumber LIMIT 1";
+	// Corpus queries over the analytics tables, each served by the prefix index on its value column
+	private static final String PAGES_BY_ROOT_QUERY = "SELECT p.pageId, p.fileId, p.pageNumber, p.pageContent FROM pages p "
+			+ "JOIN files f ON f.fileId = p.fileId AND f.isDeleted = 0 WHERE p.pageId IN (SELECT a.pageId FROM rootextraction a WHERE a.root = ?) "
+			+ "ORDER BY p.fileId, p.pageNumber LIMIT ?";
+	private static final String LEMMA_COUNTS_QUERY = "SELECT p.fileId, COUNT(*) AS matches FROM lemmatization a "
+			+ "JOIN pages p ON p.pageId = a.pageId JOIN files f ON f.fileId = p.fileId AND f.isDeleted = 0 "
+			+ "WHERE a.lemma = ? GROUP BY p.fileId ORDER BY p.fileId";
+	// AlKhalil's main category comes first in the stored tag list, so a prefix match finds it
+	private static final String WORDS_BY_POS_QUERY = "SELECT DISTINCT w.word FROM pos a JOIN words w ON w.wordId = a.wordId "
+			+ "JOIN pages p ON p.pageId = a.pageId JOIN files f ON f.fileId = p.fileId AND f.isDeleted = 0 "
+			+ "WHERE (a.pos = ? OR a.pos LIKE ?) ORDER BY w.word LIMIT ?";
+	private static final Map<AnalyticsTable, String> DELETE_PAGE_ROWS_QUERIES = new EnumMap<>(AnalyticsTable.class);
+	private static final Map<AnalyticsTable, String> SELECT_PAGE_ROWS_QUERIES = new EnumMap<>(AnalyticsTable.class);
+	// Word ids are deleted in chunks of this size; the last, shorter chunk is padded so one statement fits all
+	private static final int WORD_CHUNK_SIZE = 50;
+	private static final Map<AnalyticsTable, String> DELETE_WORD_ROWS_QUERIES = new EnumMap<>(AnalyticsTable.class);
+
+	static {
+		StringBuilder placeholders = new StringBuilder();
+		for (int i = 0; i < WORD_CHUNK_SIZE; i++) {
+			placeholders.append(i == 0 ? "?" : ", ?");
+		}
+		for (AnalyticsTable table : AnalyticsTable.values()) {
+			DELETE_PAGE_ROWS_QUERIES.put(table, "DELETE FROM " + table.getTableName() + " WHERE " + PAGE_ROW_FILTER);
+			SELECT_PAGE_ROWS_QUERIES.put(table, "SELECT w.word, a." + table.getValueColumn() + " AS value FROM "
+					+ table.getTableName() + " a JOIN words w ON w.wordId = a.wordId WHERE "
+					+ PAGE_ROW_FILTER.replace("fileId", "a.fileId").replace("pageId", "a.pageId") + " ORDER BY a.id");
+			DELETE_WORD_ROWS_QUERIES.put(table, "DELETE FROM " + table.getTableName() + " WHERE " + PAGE_ROW_FILTER
+					+ " AND wordId IN (" + placeholders + ")");
+		}
+	}
+
+	// Shared by every DAO instance: writes to one file are ordered, other files are not held up
+	private static final FileLockStripes FILE_LOCKS = new FileLockStripes(EditorConfig.getInt("db.fileLockStripes", 64));
+
+	private final DatabaseConnection database;
 
 	public EditorDBDAO() {
-		this.conn = DatabaseConnection.getInstance().getConnection();
+		this.database = DatabaseConnection.getInstance();
+		// Finishes purging files deleted before the editor was last closed
+		FilePurger.getInstance().start();
+	}
 
+	@Override
+	public boolean createFileInDB(String nameOfFile, String content) {
+		return createFileInDB(nameOfFile, ContentSource.of(content));
 	}
 
+	/**
+	 * Imports a file without holding all of it in memory. The source is read
+	 * once to hash, count and score it, then again to paginate and analyse it
+	 * a window of pages at a time into a spool on disk. Only then is a
+	 * connection borrowed, and the spooled pages are written in one short
+	 * transaction.
+	 */
 	@Override
-	public synchronized boolean createFileInDB(String nameOfFile, String content) {
-		String hash = null;
-		List<Pages> pages = null;
-
-		String insertQuery = "INSERT INTO files (fileName, fileHash) VALUES (?, ?)";
-		String pageQuery = "INSERT INTO pages (fileId, pageNumber, pageContent) VALUES (?, ?, ?)";
-		String transliterateQuery = "INSERT INTO transliteratedpages (pageId, transliteratedText) VALUES (?, ?)";
-		;
-		String posQuery = "INSERT INTO pos (pageId, word, pos) VALUES (?, ?, ?)";
-		String lemmaQuery = "INSERT INTO lemmatization (pageId, word, lemma) VALUES (?, ?, ?)";
-		String rootQuery = "INSERT INTO rootextraction (pageId, word, root) VALUES (?, ?, ?)";
-		String stemQuery = "INSERT INTO stemmation (pageId, word, stem) VALUES (?, ?, ?)";
-		String segmentQuery = "INSERT INTO wordsegementation (pageId, word, segment) VALUES (?, ?, ?)";
+	public boolean createFileInDB(String nameOfFile, ContentSource source) {
+		ContentSummary summary;
+		double tfidf;
+		PageLayout layout = PageLayout.configured();
+
+		String insertQuery = "INSERT INTO files (fileId, fileName, fileHash, pageLayout) VALUES (?, ?, ?, ?)";
 		String tfidfQuery = "INSERT INTO tfidf (fileId, tfidfScore) VALUES (?, ?)";
-		String pklQuery = "INSERT INTO pkl (pageId, word, pklScore) VALUES (?, ?, ?)";
-		String pmiQuery = "INSERT INTO pmi (pageId, word, pmiScore) VALUES (?, ?, ?)";
-		Map<String, String> analyticsMap = new HashMap<>();
-		Map<String, Double> scoreMap = new HashMap<>();
 
-//		PreparedStatement fileStmt = null;
-//		PreparedStatement transliteratetStmt = null;
-//		PreparedStatement posStmt = null;
-//		PreparedStatement lemmaStmt = null;
-//		PreparedStatement rootStmt = null;
-//		PreparedStatement segmentStmt = null;
-//		PreparedStatement stemStmt = null;
-//		PreparedStatement pklStmt = null;
-//		PreparedStatement pmiStmt = null;
-//		PreparedStatement tfidfStmt = null;
 		try {
+			summary = summarize(source, layout);
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		}
+
+		// Content that is already stored is linked to (or rejected) instead of analysed again
+		int duplicateOf = findFileByHash(summary.hash, source);
+		if (duplicateOf > 0) {
+			if ("reject".equalsIgnoreCase(EditorConfig.getString("import.duplicatePolicy", "link"))) {
+				LOGGER.info("Rejected " + nameOfFile + ": same content as file " + duplicateOf);
+				return false;
+			}
+			// Saves to the stored copy wait until its pages have been copied
+			Lock fileLock = FILE_LOCKS.forFile(duplicateOf);
+			fileLock.lock();
+			try {
+				return linkDuplicateFile(duplicateOf, nameOfFile, summary.hash, summary.termCounts);
+			} finally {
+				fileLock.unlock();
+			}
+		}
+
+		int firstPageId;
+		DocumentFrequencyIndex index = DocumentFrequencyIndex.getInstance();
+		try (Connection conn = database.getConnection()) {
+			index.ensureBackfilled();
+			tfidf = index.tfidf(conn, 0, summary.termCounts);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		}
 
-			hash = HashCalculator.calculateHash(content);
-			pages = PaginationDAO.paginate(content);
+		int fileID;
+		try {
+			fileID = IdAllocator.forFiles().allocate(1);
+			firstPageId = IdAllocator.forPages().allocate(summary.pageCount);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		}
+
+		AnalysisSpool spool = null;
+		Connection conn;
+		try {
+			// Every page is analysed before a connection is borrowed
+			spool = analyzePages(source, layout, fileID, summary);
+			conn = database.getConnection();
 		} catch (Exception e) {
+			closeSpool(spool);
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
+			return false;
 		}
 
-		try (PreparedStatement fileStmt = conn.prepareStatement(insertQuery, PreparedStatement.RETURN_GENERATED_KEYS);
-				PreparedStatement pageStmt = conn.prepareStatement(pageQuery, PreparedStatement.RETURN_GENERATED_KEYS);
-				PreparedStatement transliteratetStmt = conn.prepareStatement(transliterateQuery);
-				PreparedStatement posStmt = conn.prepareStatement(posQuery);
-				PreparedStatement lemmaStmt = conn.prepareStatement(lemmaQuery);
-				PreparedStatement rootStmt = conn.prepareStatement(rootQuery);
-				PreparedStatement segmentStmt = conn.prepareStatement(segmentQuery);
-				PreparedStatement stemStmt = conn.prepareStatement(stemQuery);
-				PreparedStatement pklStmt = conn.prepareStatement(pklQuery);
-				PreparedStatement pmiStmt = conn.prepareStatement(pmiQuery);
-				PreparedStatement tfidfStmt = conn.prepareStatement(tfidfQuery)) {
-			conn = DatabaseConnection.getInstance().getConnection();
-			double tfidf = performTFIDF(getAllExistingFilesContent(conn), content);
+		try (PreparedStatement fileStmt = conn.prepareStatement(insertQuery);
+				PreparedStatement tfidfStmt = conn.prepareStatement(tfidfQuery);
+				AnalyticsBatchWriter writer = new AnalyticsBatchWriter(conn)) {
 			conn.setAutoCommit(false);
 
 			// Insert into files table
-//			fileStmt = conn.prepareStatement(insertQuery, PreparedStatement.RETURN_GENERATED_KEYS);
-			fileStmt.setString(1, nameOfFile);
-			fileStmt.setString(2, hash);
+			fileStmt.setInt(1, fileID);
+			fileStmt.setString(2, nameOfFile);
+			fileStmt.setString(3, summary.hash);
+			fileStmt.setString(4, layout.toString());
 			fileStmt.executeUpdate();
 
-			ResultSet fileRS = fileStmt.getGeneratedKeys();
-			fileRS.next();
-			int fileID = fileRS.getInt(1);
+			int pageCount = writePages(writer, fileID, spool, firstPageId);
+			writer.flush();
 
-			for (Pages page : pages) {
-				// Insert into pages table
-//				pageStmt = conn.prepareStatement(pageQuery, PreparedStatement.RETURN_GENERATED_KEYS);
-				pageStmt.setInt(1, fileID);
-				pageStmt.setInt(2, page.getPageNumber());
-				pageStmt.setString(3, page.getPageContent());
-				pageStmt.executeUpdate();
+			index.addDocument(conn, fileID, DocumentFrequencyIndex.termsOf(summary.termCounts.keySet()));
 
-				ResultSet pageRS = pageStmt.getGeneratedKeys();
-				pageRS.next();
-				int pageId = pageRS.getInt(1);
+			tfidfStmt.setInt(1, fileID);
+			tfidfStmt.setDouble(2, tfidf);
+			tfidfStmt.executeUpdate();
 
-				// Transliteration
-				String transliteratedText = Transliteration.transliterate(page.getPageContent());
-//				transliteratetStmt = conn.prepareStatement(transliterateQuery);
-				transliteratetStmt.setInt(1, pageId);
-				transliteratetStmt.setString(2, transliteratedText);
-				transliteratetStmt.executeUpdate();
+			conn.commit();
+			LOGGER.info("Imported " + nameOfFile + ": " + pageCount + " pages in " + writer.getStatementCount()
+					+ " insert statements");
+			return true;
 
-				// POS Tagging
-				Map<String, List<String>> posTagsMap = POSTagger.extractPOS(page.getPageContent());
+		} catch (Exception e) {
+			try {
+				conn.rollback();
+			} catch (SQLException e1) {
+				e1.printStackTrace();
+				LOGGER.error(e1.getMessage());
+			}
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+		} finally {
+			closeSpool(spool);
+			closeConnection(conn);
+		}
 
-//				posStmt = conn.prepareStatement(posQuery);
+		return false;
+	}
 
-				for (Map.Entry<String, List<String>> entry : posTagsMap.entrySet()) {
-					String word = entry.getKey();
-					List<String> posTags = entry.getValue();
-					String posTagString = String.join("|", posTags);
+	/**
+	 * First read of an import: the file hash, page count and term counts,
+	 * gathered one page at a time.
+	 */
+	private ContentSummary summarize(ContentSource source, PageLayout layout) throws Exception {
+		HashCalculator.Incremental hash = new HashCalculator.Incremental();
+		TermCounter terms = new TermCounter();
+		int pageCount = 0;
+		try (PageReader reader = new PageReader(source.open(), layout)) {
+			Pages page;
+			while ((page = reader.next()) != null) {
+				hash.update(page.getPageContent());
+				terms.add(page.getPageContent());
+				pageCount++;
+			}
+		}
+		return new ContentSummary(hash.finish(), pageCount, terms.finish());
+	}
 
-					posStmt.setInt(1, pageId);
-					posStmt.setString(2, word);
-					posStmt.setString(3, posTagString);
-					posStmt.addBatch();
+	/**
+	 * Second read: analyses every page of the source a window at a time, the
+	 * next window being analysed while the one before it is spooled, and
+	 * registers their words. Nothing is written to the database yet. Fails if
+	 * the source no longer matches the first read.
+	 */
+	private AnalysisSpool analyzePages(ContentSource source, PageLayout layout, int fileId, ContentSummary summary)
+			throws Exception {
+		AnalysisPipeline pipeline = AnalysisPipeline.getInstance();
+		HashCalculator.Incremental hash = new HashCalculator.Incremental();
+		AnalysisSpool spool = new AnalysisSpool();
+		try (PageReader reader = new PageReader(source.open(), layout)) {
+			List<CompletableFuture<PageAnalysis>> pending = pipeline.submitAll(readWindow(reader, hash));
+			while (!pending.isEmpty()) {
+				List<PageAnalysis> analyses = pipeline.collect(pending);
+				pending = pipeline.submitAll(readWindow(reader, hash));
+				registerWords(analyses);
+				for (PageAnalysis analysis : analyses) {
+					spool.add(analysis);
 				}
-				posStmt.executeBatch();
+			}
+			if (spool.size() != summary.pageCount || !summary.hash.equals(hash.finish())) {
+				throw new IOException("Content of file " + fileId + " changed while it was being analysed");
+			}
+			return spool;
+		} catch (Exception e) {
+			closeSpool(spool);
+			throw e;
+		}
+	}
 
-				analyticsMap = Lemmatization.lemmatizeWords(page.getPageContent());
+	/**
+	 * Writes the spooled pages with consecutive ids from the reserved block.
+	 * Returns the number of pages written.
+	 */
+	private int writePages(AnalyticsBatchWriter writer, int fileId, AnalysisSpool spool, int firstPageId)
+			throws Exception {
+		int pageId = firstPageId;
+		PageAnalysis analysis;
+		while ((analysis = spool.next()) != null) {
+			writer.addPage(pageId, fileId, analysis.getPageNumber(), analysis.getPageContent(),
+					HashCalculator.calculateHash(analysis.getPageContent()));
+			writer.addTransliteration(pageId, analysis.getTransliteratedText());
+			writer.addAnalytics(fileId, pageId, analysis);
+			pageId++;
+		}
+		return pageId - firstPageId;
+	}
 
-//				lemmaStmt = conn.prepareStatement(lemmaQuery);
+	private List<Pages> readWindow(PageReader reader, HashCalculator.Incremental hash) throws IOException {
+		int windowSize = Math.max(1, EditorConfig.getInt("import.windowPages", 200));
+		List<Pages> window = new ArrayList<>(windowSize);
+		Pages page;
+		while (window.size() < windowSize && (page = reader.next()) != null) {
+			hash.update(page.getPageContent());
+			window.add(page);
+		}
+		return window;
+	}
 
-				for (Map.Entry<String, String> entry : analyticsMap.entrySet()) {
-					String word = entry.getKey();
-					String lemma = entry.getValue();
-					String lemmaString = String.join("|", lemma);
+	// Registers new words in the dictionary up front so the writer only needs cached ids
+	private void registerWords(List<PageAnalysis> analyses) throws SQLException {
+		if (AnalyticsBlobCodec.isEnabled() || analyses.isEmpty()) {
+			return;
+		}
+		Set<String> words = new HashSet<>();
+		for (PageAnalysis analysis : analyses) {
+			words.addAll(AnalyticsBatchWriter.wordsOf(analysis));
+		}
+		WordVocabulary.getInstance().resolve(words);
+	}
 
-					lemmaStmt.setInt(1, pageId);
-					lemmaStmt.setString(2, word);
-					lemmaStmt.setString(3, lemmaString);
-					lemmaStmt.addBatch();
+	/**
+	 * Returns the id of a stored file with exactly this content, or 0. The hash
+	 * narrows the candidates through the fileHash index; the content comparison
+	 * guards against collisions.
+	 */
+	private int findFileByHash(String hash, ContentSource source) {
+		String query = "SELECT fileId FROM files WHERE fileHash = ? AND isDeleted = 0 ORDER BY fileId";
+		try (Connection conn = database.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setString(1, hash);
+			List<Integer> candidates = new ArrayList<>();
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					candidates.add(rs.getInt("fileId"));
 				}
-				lemmaStmt.executeBatch();
-				analyticsMap = RootExtraction.extractRoots(page.getPageContent());
+			}
+			for (int candidate : candidates) {
+				if (hasContent(conn, candidate, source)) {
+					return candidate;
+				}
+			}
+		} catch (SQLException | IOException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+		}
+		return 0;
+	}
 
-//				rootStmt = conn.prepareStatement(rootQuery);
+	// Compares a stored file with the source page by page, streaming both
+	private boolean hasContent(Connection conn, int fileId, ContentSource source) throws SQLException, IOException {
+		try (PreparedStatement stmt = conn
+				.prepareStatement("SELECT pageContent FROM pages WHERE fileId = ? ORDER BY pageNumber");
+				Reader reader = source.open()) {
+			stmt.setFetchSize(EditorConfig.getInt("db.fetchSize", 500));
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					String stored = rs.getString("pageContent");
+					char[] read = new char[stored == null ? 0 : stored.length()];
+					int filled = 0;
+					while (filled < read.length) {
+						int count = reader.read(read, filled, read.length - filled);
+						if (count < 0) {
+							return false;
+						}
+						filled += count;
+					}
+					if (read.length > 0 && !stored.equals(new String(read))) {
+						return false;
+					}
+				}
+			}
+			return reader.read() < 0;
+		}
+	}
 
-				for (Map.Entry<String, String> entry : analyticsMap.entrySet()) {
-					String word = entry.getKey();
-					String root = entry.getValue();
-					String rootString = String.join("|", root);
+	/**
+	 * Creates a file whose pages and analytics are copied from an existing file
+	 * with the same content. Everything is copied with INSERT ... SELECT inside
+	 * the database; nothing goes through the analysers.
+	 */
+	private boolean linkDuplicateFile(int sourceFileId, String nameOfFile, String hash,
+			Map<String, Integer> termCounts) {
+		String insertQuery = "INSERT INTO files (fileId, fileName, fileHash, pageLayout) "
+				+ "SELECT ?, ?, ?, pageLayout FROM files WHERE fileId = ?";
+		String copyPagesQuery = "INSERT INTO pages (pageId, fileId, pageNumber, pageContent, pageHash) "
+				+ "SELECT ? + ROW_NUMBER() OVER (ORDER BY pageNumber) - 1, ?, pageNumber, pageContent, pageHash "
+				+ "FROM pages WHERE fileId = ?";
+		String copyTransliterationQuery = "INSERT INTO transliteratedpages (pageId, transliteratedText) "
+				+ "SELECT np.pageId, t.transliteratedText FROM transliteratedpages t "
+				+ "JOIN pages sp ON sp.pageId = t.pageId JOIN pages np ON np.pageNumber = sp.pageNumber "
+				+ "WHERE sp.fileId = ? AND np.fileId = ?";
+		String tfidfQuery = "INSERT INTO tfidf (fileId, tfidfScore) VALUES (?, ?)";
 
-					rootStmt.setInt(1, pageId);
-					rootStmt.setString(2, word);
-					rootStmt.setString(3, rootString);
-					rootStmt.addBatch();
+		DocumentFrequencyIndex index = DocumentFrequencyIndex.getInstance();
+		Connection conn = null;
+		try {
+			index.ensureBackfilled();
+
+			int pageCount;
+			conn = database.getConnection();
+			try (PreparedStatement countStmt = conn.prepareStatement("SELECT COUNT(*) FROM pages WHERE fileId = ?")) {
+				countStmt.setInt(1, sourceFileId);
+				try (ResultSet rs = countStmt.executeQuery()) {
+					rs.next();
+					pageCount = rs.getInt(1);
 				}
-				rootStmt.executeBatch();
+			}
+			int fileID = IdAllocator.forFiles().allocate(1);
+			int firstPageId = IdAllocator.forPages().allocate(Math.max(1, pageCount));
+			double tfidf = index.tfidf(conn, 0, termCounts);
 
-				analyticsMap = WordSegmentation.extractSegments(page.getPageContent());
-//				segmentStmt = conn.prepareStatement(segmentQuery);
+			conn.setAutoCommit(false);
 
-				for (Map.Entry<String, String> entry : analyticsMap.entrySet()) {
-					String word = entry.getKey();
-					String segment = entry.getValue();
-					String segmentString = String.join("|", segment);
+			try (PreparedStatement fileStmt = conn.prepareStatement(insertQuery)) {
+				fileStmt.setInt(1, fileID);
+				fileStmt.setString(2, nameOfFile);
+				fileStmt.setString(3, hash);
+				fileStmt.setInt(4, sourceFileId);
+				fileStmt.executeUpdate();
+			}
 
-					segmentStmt.setInt(1, pageId);
-					segmentStmt.setString(2, word);
-					segmentStmt.setString(3, segmentString);
-					segmentStmt.addBatch();
-				}
-				segmentStmt.executeBatch();
+			try (PreparedStatement pagesStmt = conn.prepareStatement(copyPagesQuery)) {
+				pagesStmt.setInt(1, firstPageId);
+				pagesStmt.setInt(2, fileID);
+				pagesStmt.setInt(3, sourceFileId);
+				pagesStmt.executeUpdate();
+			}
 
-				analyticsMap = Stemmation.stemWords(page.getPageContent());
-//				stemStmt = conn.prepareStatement(stemQuery);
+			try (PreparedStatement transliterationStmt = conn.prepareStatement(copyTransliterationQuery)) {
+				transliterationStmt.setInt(1, sourceFileId);
+				transliterationStmt.setInt(2, fileID);
+				transliterationStmt.executeUpdate();
+			}
 
-				for (Map.Entry<String, String> entry : analyticsMap.entrySet()) {
-					String word = entry.getKey();
-					String stem = entry.getValue();
-					String stemString = String.join("|", stem);
+			try (PreparedStatement blobStmt = conn.prepareStatement(copyAnalyticsQuery("pageanalytics", "version, analysis"))) {
+				bindCopy(blobStmt, sourceFileId, fileID);
+				blobStmt.executeUpdate();
+			}
 
-					stemStmt.setInt(1, pageId);
-					stemStmt.setString(2, word);
-					stemStmt.setString(3, stemString);
-					stemStmt.addBatch();
+			for (AnalyticsTable table : AnalyticsTable.values()) {
+				String copyQuery = copyAnalyticsQuery(table.getTableName(), "wordId, " + table.getValueColumn());
+				try (PreparedStatement copyStmt = conn.prepareStatement(copyQuery)) {
+					bindCopy(copyStmt, sourceFileId, fileID);
+					copyStmt.executeUpdate();
 				}
-				stemStmt.executeBatch();
+			}
 
-				scoreMap = performPKL(page.getPageContent());
-//				pklStmt = conn.prepareStatement(pklQuery);
+			index.copyDocument(conn, sourceFileId, fileID);
 
-				for (Map.Entry<String, Double> entry : scoreMap.entrySet()) {
-					String word = entry.getKey();
-					Double pkl = entry.getValue();
+			try (PreparedStatement tfidfStmt = conn.prepareStatement(tfidfQuery)) {
+				tfidfStmt.setInt(1, fileID);
+				tfidfStmt.setDouble(2, tfidf);
+				tfidfStmt.executeUpdate();
+			}
 
-					pklStmt.setInt(1, pageId);
-					pklStmt.setString(2, word);
-					pklStmt.setDouble(3, pkl);
-					pklStmt.addBatch();
+			conn.commit();
+			LOGGER.info("Imported " + nameOfFile + " as a copy of file " + sourceFileId + " without re-analysis");
+			return true;
+		} catch (SQLException e) {
+			try {
+				if (conn != null) {
+					conn.rollback();
 				}
-				pklStmt.executeBatch();
+			} catch (SQLException rollbackEx) {
+				rollbackEx.printStackTrace();
+				LOGGER.error(rollbackEx.getMessage());
+			}
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		} finally {
+			closeConnection(conn);
+		}
+	}
 
-				scoreMap = performPMI(page.getPageContent());
-//				pmiStmt = conn.prepareStatement(pmiQuery);
+	/**
+	 * Seeds the database with many files at once. Every file is read, scored
+	 * and analysed as an import would, but its rows are staged in local files
+	 * and sent with LOAD DATA LOCAL INFILE on a dedicated connection instead
+	 * of as INSERT statements. Files whose hash is already stored, or that
+	 * repeat an earlier file of the batch, are skipped. TF-IDF scores are
+	 * computed in order against the document frequencies of the files loaded
+	 * before them, and term_df is recounted for the new terms at the end. The
+	 * load commits as a whole or not at all; run it while nothing else imports.
+	 */
+	@Override
+	public int bulkLoadFilesInDB(List<File> files) {
+		String recountQuery = "INSERT INTO term_df (term, df) SELECT t.term, COUNT(*) FROM file_terms t "
+				+ "JOIN (SELECT DISTINCT term FROM file_terms WHERE fileId >= ? AND fileId < ?) n ON n.term = t.term "
+				+ "GROUP BY t.term ON DUPLICATE KEY UPDATE df = VALUES(df)";
+
+		PageLayout layout = PageLayout.configured();
+		Set<String> knownHashes = new HashSet<>();
+		Map<String, Integer> documentFrequencies = new HashMap<>();
+		int totalDocs;
+		int firstFileId;
+		try (Connection conn = database.getConnection(); Statement stmt = conn.createStatement()) {
+			DocumentFrequencyIndex.getInstance().ensureBackfilled();
+			stmt.setFetchSize(EditorConfig.getInt("db.fetchSize", 500));
+			try (ResultSet rs = stmt.executeQuery("SELECT fileHash FROM files WHERE isDeleted = 0")) {
+				while (rs.next()) {
+					knownHashes.add(rs.getString("fileHash"));
+				}
+			}
+			try (ResultSet rs = stmt.executeQuery("SELECT term, df FROM term_df WHERE df > 0")) {
+				while (rs.next()) {
+					documentFrequencies.put(rs.getString("term"), rs.getInt("df"));
+				}
+			}
+			try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM files WHERE isDeleted = 0")) {
+				rs.next();
+				totalDocs = rs.getInt(1);
+			}
+			// Reserved up front, so files created meanwhile get ids after this range; duplicates leave gaps
+			firstFileId = IdAllocator.forFiles().allocate(files.size());
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return -1;
+		}
 
-				for (Map.Entry<String, Double> entry : scoreMap.entrySet()) {
-					String word = entry.getKey();
-					Double pmi = entry.getValue();
+		Path directory = null;
+		Connection conn = null;
+		try {
+			directory = Files.createTempDirectory("editor-bulk");
+			int fileId = firstFileId;
+			int skipped = 0;
+			try (LoadFileWriter writer = new LoadFileWriter(directory)) {
+				for (File file : files) {
+					ContentSource source = new TextFileSource(file);
+					ContentSummary summary = summarize(source, layout);
+					if (!knownHashes.add(summary.hash)) {
+						skipped++;
+						continue;
+					}
+
+					double tfidf = TFIDFCalculator.calculateDocumentTfIdf(summary.termCounts, documentFrequencies,
+							totalDocs);
+					Set<String> terms = DocumentFrequencyIndex.termsOf(summary.termCounts.keySet());
+					for (String term : terms) {
+						documentFrequencies.merge(term, 1, Integer::sum);
+					}
+					totalDocs++;
+
+					writer.addFile(fileId, file.getName(), summary.hash, layout.toString());
+					writer.addTfidf(fileId, (Double.isNaN(tfidf) || Double.isInfinite(tfidf)) ? 0.0 : tfidf);
+					writer.addTerms(fileId, terms);
+
+					int firstPageId = IdAllocator.forPages().allocate(summary.pageCount);
+					try (AnalysisSpool spool = analyzePages(source, layout, fileId, summary)) {
+						writePages(writer, fileId, spool, firstPageId);
+					}
+					fileId++;
+				}
 
-					pmiStmt.setInt(1, pageId);
-					pmiStmt.setString(2, word);
-					pmiStmt.setDouble(3, pmi);
-					pmiStmt.addBatch();
+				conn = database.openBulkConnection();
+				conn.setAutoCommit(false);
+				try (Statement stmt = conn.createStatement()) {
+					// Only this session skips the checks. Every row references a file or page
+					// staged in the same load or a word id already in the dictionary, and file
+					// and page ids are reserved from the id allocator.
+					stmt.execute("SET foreign_key_checks = 0");
+					stmt.execute("SET unique_checks = 0");
+					long rows = writer.load(conn);
+					stmt.execute("SET unique_checks = 1");
+					stmt.execute("SET foreign_key_checks = 1");
+
+					try (PreparedStatement recountStmt = conn.prepareStatement(recountQuery)) {
+						recountStmt.setInt(1, firstFileId);
+						recountStmt.setInt(2, fileId);
+						recountStmt.executeUpdate();
+					}
+					conn.commit();
+					LOGGER.info("Bulk loaded " + (fileId - firstFileId) + " files (" + rows + " rows), skipped "
+							+ skipped + " duplicates");
+				}
+			}
+			return fileId - firstFileId;
+		} catch (Exception e) {
+			try {
+				if (conn != null) {
+					conn.rollback();
 				}
-				pmiStmt.executeBatch();
+			} catch (SQLException rollbackEx) {
+				rollbackEx.printStackTrace();
+				LOGGER.error(rollbackEx.getMessage());
+			}
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return -1;
+		} finally {
+			try {
+				if (conn != null) {
+					conn.close();
+				}
+				if (directory != null) {
+					Files.deleteIfExists(directory);
+				}
+			} catch (SQLException | IOException e) {
+				e.printStackTrace();
+				LOGGER.error(e.getMessage());
+			}
+		}
+	}
 
+	/**
+	 * Rewrites the pages of a stored file in another layout and analyses them
+	 * again. The old pages are read and the new ones analysed into a spool
+	 * without any lock; the swap then commits in one transaction under the
+	 * file's lock, so readers see either layout in full. Returns false, leaving
+	 * the file untouched, if it was edited in the meantime.
+	 */
+	@Override
+	public boolean repaginateFileInDB(int fileId, PageLayout layout) {
+		String stateQuery = "SELECT fileHash, lastModified FROM files WHERE fileId = ?";
+		String deleteQuery = "DELETE FROM pages WHERE fileId = ?";
+		// Keep lastModified: the content itself does not change
+		String layoutQuery = "UPDATE files SET pageLayout = ?, lastModified = lastModified WHERE fileId = ?";
+
+		ContentSource source = new StoredFileSource(database, fileId);
+		String state;
+		ContentSummary summary;
+		int firstPageId;
+		try {
+			try (Connection conn = database.getConnection();
+					PreparedStatement stmt = conn.prepareStatement(stateQuery)) {
+				state = fileState(stmt, fileId);
 			}
+			if (state == null) {
+				return false;
+			}
+			summary = summarize(source, layout);
+			firstPageId = IdAllocator.forPages().allocate(summary.pageCount);
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		}
 
-//			tfidfStmt = conn.prepareStatement(tfidfQuery);
-			tfidfStmt.setInt(1, fileID);
-			// Handle NaN and Infinity cases - set to 0.0 if invalid
-			double tfidfValue = (Double.isNaN(tfidf) || Double.isInfinite(tfidf)) ? 0.0 : tfidf;
-			tfidfStmt.setDouble(2, tfidfValue);
-			tfidfStmt.executeUpdate();
+		// Every page is analysed before the lock and the transaction; only the swap holds up saves to the file
+		Lock fileLock = FILE_LOCKS.forFile(fileId);
+		boolean locked = false;
+		AnalysisSpool spool = null;
+		Connection conn = null;
+		try {
+			spool = analyzePages(source, layout, fileId, summary);
 
-			conn.commit();
-			return true;
+			fileLock.lock();
+			locked = true;
+			conn = database.getConnection();
+			conn.setAutoCommit(false);
+			try (PreparedStatement stateStmt = conn.prepareStatement(stateQuery + " FOR UPDATE");
+					PreparedStatement deleteStmt = conn.prepareStatement(deleteQuery);
+					PreparedStatement layoutStmt = conn.prepareStatement(layoutQuery);
+					AnalyticsBatchWriter writer = new AnalyticsBatchWriter(conn)) {
+				if (!state.equals(fileState(stateStmt, fileId))) {
+					conn.rollback();
+					LOGGER.info("File " + fileId + " changed before it could be repaginated");
+					return false;
+				}
+
+				// Cascades to the transliteration and, unless partitioned, the analytics of the old pages
+				deleteAnalytics(conn, fileId);
+				deleteStmt.setInt(1, fileId);
+				deleteStmt.executeUpdate();
 
+				int pageCount = writePages(writer, fileId, spool, firstPageId);
+				writer.flush();
+
+				layoutStmt.setString(1, layout.toString());
+				layoutStmt.setInt(2, fileId);
+				layoutStmt.executeUpdate();
+
+				conn.commit();
+				LOGGER.info("Repaginated file " + fileId + " as " + layout + ": " + pageCount + " pages");
+				return true;
+			}
 		} catch (Exception e) {
 			try {
-				conn.rollback();
-			} catch (SQLException e1) {
-				e1.printStackTrace();
-				LOGGER.error(e1.getMessage());
+				if (conn != null) {
+					conn.rollback();
+				}
+			} catch (SQLException rollbackEx) {
+				rollbackEx.printStackTrace();
+				LOGGER.error(rollbackEx.getMessage());
 			}
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
+			return false;
+		} finally {
+			closeSpool(spool);
+			closeConnection(conn);
+			if (locked) {
+				fileLock.unlock();
+			}
 		}
+	}
 
-		return false;
+	private String fileState(PreparedStatement stmt, int fileId) throws SQLException {
+		stmt.setInt(1, fileId);
+		try (ResultSet rs = stmt.executeQuery()) {
+			return rs.next() ? rs.getString("fileHash") + "@" + rs.getString("lastModified") : null;
+		}
 	}
 
 	@Override
 	public boolean updateFileInDB(int fileId, String fileName, int pageNumber, String content) {
+		Lock fileLock = FILE_LOCKS.forFile(fileId);
+		fileLock.lock();
+		try {
+			return updatePage(fileId, fileName, pageNumber, content);
+		} finally {
+			fileLock.unlock();
+		}
+	}
 
-		PreparedStatement fileStmt = null;
-		PreparedStatement pageStmt = null;
-		// PreparedStatement transliterateStmt = null;
-		PreparedStatement posStmt = null;
-		PreparedStatement lemmaStmt = null;
-		PreparedStatement rootStmt = null;
-		PreparedStatement segmentStmt = null;
-		PreparedStatement stemStmt = null;
-		PreparedStatement pklStmt = null;
-		PreparedStatement pmiStmt = null;
-		PreparedStatement tfidfStmt = null;
-
+	private boolean updatePage(int fileId, String fileName, int pageNumber, String content) {
+		// An autosave of an untouched page must not write anything
+		String pageHash;
 		try {
+			pageHash = HashCalculator.calculateHash(content);
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		}
+		if (isPageUnchanged(fileId, fileName, pageNumber, pageHash)) {
+			return true;
+		}
 
+		// Analyse only the words the edit introduced, before the transaction so no locks are held meanwhile
+		String baseline = getPageContent(fileId, pageNumber);
+		if (baseline == null) {
+			LOGGER.error("Page not found for the given fileId and pageNumber");
+			return false;
+		}
+		TokenDelta delta = TokenDelta.between(baseline, content);
+		PageAnalysis analysis = analyzeWords(pageNumber, delta.getAdded());
+		analysis.setPklScores(performPKL(content));
+		analysis.setPmiScores(performPMI(content));
+
+		boolean blobStorage = AnalyticsBlobCodec.isEnabled();
+		WordVocabulary vocabulary = WordVocabulary.getInstance();
+		DocumentFrequencyIndex index = DocumentFrequencyIndex.getInstance();
+		Connection conn = null;
+		try {
+			Collection<Integer> removedWordIds = Collections.emptyList();
+			if (!blobStorage) {
+				vocabulary.resolve(AnalyticsBatchWriter.wordsOf(analysis));
+				removedWordIds = vocabulary.lookup(delta.getRemoved()).values();
+			}
+			index.ensureBackfilled();
+			conn = database.getConnection();
 			conn.setAutoCommit(false);
 
-			// Update file information
-			String fileQuery = "UPDATE files SET fileName = ?, lastModified = CURRENT_TIMESTAMP() WHERE fileId = ?";
-			fileStmt = conn.prepareStatement(fileQuery);
-			fileStmt.setString(1, fileName);
-			fileStmt.setInt(2, fileId);
-			fileStmt.executeUpdate();
+			try (PreparedStatement fileStmt = conn.prepareStatement(UPDATE_FILE_NAME_QUERY);
+					PreparedStatement pageIdStmt = conn.prepareStatement(LOCK_PAGE_QUERY);
+					PreparedStatement pageStmt = conn.prepareStatement(UPDATE_PAGE_QUERY);
+					PreparedStatement hashStmt = conn.prepareStatement(UPDATE_FILE_HASH_QUERY);
+					PreparedStatement tfidfStmt = conn.prepareStatement(UPDATE_TFIDF_QUERY)) {
+				// Update file information
+				fileStmt.setString(1, fileName);
+				fileStmt.setInt(2, fileId);
+				if (fileStmt.executeUpdate() == 0) {
+					// Deleted since it was opened; its rows are left for the purger
+					conn.rollback();
+					LOGGER.error("File " + fileId + " was deleted");
+					return false;
+				}
 
-			// Update page content
-			String pageQuery = "UPDATE pages SET pageContent = ? WHERE fileId = ? AND pageNumber = ?";
-			pageStmt = conn.prepareStatement(pageQuery);
-			pageStmt.setString(1, content);
-			pageStmt.setInt(2, fileId);
-			pageStmt.setInt(3, pageNumber);
-			pageStmt.executeUpdate();
-
-			// Get the pageId of the updated page
-			String pageIdQuery = "SELECT pageId FROM pages WHERE fileId = ? AND pageNumber = ?";
-			PreparedStatement pageIdStmt = conn.prepareStatement(pageIdQuery);
-			pageIdStmt.setInt(1, fileId);
-			pageIdStmt.setInt(2, pageNumber);
-			ResultSet pageIdRS = pageIdStmt.executeQuery();
-			if (!pageIdRS.next()) {
-				throw new SQLException("Page not found for the given fileId and pageNumber");
-			}
-			int pageId = pageIdRS.getInt("pageId");
-
-//	        // Update transliteration
-//	        String transliteratedText = Transliteration.transliterate(content);
-//	        String transliterateQuery = "UPDATE transliteratedpages SET transliteratedText = ? WHERE pageId = ?";
-//	        transliterateStmt = conn.prepareStatement(transliterateQuery);
-//	        transliterateStmt.setString(1, transliteratedText);
-//	        transliterateStmt.setInt(2, pageId);
-//	        transliterateStmt.executeUpdate();
-
-			// Update POS tagging
-			Map<String, List<String>> posTagsMap = POSTagger.extractPOS(content);
-			String deletePosQuery = "DELETE FROM pos WHERE pageId = ?";
-			posStmt = conn.prepareStatement(deletePosQuery);
-			posStmt.setInt(1, pageId);
-			posStmt.executeUpdate();
-
-			String insertPosQuery = "INSERT INTO pos (pageId, word, pos) VALUES (?, ?, ?)";
-			posStmt = conn.prepareStatement(insertPosQuery);
-			for (Map.Entry<String, List<String>> entry : posTagsMap.entrySet()) {
-				String word = entry.getKey();
-				String posTags = String.join("|", entry.getValue());
-				posStmt.setInt(1, pageId);
-				posStmt.setString(2, word);
-				posStmt.setString(3, posTags);
-				posStmt.addBatch();
-			}
-			posStmt.executeBatch();
-
-			// Update lemmatization
-			Map<String, String> lemmaMap = Lemmatization.lemmatizeWords(content);
-			String deleteLemmaQuery = "DELETE FROM lemmatization WHERE pageId = ?";
-			lemmaStmt = conn.prepareStatement(deleteLemmaQuery);
-			lemmaStmt.setInt(1, pageId);
-			lemmaStmt.executeUpdate();
-
-			String insertLemmaQuery = "INSERT INTO lemmatization (pageId, word, lemma) VALUES (?, ?, ?)";
-			lemmaStmt = conn.prepareStatement(insertLemmaQuery);
-			for (Map.Entry<String, String> entry : lemmaMap.entrySet()) {
-				lemmaStmt.setInt(1, pageId);
-				lemmaStmt.setString(2, entry.getKey());
-				lemmaStmt.setString(3, entry.getValue());
-				lemmaStmt.addBatch();
-			}
-			lemmaStmt.executeBatch();
-
-			// Update root extraction
-			Map<String, String> rootMap = RootExtraction.extractRoots(content);
-			String deleteRootQuery = "DELETE FROM rootextraction WHERE pageId = ?";
-			rootStmt = conn.prepareStatement(deleteRootQuery);
-			rootStmt.setInt(1, pageId);
-			rootStmt.executeUpdate();
-
-			String insertRootQuery = "INSERT INTO rootextraction (pageId, word, root) VALUES (?, ?, ?)";
-			rootStmt = conn.prepareStatement(insertRootQuery);
-			for (Map.Entry<String, String> entry : rootMap.entrySet()) {
-				rootStmt.setInt(1, pageId);
-				rootStmt.setString(2, entry.getKey());
-				rootStmt.setString(3, entry.getValue());
-				rootStmt.addBatch();
-			}
-			rootStmt.executeBatch();
-
-			// Update word segmentation
-			Map<String, String> segmentMap = WordSegmentation.extractSegments(content);
-			String deleteSegmentQuery = "DELETE FROM wordsegementation WHERE pageId = ?";
-			segmentStmt = conn.prepareStatement(deleteSegmentQuery);
-			segmentStmt.setInt(1, pageId);
-			segmentStmt.executeUpdate();
-
-			String insertSegmentQuery = "INSERT INTO wordsegementation (pageId, word, segment) VALUES (?, ?, ?)";
-			segmentStmt = conn.prepareStatement(insertSegmentQuery);
-			for (Map.Entry<String, String> entry : segmentMap.entrySet()) {
-				segmentStmt.setInt(1, pageId);
-				segmentStmt.setString(2, entry.getKey());
-				segmentStmt.setString(3, entry.getValue());
-				segmentStmt.addBatch();
-			}
-			segmentStmt.executeBatch();
-
-			// Update stemming
-			Map<String, String> stemMap = Stemmation.stemWords(content);
-			String deleteStemQuery = "DELETE FROM stemmation WHERE pageId = ?";
-			stemStmt = conn.prepareStatement(deleteStemQuery);
-			stemStmt.setInt(1, pageId);
-			stemStmt.executeUpdate();
-
-			String insertStemQuery = "INSERT INTO stemmation (pageId, word, stem) VALUES (?, ?, ?)";
-			stemStmt = conn.prepareStatement(insertStemQuery);
-			for (Map.Entry<String, String> entry : stemMap.entrySet()) {
-				stemStmt.setInt(1, pageId);
-				stemStmt.setString(2, entry.getKey());
-				stemStmt.setString(3, entry.getValue());
-				stemStmt.addBatch();
-			}
-			stemStmt.executeBatch();
-
-			// Update PKL
-			Map<String, Double> pklMap = performPKL(content);
-			String deletePklQuery = "DELETE FROM pkl WHERE pageId = ?";
-			pklStmt = conn.prepareStatement(deletePklQuery);
-			pklStmt.setInt(1, pageId);
-			pklStmt.executeUpdate();
-
-			String insertPklQuery = "INSERT INTO pkl (pageId, word, pklScore) VALUES (?, ?, ?)";
-			pklStmt = conn.prepareStatement(insertPklQuery);
-			for (Map.Entry<String, Double> entry : pklMap.entrySet()) {
-				pklStmt.setInt(1, pageId);
-				pklStmt.setString(2, entry.getKey());
-				pklStmt.setDouble(3, entry.getValue());
-				pklStmt.addBatch();
-			}
-			pklStmt.executeBatch();
-
-			// Update PMI
-			Map<String, Double> pmiMap = performPMI(content);
-			String deletePmiQuery = "DELETE FROM pmi WHERE pageId = ?";
-			pmiStmt = conn.prepareStatement(deletePmiQuery);
-			pmiStmt.setInt(1, pageId);
-			pmiStmt.executeUpdate();
-
-			String insertPmiQuery = "INSERT INTO pmi (pageId, word, pmiScore) VALUES (?, ?, ?)";
-			pmiStmt = conn.prepareStatement(insertPmiQuery);
-			for (Map.Entry<String, Double> entry : pmiMap.entrySet()) {
-				pmiStmt.setInt(1, pageId);
-				pmiStmt.setString(2, entry.getKey());
-				pmiStmt.setDouble(3, entry.getValue());
-				pmiStmt.addBatch();
-			}
-			pmiStmt.executeBatch();
-
-			// Update TF-IDF
-			double tfidf = performTFIDF(getAllExistingFilesContent(conn), content);
-			String tfidfQuery = "UPDATE tfidf SET tfidfScore = ? WHERE fileId = ?";
-			tfidfStmt = conn.prepareStatement(tfidfQuery);
-			tfidfStmt.setDouble(1, tfidf);
-			tfidfStmt.setInt(2, fileId);
-			tfidfStmt.executeUpdate();
+				// Lock the page and make sure the delta was taken against what is stored now
+				pageIdStmt.setInt(1, fileId);
+				pageIdStmt.setInt(2, pageNumber);
+				int pageId;
+				try (ResultSet pageIdRS = pageIdStmt.executeQuery()) {
+					if (!pageIdRS.next()) {
+						throw new SQLException("Page not found for the given fileId and pageNumber");
+					}
+					pageId = pageIdRS.getInt("pageId");
+					String stored = pageIdRS.getString("pageContent");
+					if (!stored.equals(baseline)) {
+						delta = TokenDelta.between(stored, content);
+						PageAnalysis current = analyzeWords(pageNumber, delta.getAdded());
+						current.setPklScores(analysis.getPklScores());
+						current.setPmiScores(analysis.getPmiScores());
+						analysis = current;
+						if (!blobStorage) {
+							removedWordIds = vocabulary.lookup(delta.getRemoved()).values();
+						}
+					}
+				}
+
+				// Update page content
+				pageStmt.setString(1, content);
+				pageStmt.setString(2, pageHash);
+				pageStmt.setInt(3, pageId);
+				pageStmt.executeUpdate();
+
+				// Morphology rows change only for the words that came and went; PKL and PMI depend on
+				// neighbouring words, so they are replaced for the whole page
+				if (blobStorage) {
+					replaceAnalysisBlob(conn, fileId, pageId, pageNumber, content, delta, analysis);
+				} else {
+					replaceAnalysisRows(conn, fileId, pageId, removedWordIds, analysis);
+				}
+
+				// Update the document-frequency index and TF-IDF from this file only
+				String fileContent = getFileContent(conn, fileId);
+				index.replaceDocument(conn, fileId, DocumentFrequencyIndex.termsOf(fileContent));
+				hashStmt.setString(1, HashCalculator.calculateHash(fileContent));
+				hashStmt.setInt(2, fileId);
+				hashStmt.executeUpdate();
+
+				tfidfStmt.setDouble(1, index.tfidf(conn, fileId, fileContent));
+				tfidfStmt.setInt(2, fileId);
+				tfidfStmt.executeUpdate();
+			}
 
 			conn.commit();
 			return true;
 		} catch (Exception e) {
 			try {
-
-				conn.rollback();
-
+				if (conn != null) {
+					conn.rollback();
+				}
 			} catch (SQLException rollbackEx) {
 				rollbackEx.printStackTrace();
 				LOGGER.error(rollbackEx.getMessage());
@@ -437,23 +837,395 @@ public class EditorDBDAO implements IEditorDBDAO {
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
 			return false;
+		} finally {
+			closeConnection(conn);
+		}
+	}
+
+	private void replaceAnalysisRows(Connection conn, int fileId, int pageId, Collection<Integer> removedWordIds,
+			PageAnalysis analysis) throws SQLException {
+		for (AnalyticsTable table : AnalyticsTable.values()) {
+			if (table.isScore()) {
+				try (PreparedStatement deleteStmt = conn.prepareStatement(DELETE_PAGE_ROWS_QUERIES.get(table))) {
+					bindPage(deleteStmt, 1, fileId, pageId);
+					deleteStmt.executeUpdate();
+				}
+			} else {
+				deleteWordRows(conn, table, fileId, pageId, removedWordIds);
+			}
+		}
+		try (AnalyticsBatchWriter writer = new AnalyticsBatchWriter(conn)) {
+			writer.addAnalytics(fileId, pageId, analysis);
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Applies a token delta to the stored analysis blob of a page. A page
+	 * without a blob (stored before blob mode was switched on) is analysed in
+	 * full once.
+	 */
+	private void replaceAnalysisBlob(Connection conn, int fileId, int pageId, int pageNumber, String content,
+			TokenDelta delta, PageAnalysis added) throws SQLException {
+		PageAnalysis merged = null;
+		try (PreparedStatement stmt = conn.prepareStatement(LOCK_ANALYSIS_BLOB_QUERY)) {
+			bindPage(stmt, 1, fileId, pageId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (rs.next()) {
+					merged = AnalyticsBlobCodec.decode(rs.getBytes("analysis"), pageId, pageNumber);
+				}
+			}
+		}
+
+		if (merged == null) {
+			merged = analyzeWords(pageNumber, TokenDelta.tokens(content));
+		} else {
+			for (String word : delta.getRemoved()) {
+				merged.getPosTags().remove(word);
+				merged.getLemmas().remove(word);
+				merged.getRoots().remove(word);
+				merged.getSegments().remove(word);
+				merged.getStems().remove(word);
+			}
+			merged.getPosTags().putAll(added.getPosTags());
+			merged.getLemmas().putAll(added.getLemmas());
+			merged.getRoots().putAll(added.getRoots());
+			merged.getSegments().putAll(added.getSegments());
+			merged.getStems().putAll(added.getStems());
+		}
+		merged.setPklScores(added.getPklScores());
+		merged.setPmiScores(added.getPmiScores());
+
+		try (PreparedStatement stmt = conn.prepareStatement(UPSERT_ANALYSIS_BLOB_QUERY)) {
+			int index = bindPage(stmt, 1, fileId, pageId);
+			stmt.setInt(index, AnalyticsBlobCodec.VERSION);
+			stmt.setBytes(index + 1, AnalyticsBlobCodec.encode(merged));
+			stmt.executeUpdate();
+		}
+	}
+
+	/**
+	 * Looks the keyword up in the full-text index on pages.pageContent, so only
+	 * the first matching page of each file leaves the database.
+	 */
+	@Override
+	public List<SearchResult> searchPagesInDB(String keyword) {
+		List<SearchResult> results = new ArrayList<>();
+		// Quoted, so characters in the keyword are not read as boolean-mode operators
+		String phrase = "\"" + keyword.replace("\"", " ") + "\"";
+		int maxFiles = EditorConfig.getInt("search.maxFiles", 1000);
+		int files = 0;
+		try (Connection conn = database.getConnection(); PreparedStatement stmt = conn.prepareStatement(SEARCH_PAGES_QUERY)) {
+			stmt.setString(1, phrase);
+			stmt.setInt(2, maxFiles);
+			stmt.setFetchSize(EditorConfig.getInt("db.fetchSize", 500));
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					files++;
+					int fileId = rs.getInt("fileId");
+					String fileName = rs.getString("fileName");
+					SearchResult result = KeywordMatcher.match(fileId, fileName, rs.getInt("pageNumber"),
+							rs.getString("pageContent"), keyword);
+					if (result == null) {
+						// The index matched another form of the word; a later page may still hold it
+						result = nextMatchingPage(conn, fileId, fileName, rs.getInt("pageNumber"), phrase, keyword);
+					}
+					if (result != null) {
+						results.add(result);
+					}
+				}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+		if (files >= maxFiles) {
+			LOGGER.warn("Search for " + keyword + " stopped after " + maxFiles + " files; more files may match");
+		}
+		return results;
+	}
+
+	private SearchResult nextMatchingPage(Connection conn, int fileId, String fileName, int pageNumber, String phrase,
+			String keyword) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(NEXT_MATCHING_PAGE_QUERY)) {
+			while (true) {
+				stmt.setInt(1, fileId);
+				stmt.setInt(2, pageNumber);
+				stmt.setString(3, phrase);
+				try (ResultSet rs = stmt.executeQuery()) {
+					if (!rs.next()) {
+						return null;
+					}
+					pageNumber = rs.getInt("pageNumber");
+					SearchResult result = KeywordMatcher.match(fileId, fileName, pageNumber, rs.getString("pageContent"),
+							keyword);
+					if (result != null) {
+						return result;
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public PageAnalysis getPageAnalysisFromDB(int pageId) {
+		try (Connection conn = database.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(PAGE_ANALYSIS_QUERY)) {
+			stmt.setInt(1, pageId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.next()) {
+					return null;
+				}
+				int pageNumber = rs.getInt("pageNumber");
+				byte[] blob = rs.getBytes("analysis");
+				PageAnalysis analysis = blob != null ? AnalyticsBlobCodec.decode(blob, pageId, pageNumber)
+						: readAnalysisRows(conn, rs.getInt("fileId"), pageId, pageNumber);
+				analysis.setPageContent(rs.getString("pageContent"));
+				return analysis;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	private PageAnalysis readAnalysisRows(Connection conn, int fileId, int pageId, int pageNumber)
+			throws SQLException {
+		PageAnalysis analysis = new PageAnalysis(pageId, pageNumber, null);
+		Map<String, List<String>> posTags = new HashMap<>();
+		Map<AnalyticsTable, Map<String, String>> words = new HashMap<>();
+		Map<AnalyticsTable, Map<String, Double>> scores = new HashMap<>();
+
+		for (AnalyticsTable table : AnalyticsTable.values()) {
+			Map<String, String> wordValues = new HashMap<>();
+			Map<String, Double> scoreValues = new LinkedHashMap<>();
+			try (PreparedStatement stmt = conn.prepareStatement(SELECT_PAGE_ROWS_QUERIES.get(table))) {
+				bindPage(stmt, 1, fileId, pageId);
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						String word = rs.getString("word");
+						if (table == AnalyticsTable.POS) {
+							String tags = rs.getString("value");
+							posTags.put(word, tags == null ? new ArrayList<String>()
+									: new ArrayList<>(Arrays.asList(tags.split("\\|"))));
+						} else if (table.isScore()) {
+							scoreValues.put(word, rs.getDouble("value"));
+						} else {
+							wordValues.put(word, rs.getString("value"));
+						}
+					}
+				}
+			}
+			words.put(table, wordValues);
+			scores.put(table, scoreValues);
+		}
+
+		analysis.setPosTags(posTags);
+		analysis.setLemmas(words.get(AnalyticsTable.LEMMA));
+		analysis.setRoots(words.get(AnalyticsTable.ROOT));
+		analysis.setSegments(words.get(AnalyticsTable.SEGMENT));
+		analysis.setStems(words.get(AnalyticsTable.STEM));
+		analysis.setPklScores(scores.get(AnalyticsTable.PKL));
+		analysis.setPmiScores(scores.get(AnalyticsTable.PMI));
+		return analysis;
+	}
+
+	/**
+	 * Runs the per-word analysers over the given words only. The analysers
+	 * look at each token on its own, so the rows equal those a full page run
+	 * would produce for these words.
+	 */
+	private PageAnalysis analyzeWords(int pageNumber, Set<String> words) {
+		PageAnalysis analysis = new PageAnalysis(0, pageNumber, null);
+		analysis.setPosTags(new HashMap<String, List<String>>());
+		analysis.setLemmas(new HashMap<String, String>());
+		analysis.setRoots(new HashMap<String, String>());
+		analysis.setSegments(new HashMap<String, String>());
+		analysis.setStems(new HashMap<String, String>());
+
+		List<String> texts = new ArrayList<>();
+		List<String> nonEmpty = new ArrayList<>();
+		for (String word : words) {
+			if (word.isEmpty()) {
+				// The leading empty token of text starting with whitespace only survives as a text of its own
+				texts.add(word);
+			} else {
+				nonEmpty.add(word);
+			}
+		}
+		if (!nonEmpty.isEmpty()) {
+			texts.add(String.join(" ", nonEmpty));
+		}
+
+		for (String text : texts) {
+			analysis.getPosTags().putAll(POSTagger.extractPOS(text));
+			analysis.getLemmas().putAll(Lemmatization.lemmatizeWords(text));
+			analysis.getRoots().putAll(RootExtraction.extractRoots(text));
+			analysis.getSegments().putAll(WordSegmentation.extractSegments(text));
+			analysis.getStems().putAll(Stemmation.stemWords(text));
+		}
+		return analysis;
+	}
+
+	private void deleteWordRows(Connection conn, AnalyticsTable table, int fileId, int pageId,
+			Collection<Integer> wordIds) throws SQLException {
+		if (wordIds.isEmpty()) {
+			return;
+		}
+		List<Integer> remaining = new ArrayList<>(wordIds);
+		try (PreparedStatement deleteStmt = conn.prepareStatement(DELETE_WORD_ROWS_QUERIES.get(table))) {
+			for (int start = 0; start < remaining.size(); start += WORD_CHUNK_SIZE) {
+				List<Integer> chunk = remaining.subList(start, Math.min(remaining.size(), start + WORD_CHUNK_SIZE));
+				int index = bindPage(deleteStmt, 1, fileId, pageId);
+				for (int i = 0; i < WORD_CHUNK_SIZE; i++) {
+					// Repeating the last id pads the IN list without matching other rows
+					deleteStmt.setInt(index + i, chunk.get(Math.min(i, chunk.size() - 1)));
+				}
+				deleteStmt.executeUpdate();
+			}
+		}
+	}
+
+	// Copies the analytics rows of one file's pages to the pages with the same numbers in another file
+	private static String copyAnalyticsQuery(String table, String columns) {
+		String select = ("a." + columns.replace(", ", ", a."));
+		return "INSERT INTO " + table + " (" + (PARTITIONED ? "fileId, pageId" : "pageId") + ", " + columns + ") SELECT "
+				+ (PARTITIONED ? "np.fileId, np.pageId" : "np.pageId") + ", " + select + " FROM " + table + " a "
+				+ "JOIN pages sp ON sp.pageId = a.pageId JOIN pages np ON np.pageNumber = sp.pageNumber "
+				+ "WHERE " + (PARTITIONED ? "a.fileId = ? AND " : "") + "sp.fileId = ? AND np.fileId = ?";
+	}
+
+	private static void bindCopy(PreparedStatement stmt, int sourceFileId, int fileId) throws SQLException {
+		int index = 1;
+		if (PARTITIONED) {
+			stmt.setInt(index++, sourceFileId);
+		}
+		stmt.setInt(index++, sourceFileId);
+		stmt.setInt(index, fileId);
+	}
+
+	// Binds the PAGE_ROW_FILTER parameters and returns the next parameter index
+	private static int bindPage(PreparedStatement stmt, int index, int fileId, int pageId) throws SQLException {
+		if (PARTITIONED) {
+			stmt.setInt(index++, fileId);
+		}
+		stmt.setInt(index++, pageId);
+		return index;
+	}
+
+	/**
+	 * Deletes the analytics rows of a file from each partitioned table. Without
+	 * partitioning they go with their pages through the foreign keys.
+	 */
+	private void deleteAnalytics(Connection conn, int fileId) throws SQLException {
+		if (!PARTITIONED) {
+			return;
+		}
+		List<String> tables = new ArrayList<>();
+		for (AnalyticsTable table : AnalyticsTable.values()) {
+			tables.add(table.getTableName());
+		}
+		tables.add("pageanalytics");
+		for (String table : tables) {
+			try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE fileId = ?")) {
+				stmt.setInt(1, fileId);
+				stmt.executeUpdate();
+			}
+		}
+	}
+
+	private String getPageContent(int fileId, int pageNumber) {
+		try (Connection conn = database.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(PAGE_CONTENT_QUERY)) {
+			stmt.setInt(1, fileId);
+			stmt.setInt(2, pageNumber);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getString("pageContent") : null;
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	private boolean isPageUnchanged(int fileId, String fileName, int pageNumber, String pageHash) {
+		try (Connection conn = database.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(PAGE_STATE_QUERY)) {
+			stmt.setInt(1, fileId);
+			stmt.setInt(2, pageNumber);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() && pageHash.equals(rs.getString("pageHash"))
+						&& rs.getString("fileName").equals(fileName);
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
 		}
 	}
 
+	/**
+	 * Hides the file at once and leaves its rows to {@link FilePurger}, so a
+	 * large file is not deleted in one long transaction while the editor waits.
+	 */
 	@Override
 	public boolean deleteFileInDB(int id) {
-		String query = "DELETE FROM FILES WHERE fileId = ?";
-		try (PreparedStatement fileStmt = conn.prepareStatement(query)) {
+		boolean deleted = softDeleteFile(id);
+		FilePurger.getInstance().wake();
+		return deleted;
+	}
 
-			fileStmt.setInt(1, id);
-			int rowsAffected = fileStmt.executeUpdate();
+	@Override
+	public boolean deleteFilesInDB(List<Integer> ids) {
+		boolean deleted = true;
+		for (int id : ids) {
+			deleted &= softDeleteFile(id);
+		}
+		FilePurger.getInstance().wake();
+		return deleted;
+	}
+
+	private boolean softDeleteFile(int id) {
+		String query = "UPDATE files SET isDeleted = 1, deletedAt = CURRENT_TIMESTAMP(), lastModified = lastModified "
+				+ "WHERE fileId = ? AND isDeleted = 0";
+		// Saves to the file finish first; later ones see it deleted and write nothing
+		Lock fileLock = FILE_LOCKS.forFile(id);
+		fileLock.lock();
+		Connection conn = null;
+		try {
+			conn = database.getConnection();
+			conn.setAutoCommit(false);
 
+			int rowsAffected;
+			try (PreparedStatement fileStmt = conn.prepareStatement(query)) {
+				fileStmt.setInt(1, id);
+				rowsAffected = fileStmt.executeUpdate();
+			}
+			if (rowsAffected > 0) {
+				DocumentFrequencyIndex.getInstance().removeDocument(conn, id);
+			}
+
+			conn.commit();
 			return rowsAffected > 0;
 
 		} catch (SQLException e) {
+			try {
+				if (conn != null) {
+					conn.rollback();
+				}
+			} catch (SQLException rollbackEx) {
+				rollbackEx.printStackTrace();
+				LOGGER.error(rollbackEx.getMessage());
+			}
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
 			return false;
+		} finally {
+			closeConnection(conn);
+			fileLock.unlock();
 		}
 	}
 //	public boolean deleteFileInDB(int id) {
@@ -478,54 +1250,112 @@ public class EditorDBDAO implements IEditorDBDAO {
 	@Override
 	public List<Documents> getFilesFromDB() {
 		List<Documents> documents = new ArrayList<>();
+		String query = "SELECT f.fileId, f.fileName, f.fileHash, f.dateCreated, f.lastModified, "
+				+ "p.pageId, p.pageNumber, p.pageContent FROM files f LEFT JOIN pages p ON p.fileId = f.fileId "
+				+ "WHERE f.isDeleted = 0 ORDER BY f.fileId, p.pageNumber";
+
+		// One ordered join, streamed in fetch-size chunks, grouped into documents as rows arrive
+		try (Connection conn = database.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+						ResultSet.CONCUR_READ_ONLY)) {
+			stmt.setFetchSize(EditorConfig.getInt("db.fetchSize", 500));
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				Documents current = null;
+				List<Pages> pages = null;
+
+				while (rs.next()) {
+					int id = rs.getInt("fileId");
+					if (current == null || current.getId() != id) {
+						pages = new ArrayList<Pages>();
+						current = new Documents(id, rs.getString("fileName"), rs.getString("fileHash"),
+								rs.getString("lastModified"), rs.getString("dateCreated"), pages);
+						documents.add(current);
+					}
+
+					int pageId = rs.getInt("pageId");
+					if (!rs.wasNull()) {
+						pages.add(new Pages(pageId, id, rs.getInt("pageNumber"), rs.getString("pageContent")));
+					}
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+		}
+		return documents;
+	}
 
-		PreparedStatement stmt = null;
-		String query = null;
-		ResultSet rs;
-
-		try {
+	@Override
+	public Documents getFileFromDB(int id) {
+		Documents document = null;
+		String query = "SELECT f.fileId, f.fileName, f.fileHash, f.dateCreated, f.lastModified, "
+				+ "p.pageId, p.pageNumber, p.pageContent FROM files f LEFT JOIN pages p ON p.fileId = f.fileId "
+				+ "WHERE f.fileId = ? AND f.isDeleted = 0 ORDER BY p.pageNumber";
+
+		try (Connection conn = database.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, id);
+			try (ResultSet rs = stmt.executeQuery()) {
+				List<Pages> pages = new ArrayList<Pages>();
+				while (rs.next()) {
+					if (document == null) {
+						document = new Documents(id, rs.getString("fileName"), rs.getString("fileHash"),
+								rs.getString("lastModified"), rs.getString("dateCreated"), pages);
+					}
+					int pageId = rs.getInt("pageId");
+					if (!rs.wasNull()) {
+						pages.add(new Pages(pageId, id, rs.getInt("pageNumber"), rs.getString("pageContent")));
+					}
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+		}
+		return document;
+	}
 
-			conn.setAutoCommit(false);
-			query = "SELECT fileId, fileName, filehash, dateCreated, lastModified FROM files";
-			stmt = conn.prepareStatement(query);
-			rs = stmt.executeQuery();
+	@Override
+	public List<Documents> getFileSummariesFromDB() {
+		List<Documents> documents = new ArrayList<>();
+		String query = "SELECT fileId, fileName, fileHash, dateCreated, lastModified FROM files WHERE isDeleted = 0 ORDER BY fileId";
 
+		try (Connection conn = database.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery()) {
 			while (rs.next()) {
-				int id = rs.getInt("fileId");
-				String name = rs.getString("fileName");
-				String hash = rs.getString("fileHash");
-				String lastModified = rs.getString("lastModified");
-				String dateCreated = rs.getString("dateCreated");
-
-				String query1 = "SELECT pageId, fileId, pageNumber, pageContent FROM pages where fileId = ?";
-				PreparedStatement stmt1 = conn.prepareStatement(query1);
-				stmt1.setInt(1, id);
-				ResultSet rs1 = stmt1.executeQuery();
-				List<Pages> pages = new ArrayList<Pages>();
+				documents.add(new Documents(rs.getInt("fileId"), rs.getString("fileName"), rs.getString("fileHash"),
+						rs.getString("lastModified"), rs.getString("dateCreated"), this::getPagesFromDB));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+		}
+		return documents;
+	}
 
-				while (rs1.next()) {
-					pages.add(new Pages(rs1.getInt("pageId"), rs1.getInt("fileId"), rs1.getInt("pageNumber"),
-							rs1.getString("pageContent")));
+	@Override
+	public List<Pages> getPagesFromDB(int fileId) {
+		List<Pages> pages = new ArrayList<>();
+		try (Connection conn = database.getConnection(); PreparedStatement stmt = conn.prepareStatement(PAGES_QUERY)) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					pages.add(new Pages(rs.getInt("pageId"), fileId, rs.getInt("pageNumber"),
+							rs.getString("pageContent")));
 				}
-
-				documents.add(new Documents(id, name, hash, lastModified, dateCreated, pages));
 			}
-			conn.commit();
 		} catch (Exception e) {
-			try {
-				conn.rollback();
-			} catch (SQLException e1) {
-				e1.printStackTrace();
-			}
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
 		}
-		return documents;
+		return pages;
 	}
 
 	@Override
 	public String transliterateInDB(int pageId, String arabicText) {
 		String content;
+		Connection conn = null;
 		String deleteQuery = "DELETE FROM transliteratedpages WHERE pageId = ?";
 		String insertQuery = "INSERT INTO transliteratedpages (pageId, transliteratedText) VALUES (?, ?)";
 
@@ -534,6 +1364,7 @@ public class EditorDBDAO implements IEditorDBDAO {
 			content = Transliteration.transliterate(arabicText);
 
 			// Begin transaction
+			conn = database.getConnection();
 			conn.setAutoCommit(false);
 
 			// Delete existing entries
@@ -557,50 +1388,175 @@ public class EditorDBDAO implements IEditorDBDAO {
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
 			try {
-
-				conn.rollback();
-
+				if (conn != null) {
+					conn.rollback();
+				}
 			} catch (SQLException rollbackEx) {
 				rollbackEx.printStackTrace();
 				LOGGER.error(rollbackEx.getMessage());
 			}
 			return null;
+		} finally {
+			closeConnection(conn);
 		}
 	}
 
-	private List<String> getAllExistingFilesContent(Connection conn) throws SQLException {
-		List<String> allFilesContent = new ArrayList<>();
-		String query = "SELECT f.fileId, GROUP_CONCAT(p.pageContent ORDER BY p.pageNumber SEPARATOR '') AS fileContent "
-				+ "FROM files f " + "JOIN pages p ON f.fileId = p.fileId " + "GROUP BY f.fileId";
+	private void closeSpool(AnalysisSpool spool) {
+		if (spool != null) {
+			try {
+				spool.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+				LOGGER.error(e.getMessage());
+			}
+		}
+	}
 
-		try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
-			while (rs.next()) {
-				allFilesContent.add(rs.getString("fileContent"));
+	private void closeConnection(Connection conn) {
+		if (conn != null) {
+			try {
+				conn.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+				LOGGER.error(e.getMessage());
 			}
 		}
-		return allFilesContent;
 	}
 
+	private String getFileContent(Connection conn, int fileId) throws SQLException {
+		StringBuilder content = new StringBuilder();
+		try (PreparedStatement stmt = conn.prepareStatement(FILE_CONTENT_QUERY)) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					content.append(rs.getString("pageContent"));
+				}
+			}
+		}
+		return content.toString();
+	}
+
+	/**
+	 * Pages with a word whose stored root is {@code root}. Like the other
+	 * corpus queries it reads the analytics tables, so it needs
+	 * analytics.storage = rows.
+	 */
 	@Override
-	public synchronized Map<String, String> lemmatizeWords(String text) {
+	public List<Pages> getPagesByRootFromDB(String root) {
+		if (!hasAnalyticsRows()) {
+			return null;
+		}
+		List<Pages> pages = new ArrayList<>();
+		try (Connection conn = database.getConnection(); PreparedStatement stmt = conn.prepareStatement(PAGES_BY_ROOT_QUERY)) {
+			stmt.setString(1, root);
+			stmt.setInt(2, EditorConfig.getInt("search.maxPages", 1000));
+			stmt.setFetchSize(EditorConfig.getInt("db.fetchSize", 500));
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					pages.add(new Pages(rs.getInt("pageId"), rs.getInt("fileId"), rs.getInt("pageNumber"),
+							rs.getString("pageContent")));
+				}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+		return pages;
+	}
+
+	/**
+	 * For each file, how many of its pages' distinct words have the lemma
+	 * {@code lemma}.
+	 */
+	@Override
+	public Map<Integer, Integer> getLemmaCountsPerFileFromDB(String lemma) {
+		if (!hasAnalyticsRows()) {
+			return null;
+		}
+		Map<Integer, Integer> counts = new LinkedHashMap<>();
+		try (Connection conn = database.getConnection(); PreparedStatement stmt = conn.prepareStatement(LEMMA_COUNTS_QUERY)) {
+			stmt.setString(1, lemma);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					counts.put(rs.getInt("fileId"), rs.getInt("matches"));
+				}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+		return counts;
+	}
+
+	/**
+	 * Distinct stored words whose main part-of-speech tag is {@code tag}.
+	 */
+	@Override
+	public List<String> getWordsByPOSFromDB(String tag) {
+		if (!hasAnalyticsRows()) {
+			return null;
+		}
+		List<String> words = new ArrayList<>();
+		try (Connection conn = database.getConnection(); PreparedStatement stmt = conn.prepareStatement(WORDS_BY_POS_QUERY)) {
+			stmt.setString(1, tag);
+			stmt.setString(2, tag.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "|%");
+			stmt.setInt(3, EditorConfig.getInt("search.maxWords", 10000));
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					words.add(rs.getString("word"));
+				}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+		return words;
+	}
+
+	private boolean hasAnalyticsRows() {
+		if (AnalyticsBlobCodec.isEnabled()) {
+			LOGGER.error("Corpus queries read the analytics tables, which are not written with analytics.storage = blob");
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public double getTFIDFScoreFromDB(int fileId) {
+		try (Connection conn = database.getConnection()) {
+			DocumentFrequencyIndex index = DocumentFrequencyIndex.getInstance();
+			index.ensureBackfilled();
+			return index.tfidf(conn, fileId, getFileContent(conn, fileId));
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return 0.0;
+		}
+	}
+
+	@Override
+	public Map<String, String> lemmatizeWords(String text) {
 		// TODO Auto-generated method stub
 		return Lemmatization.lemmatizeWords(PreProcessText.preprocessText(text));
 	}
 
 	@Override
-	public synchronized Map<String, List<String>> extractPOS(String text) {
+	public Map<String, List<String>> extractPOS(String text) {
 		// TODO Auto-generated method stub
 		return POSTagger.extractPOS(PreProcessText.preprocessText(text));
 	}
 
 	@Override
-	public synchronized Map<String, String> extractRoots(String text) {
+	public Map<String, String> extractRoots(String text) {
 		// TODO Auto-generated method stub
 		return RootExtraction.extractRoots(PreProcessText.preprocessText(text));
 	}
 
 	@Override
-	public synchronized double performTFIDF(List<String> unSelectedDocsContent, String selectedDocContent) {
+	public double performTFIDF(List<String> unSelectedDocsContent, String selectedDocContent) {
 		TFIDFCalculator tfidf = new TFIDFCalculator();
 		for (String unSelectedDocContent : unSelectedDocsContent) {
 			tfidf.addDocumentToCorpus(unSelectedDocContent);
@@ -609,7 +1565,7 @@ public class EditorDBDAO implements IEditorDBDAO {
 	}
 
 	@Override
-	public synchronized Map<String, Double> performPMI(String content) {
+	public Map<String, Double> performPMI(String content) {
 		// TODO Auto-generated method stub
 		PMICalculator pmi = new PMICalculator(content);
 		Map<String, Double> pmiScores = pmi.calculatePMIForAllBigrams();
@@ -618,7 +1574,7 @@ public class EditorDBDAO implements IEditorDBDAO {
 	}
 
 	@Override
-	public synchronized Map<String, Double> performPKL(String content) {
+	public Map<String, Double> performPKL(String content) {
 		// TODO Auto-generated method stub
 		PKLCalculator pkl = new PKLCalculator(content);
 		Map<String, Double> pklScores = pkl.calculatePKLForAllWords();
@@ -626,15 +1582,27 @@ public class EditorDBDAO implements IEditorDBDAO {
 	}
 
 	@Override
-	public synchronized Map<String, String> stemWords(String text) {
+	public Map<String, String> stemWords(String text) {
 		// TODO Auto-generated method stub
 		return Stemmation.stemWords(PreProcessText.preprocessText(text));
 	}
 
 	@Override
-	public synchronized Map<String, String> segmentWords(String text) {
+	public Map<String, String> segmentWords(String text) {
 		// TODO Auto-generated method stub
 		return WordSegmentation.extractSegments(PreProcessText.preprocessText(text));
 	}
 
-}
\ No newline at end of file
+
+	private static final class ContentSummary {
+		private final String hash;
+		private final int pageCount;
+		private final Map<String, Integer> termCounts;
+
+		ContentSummary(String hash, int pageCount, Map<String, Integer> termCounts) {
+			this.hash = hash;
+			this.pageCount = pageCount;
+			this.termCounts = termCounts;
+		}
+	}
+}
@@ -0,0 +1,1168 @@
+package dal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dto.Documents;
+import dto.PageAnalysis;
+import dto.Pages;
+import dto.SearchResult;
+import pl.EditorPO;
+
+/**
+ * Editor storage that runs inside the application instead of on a database
+ * server. Files, pages, transliterations and analytics are held in memory and
+ * made durable by an append-only log in the directory set by embedded.path.
+ *
+ * Every change is one log record, written as its length, a CRC32 of its bytes
+ * and the bytes, and forced to disk before it is applied in memory. A change
+ * is therefore either replayed in full when the store is opened again or not
+ * at all; a torn record at the end of the log is cut off. Changes are
+ * serialised by a write lock and analysis runs before the lock is taken, as
+ * it runs before the transaction opens in {@link EditorDBDAO}. Analytics are
+ * kept in the {@link AnalyticsBlobCodec} form whatever analytics.storage says.
+ * Once enough records are superseded the log is rewritten on open with one
+ * record per file.
+ */
+public class EmbeddedEditorDAO implements IEditorDBDAO {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+	private static final String LOG_NAME = "editor.log";
+	private static final int HEADER_BYTES = 8;
+
+	private static final byte FILE_RECORD = 1;
+	private static final byte DELETE_RECORD = 2;
+	private static final byte PAGE_RECORD = 3;
+	private static final byte TRANSLITERATION_RECORD = 4;
+
+	private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	private final Path directory;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Integer, StoredFile> files = new TreeMap<>();
+	private final Map<Integer, StoredPage> pagesById = new HashMap<>();
+	private final Map<String, Integer> documentFrequencies = new HashMap<>();
+	private FileChannel log;
+	private int nextFileId = 1;
+	private int nextPageId = 1;
+
+	public EmbeddedEditorDAO() {
+		this(Paths.get(EditorConfig.getString("embedded.path", "editor-data")));
+	}
+
+	public EmbeddedEditorDAO(Path directory) {
+		this.directory = directory;
+		try {
+			open();
+		} catch (IOException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void open() throws IOException {
+		Files.createDirectories(directory);
+		Path path = directory.resolve(LOG_NAME);
+		int records = 0;
+		long valid = 0;
+		if (Files.exists(path)) {
+			try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+				DataInputStream data = new DataInputStream(in);
+				byte[] record;
+				while ((record = readRecord(data)) != null) {
+					apply(record);
+					valid += HEADER_BYTES + record.length;
+					records++;
+				}
+			}
+		}
+
+		log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		if (log.size() > valid) {
+			LOGGER.warn("Discarding " + (log.size() - valid) + " bytes of an incomplete record at the end of " + path);
+			log.truncate(valid);
+			log.force(true);
+		}
+		log.position(valid);
+
+		if (records > files.size() + EditorConfig.getInt("embedded.compactAfterRecords", 1000)) {
+			compact();
+		}
+		LOGGER.info("Opened embedded store " + directory + ": " + files.size() + " files from " + records + " records");
+	}
+
+	// Returns null at the end of the log or at a record that was not written completely
+	private static byte[] readRecord(DataInputStream in) throws IOException {
+		int length;
+		int checksum;
+		try {
+			length = in.readInt();
+			checksum = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		if (length < 0) {
+			return null;
+		}
+		byte[] record = new byte[length];
+		try {
+			in.readFully(record);
+		} catch (EOFException e) {
+			return null;
+		}
+		return checksum(record) == checksum ? record : null;
+	}
+
+	private static int checksum(byte[] record) {
+		CRC32 crc = new CRC32();
+		crc.update(record, 0, record.length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Rewrites the log as one record per stored file next to the old one and
+	 * swaps it in.
+	 */
+	private void compact() throws IOException {
+		Path path = directory.resolve(LOG_NAME);
+		Path compacted = directory.resolve(LOG_NAME + ".compact");
+		try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			for (StoredFile file : files.values()) {
+				RecordBuilder record = new RecordBuilder();
+				record.putFile(file);
+				writeRecord(out, record.toByteArray());
+			}
+			out.force(true);
+		}
+		log.close();
+		Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		log = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		log.position(log.size());
+		LOGGER.info("Compacted embedded store " + directory + " to " + log.size() + " bytes");
+	}
+
+	private static void writeRecord(FileChannel channel, byte[] record) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + record.length);
+		buffer.putInt(record.length).putInt(checksum(record)).put(record);
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Makes a record durable and then applies it. Call with the write lock
+	 * held. A record that could not be written completely is cut off again so
+	 * the next one starts on a record boundary.
+	 */
+	private void commit(RecordBuilder record) throws IOException {
+		byte[] bytes = record.toByteArray();
+		long start = log.position();
+		try {
+			writeRecord(log, bytes);
+			log.force(false);
+		} catch (IOException e) {
+			log.truncate(start);
+			log.position(start);
+			throw e;
+		}
+		apply(bytes);
+	}
+
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			log.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void apply(byte[] record) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+		int operations = in.readInt();
+		for (int i = 0; i < operations; i++) {
+			byte type = in.readByte();
+			switch (type) {
+			case FILE_RECORD:
+				putFile(readFile(in));
+				break;
+			case DELETE_RECORD:
+				removeFile(in.readInt());
+				break;
+			case PAGE_RECORD:
+				applyPage(in);
+				break;
+			case TRANSLITERATION_RECORD:
+				StoredPage page = pagesById.get(in.readInt());
+				String text = readText(in);
+				if (page != null) {
+					page.transliteration = text;
+				}
+				break;
+			default:
+				throw new IOException("Unknown record type " + type);
+			}
+		}
+	}
+
+	private void putFile(StoredFile file) {
+		removeFile(file.fileId);
+		files.put(file.fileId, file);
+		for (StoredPage page : file.pages) {
+			pagesById.put(page.pageId, page);
+			nextPageId = Math.max(nextPageId, page.pageId + 1);
+		}
+		addTerms(file.terms);
+		nextFileId = Math.max(nextFileId, file.fileId + 1);
+	}
+
+	private void removeFile(int fileId) {
+		StoredFile file = files.remove(fileId);
+		if (file != null) {
+			for (StoredPage page : file.pages) {
+				pagesById.remove(page.pageId);
+			}
+			removeTerms(file.terms);
+		}
+	}
+
+	private void applyPage(DataInputStream in) throws IOException {
+		int fileId = in.readInt();
+		String fileName = readText(in);
+		String fileHash = readText(in);
+		String lastModified = readText(in);
+		double tfidf = in.readDouble();
+		Set<String> terms = readTerms(in);
+		StoredPage page = readPage(in);
+
+		StoredFile file = files.get(fileId);
+		if (file == null) {
+			return;
+		}
+		for (int i = 0; i < file.pages.size(); i++) {
+			if (file.pages.get(i).pageId == page.pageId) {
+				file.pages.set(i, page);
+				pagesById.put(page.pageId, page);
+			}
+		}
+		removeTerms(file.terms);
+		addTerms(terms);
+		file.fileName = fileName;
+		file.fileHash = fileHash;
+		file.lastModified = lastModified;
+		file.tfidf = tfidf;
+		file.terms = terms;
+	}
+
+	private void addTerms(Set<String> terms) {
+		for (String term : terms) {
+			documentFrequencies.merge(term, 1, Integer::sum);
+		}
+	}
+
+	private void removeTerms(Set<String> terms) {
+		for (String term : terms) {
+			documentFrequencies.computeIfPresent(term, (key, df) -> df > 1 ? df - 1 : null);
+		}
+	}
+
+	@Override
+	public boolean createFileInDB(String nameOfFile, String content) {
+		return createFileInDB(nameOfFile, ContentSource.of(content));
+	}
+
+	@Override
+	public boolean createFileInDB(String nameOfFile, ContentSource source) {
+		PageLayout layout = PageLayout.configured();
+		try {
+			String content = readAll(source);
+			String hash = HashCalculator.calculateHash(content);
+
+			// Content that is already stored is linked to (or rejected) instead of analysed again
+			StoredFile duplicate;
+			lock.readLock().lock();
+			try {
+				duplicate = findFileByContent(hash, content);
+			} finally {
+				lock.readLock().unlock();
+			}
+			if (duplicate != null) {
+				if ("reject".equalsIgnoreCase(EditorConfig.getString("import.duplicatePolicy", "link"))) {
+					LOGGER.info("Rejected " + nameOfFile + ": same content as file " + duplicate.fileId);
+					return false;
+				}
+				return linkDuplicateFile(duplicate.fileId, nameOfFile, hash, content);
+			}
+
+			List<PageAnalysis> analyses = analyze(content, layout);
+
+			lock.writeLock().lock();
+			try {
+				StoredFile file = newFile(nameOfFile, hash, layout, content, analyses);
+				RecordBuilder record = new RecordBuilder();
+				record.putFile(file);
+				commit(record);
+				LOGGER.info("Imported " + nameOfFile + ": " + file.pages.size() + " pages");
+				return true;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		}
+	}
+
+	private boolean linkDuplicateFile(int sourceFileId, String nameOfFile, String hash, String content)
+			throws IOException {
+		lock.writeLock().lock();
+		try {
+			StoredFile source = files.get(sourceFileId);
+			if (source == null) {
+				return false;
+			}
+			String now = now();
+			StoredFile file = new StoredFile(nextFileId, nameOfFile, hash, source.pageLayout, now, now);
+			file.terms = DocumentFrequencyIndex.termsOf(TFIDFCalculator.uniqueTerms(content));
+			file.tfidf = tfidf(TFIDFCalculator.termCounts(content), null);
+			int pageId = nextPageId;
+			for (StoredPage page : source.pages) {
+				StoredPage copy = new StoredPage(pageId++, page.pageNumber, page.content, page.pageHash);
+				copy.transliteration = page.transliteration;
+				copy.analysis = page.analysis;
+				file.pages.add(copy);
+			}
+			RecordBuilder record = new RecordBuilder();
+			record.putFile(file);
+			commit(record);
+			LOGGER.info("Imported " + nameOfFile + " as a copy of file " + sourceFileId + " without re-analysis");
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Imports every file as one record, so the batch is stored as a whole or
+	 * not at all. Files whose content is already stored, or that repeat an
+	 * earlier file of the batch, are skipped. Each file is scored against the
+	 * files stored before it, including the earlier files of the batch.
+	 */
+	@Override
+	public int bulkLoadFilesInDB(List<File> files) {
+		PageLayout layout = PageLayout.configured();
+		try {
+			Set<String> hashes = new HashSet<>();
+			List<String> names = new ArrayList<>();
+			List<String> contents = new ArrayList<>();
+			List<String> fileHashes = new ArrayList<>();
+			List<List<PageAnalysis>> analyses = new ArrayList<>();
+			for (File file : files) {
+				String content = readAll(new TextFileSource(file));
+				String hash = HashCalculator.calculateHash(content);
+				boolean stored;
+				lock.readLock().lock();
+				try {
+					stored = findFileByContent(hash, content) != null;
+				} finally {
+					lock.readLock().unlock();
+				}
+				if (stored || !hashes.add(hash)) {
+					continue;
+				}
+				names.add(file.getName());
+				contents.add(content);
+				fileHashes.add(hash);
+				analyses.add(analyze(content, layout));
+			}
+
+			lock.writeLock().lock();
+			try {
+				Map<String, Integer> batchFrequencies = new HashMap<>();
+				RecordBuilder record = new RecordBuilder();
+				int fileId = nextFileId;
+				int pageId = nextPageId;
+				for (int i = 0; i < names.size(); i++) {
+					String content = contents.get(i);
+					StoredFile file = new StoredFile(fileId++, names.get(i), fileHashes.get(i), layout.toString(),
+							now(), now());
+					file.terms = DocumentFrequencyIndex.termsOf(TFIDFCalculator.uniqueTerms(content));
+					file.tfidf = tfidf(TFIDFCalculator.termCounts(content), null, batchFrequencies, i);
+					for (PageAnalysis analysis : analyses.get(i)) {
+						file.pages.add(newPage(pageId++, analysis));
+					}
+					for (String term : file.terms) {
+						batchFrequencies.merge(term, 1, Integer::sum);
+					}
+					record.putFile(file);
+				}
+				commit(record);
+				LOGGER.info("Bulk loaded " + names.size() + " files, skipped " + (files.size() - names.size()));
+				return names.size();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return -1;
+		}
+	}
+
+	@Override
+	public boolean updateFileInDB(int fileId, String fileName, int pageNumber, String content) {
+		try {
+			// An autosave of an untouched page must not write anything
+			String pageHash = HashCalculator.calculateHash(content);
+			int pageId;
+			lock.readLock().lock();
+			try {
+				StoredFile file = files.get(fileId);
+				StoredPage page = file == null ? null : file.page(pageNumber);
+				if (page == null) {
+					LOGGER.error("Page not found for the given fileId and pageNumber");
+					return false;
+				}
+				if (page.pageHash.equals(pageHash) && file.fileName.equals(fileName)) {
+					return true;
+				}
+				pageId = page.pageId;
+			} finally {
+				lock.readLock().unlock();
+			}
+
+			// Analysed before the lock is taken so readers are not held up meanwhile
+			PageAnalysis analysis = AnalysisPipeline.getInstance()
+					.collect(AnalysisPipeline.getInstance().submitAll(listOf(new Pages(pageId, fileId, pageNumber, content))))
+					.get(0);
+
+			lock.writeLock().lock();
+			try {
+				StoredFile file = files.get(fileId);
+				StoredPage current = file == null ? null : file.page(pageNumber);
+				if (current == null || current.pageId != pageId) {
+					LOGGER.error("Page not found for the given fileId and pageNumber");
+					return false;
+				}
+				StoredPage page = newPage(pageId, analysis);
+				// The transliteration is refreshed on request, as in the database
+				page.transliteration = current.transliteration;
+
+				StringBuilder fileContent = new StringBuilder();
+				for (StoredPage stored : file.pages) {
+					fileContent.append(stored.pageId == pageId ? content : stored.content);
+				}
+				String text = fileContent.toString();
+
+				RecordBuilder record = new RecordBuilder();
+				record.putPage(file, fileName, HashCalculator.calculateHash(text), now(),
+						tfidf(TFIDFCalculator.termCounts(text), file),
+						DocumentFrequencyIndex.termsOf(TFIDFCalculator.uniqueTerms(text)), page);
+				commit(record);
+				return true;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Rewrites the pages of a stored file in another layout and analyses them
+	 * again. Returns false, leaving the file untouched, if it was edited in
+	 * the meantime.
+	 */
+	@Override
+	public boolean repaginateFileInDB(int fileId, PageLayout layout) {
+		try {
+			String state;
+			String content;
+			lock.readLock().lock();
+			try {
+				StoredFile file = files.get(fileId);
+				if (file == null) {
+					return false;
+				}
+				state = file.fileHash + "@" + file.lastModified;
+				content = file.content();
+			} finally {
+				lock.readLock().unlock();
+			}
+
+			List<PageAnalysis> analyses = analyze(content, layout);
+
+			lock.writeLock().lock();
+			try {
+				StoredFile file = files.get(fileId);
+				if (file == null || !state.equals(file.fileHash + "@" + file.lastModified)) {
+					LOGGER.info("File " + fileId + " changed before it could be repaginated");
+					return false;
+				}
+				// Keep lastModified: the content itself does not change
+				StoredFile repaginated = new StoredFile(fileId, file.fileName, file.fileHash, layout.toString(),
+						file.dateCreated, file.lastModified);
+				repaginated.tfidf = file.tfidf;
+				repaginated.terms = file.terms;
+				int pageId = nextPageId;
+				for (PageAnalysis analysis : analyses) {
+					repaginated.pages.add(newPage(pageId++, analysis));
+				}
+				RecordBuilder record = new RecordBuilder();
+				record.putFile(repaginated);
+				commit(record);
+				LOGGER.info("Repaginated file " + fileId + " as " + layout + ": " + analyses.size() + " pages");
+				return true;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		}
+	}
+
+	@Override
+	public boolean deleteFileInDB(int id) {
+		lock.writeLock().lock();
+		try {
+			if (!files.containsKey(id)) {
+				return false;
+			}
+			RecordBuilder record = new RecordBuilder();
+			record.deleteFile(id);
+			commit(record);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// One record for all of them: after a crash either every file is deleted or none is
+	@Override
+	public boolean deleteFilesInDB(List<Integer> ids) {
+		lock.writeLock().lock();
+		try {
+			Set<Integer> unique = new HashSet<>(ids);
+			RecordBuilder record = new RecordBuilder();
+			int found = 0;
+			for (int id : unique) {
+				if (files.containsKey(id)) {
+					record.deleteFile(id);
+					found++;
+				}
+			}
+			if (found > 0) {
+				commit(record);
+			}
+			return found == unique.size();
+		} catch (IOException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public List<Documents> getFilesFromDB() {
+		List<Documents> documents = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			for (StoredFile file : files.values()) {
+				documents.add(new Documents(file.fileId, file.fileName, file.fileHash, file.lastModified,
+						file.dateCreated, file.copyPages()));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return documents;
+	}
+
+	@Override
+	public Documents getFileFromDB(int id) {
+		lock.readLock().lock();
+		try {
+			StoredFile file = files.get(id);
+			return file == null ? null
+					: new Documents(file.fileId, file.fileName, file.fileHash, file.lastModified, file.dateCreated,
+							file.copyPages());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<Documents> getFileSummariesFromDB() {
+		List<Documents> documents = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			for (StoredFile file : files.values()) {
+				documents.add(new Documents(file.fileId, file.fileName, file.fileHash, file.lastModified,
+						file.dateCreated, this::getPagesFromDB));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return documents;
+	}
+
+	@Override
+	public List<Pages> getPagesFromDB(int fileId) {
+		lock.readLock().lock();
+		try {
+			StoredFile file = files.get(fileId);
+			return file == null ? new ArrayList<Pages>() : file.copyPages();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public PageAnalysis getPageAnalysisFromDB(int pageId) {
+		lock.readLock().lock();
+		try {
+			StoredPage page = pagesById.get(pageId);
+			if (page == null || page.analysis == null) {
+				return null;
+			}
+			PageAnalysis analysis = AnalyticsBlobCodec.decode(page.analysis, pageId, page.pageNumber);
+			analysis.setPageContent(page.content);
+			return analysis;
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<SearchResult> searchPagesInDB(String keyword) {
+		List<SearchResult> results = new ArrayList<>();
+		int maxFiles = EditorConfig.getInt("search.maxFiles", 1000);
+		lock.readLock().lock();
+		try {
+			for (StoredFile file : files.values()) {
+				if (results.size() >= maxFiles) {
+					LOGGER.warn("Search for " + keyword + " stopped after " + maxFiles + " files; more files may match");
+					break;
+				}
+				// First matching page of each file only
+				for (StoredPage page : file.pages) {
+					SearchResult result = KeywordMatcher.match(file.fileId, file.fileName, page.pageNumber,
+							page.content, keyword);
+					if (result != null) {
+						results.add(result);
+						break;
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return results;
+	}
+
+	@Override
+	public List<Pages> getPagesByRootFromDB(String root) {
+		List<Pages> pages = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			for (StoredFile file : files.values()) {
+				for (StoredPage page : file.pages) {
+					PageAnalysis analysis = storedAnalysis(page);
+					if (analysis != null && analysis.getRoots().containsValue(root)) {
+						pages.add(new Pages(page.pageId, file.fileId, page.pageNumber, page.content));
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return pages;
+	}
+
+	@Override
+	public Map<Integer, Integer> getLemmaCountsPerFileFromDB(String lemma) {
+		Map<Integer, Integer> counts = new LinkedHashMap<>();
+		lock.readLock().lock();
+		try {
+			for (StoredFile file : files.values()) {
+				for (StoredPage page : file.pages) {
+					PageAnalysis analysis = storedAnalysis(page);
+					if (analysis == null) {
+						continue;
+					}
+					for (String value : analysis.getLemmas().values()) {
+						if (lemma.equals(value)) {
+							counts.merge(file.fileId, 1, Integer::sum);
+						}
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return counts;
+	}
+
+	@Override
+	public List<String> getWordsByPOSFromDB(String tag) {
+		Set<String> words = new TreeSet<>();
+		lock.readLock().lock();
+		try {
+			for (StoredPage page : pagesById.values()) {
+				PageAnalysis analysis = storedAnalysis(page);
+				if (analysis == null) {
+					continue;
+				}
+				for (Map.Entry<String, List<String>> entry : analysis.getPosTags().entrySet()) {
+					if (!entry.getValue().isEmpty() && tag.equals(entry.getValue().get(0))) {
+						words.add(entry.getKey());
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return new ArrayList<>(words);
+	}
+
+	// Call with the read lock held
+	private PageAnalysis storedAnalysis(StoredPage page) {
+		if (page.analysis == null) {
+			return null;
+		}
+		try {
+			return AnalyticsBlobCodec.decode(page.analysis, page.pageId, page.pageNumber);
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	@Override
+	public String transliterateInDB(int pageId, String arabicText) {
+		try {
+			String content = Transliteration.transliterate(arabicText);
+			lock.writeLock().lock();
+			try {
+				if (!pagesById.containsKey(pageId)) {
+					LOGGER.error("Page " + pageId + " not found");
+					return null;
+				}
+				RecordBuilder record = new RecordBuilder();
+				record.putTransliteration(pageId, content);
+				commit(record);
+				return content;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	@Override
+	public double getTFIDFScoreFromDB(int fileId) {
+		lock.readLock().lock();
+		try {
+			StoredFile file = files.get(fileId);
+			return file == null ? 0.0 : tfidf(TFIDFCalculator.termCounts(file.content()), file);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private double tfidf(Map<String, Integer> termCounts, StoredFile self) {
+		return tfidf(termCounts, self, new HashMap<String, Integer>(), 0);
+	}
+
+	/**
+	 * TF-IDF against every stored file except {@code self}, plus
+	 * {@code batchFiles} files of a batch that is not stored yet, whose
+	 * document frequencies are in {@code batchFrequencies}.
+	 */
+	private double tfidf(Map<String, Integer> termCounts, StoredFile self, Map<String, Integer> batchFrequencies,
+			int batchFiles) {
+		int totalDocs = files.size() + batchFiles;
+		if (self != null && !self.terms.isEmpty()) {
+			totalDocs--;
+		}
+		Map<String, Integer> frequencies = new HashMap<>();
+		for (String term : termCounts.keySet()) {
+			int df = documentFrequencies.getOrDefault(term, 0);
+			if (self != null && self.terms.contains(term)) {
+				df--;
+			}
+			df += batchFrequencies.getOrDefault(term, 0);
+			if (df > 0) {
+				frequencies.put(term, df);
+			}
+		}
+		double score = TFIDFCalculator.calculateDocumentTfIdf(termCounts, frequencies, totalDocs);
+		return (Double.isNaN(score) || Double.isInfinite(score)) ? 0.0 : score;
+	}
+
+	private StoredFile findFileByContent(String hash, String content) {
+		for (StoredFile file : files.values()) {
+			if (file.fileHash.equals(hash) && file.content().equals(content)) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	private StoredFile newFile(String nameOfFile, String hash, PageLayout layout, String content,
+			List<PageAnalysis> analyses) {
+		String now = now();
+		StoredFile file = new StoredFile(nextFileId, nameOfFile, hash, layout.toString(), now, now);
+		file.terms = DocumentFrequencyIndex.termsOf(TFIDFCalculator.uniqueTerms(content));
+		file.tfidf = tfidf(TFIDFCalculator.termCounts(content), null);
+		int pageId = nextPageId;
+		for (PageAnalysis analysis : analyses) {
+			file.pages.add(newPage(pageId++, analysis));
+		}
+		return file;
+	}
+
+	private static StoredPage newPage(int pageId, PageAnalysis analysis) {
+		String content = analysis.getPageContent();
+		String pageHash;
+		try {
+			pageHash = HashCalculator.calculateHash(content);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		StoredPage page = new StoredPage(pageId, analysis.getPageNumber(), content, pageHash);
+		page.transliteration = analysis.getTransliteratedText();
+		page.analysis = AnalyticsBlobCodec.encode(analysis);
+		return page;
+	}
+
+	private static List<PageAnalysis> analyze(String content, PageLayout layout) throws Exception {
+		List<Pages> pages = new ArrayList<>();
+		try (PageReader reader = new PageReader(new StringReader(content), layout)) {
+			Pages page;
+			while ((page = reader.next()) != null) {
+				pages.add(page);
+			}
+		}
+		return AnalysisPipeline.getInstance().analyze(pages);
+	}
+
+	private static List<Pages> listOf(Pages page) {
+		List<Pages> pages = new ArrayList<>();
+		pages.add(page);
+		return pages;
+	}
+
+	private static String readAll(ContentSource source) throws IOException {
+		StringBuilder content = new StringBuilder();
+		try (Reader reader = source.open()) {
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+				content.append(buffer, 0, read);
+			}
+		}
+		return content.toString();
+	}
+
+	private static String now() {
+		return LocalDateTime.now().format(TIMESTAMP);
+	}
+
+	@Override
+	public Map<String, String> lemmatizeWords(String text) {
+		return Lemmatization.lemmatizeWords(PreProcessText.preprocessText(text));
+	}
+
+	@Override
+	public Map<String, List<String>> extractPOS(String text) {
+		return POSTagger.extractPOS(PreProcessText.preprocessText(text));
+	}
+
+	@Override
+	public Map<String, String> extractRoots(String text) {
+		return RootExtraction.extractRoots(PreProcessText.preprocessText(text));
+	}
+
+	@Override
+	public double performTFIDF(List<String> unSelectedDocsContent, String selectedDocContent) {
+		TFIDFCalculator tfidf = new TFIDFCalculator();
+		for (String unSelectedDocContent : unSelectedDocsContent) {
+			tfidf.addDocumentToCorpus(unSelectedDocContent);
+		}
+		return tfidf.calculateDocumentTfIdf(selectedDocContent);
+	}
+
+	@Override
+	public Map<String, Double> performPMI(String content) {
+		return new PMICalculator(content).calculatePMIForAllBigrams();
+	}
+
+	@Override
+	public Map<String, Double> performPKL(String content) {
+		return new PKLCalculator(content).calculatePKLForAllWords();
+	}
+
+	@Override
+	public Map<String, String> stemWords(String text) {
+		return Stemmation.stemWords(PreProcessText.preprocessText(text));
+	}
+
+	@Override
+	public Map<String, String> segmentWords(String text) {
+		return WordSegmentation.extractSegments(PreProcessText.preprocessText(text));
+	}
+
+	private static StoredFile readFile(DataInputStream in) throws IOException {
+		StoredFile file = new StoredFile(in.readInt(), readText(in), readText(in), readText(in), readText(in),
+				readText(in));
+		file.tfidf = in.readDouble();
+		file.terms = readTerms(in);
+		int pageCount = in.readInt();
+		for (int i = 0; i < pageCount; i++) {
+			file.pages.add(readPage(in));
+		}
+		return file;
+	}
+
+	private static StoredPage readPage(DataInputStream in) throws IOException {
+		StoredPage page = new StoredPage(in.readInt(), in.readInt(), readText(in), readText(in));
+		page.transliteration = readText(in);
+		int length = in.readInt();
+		if (length >= 0) {
+			page.analysis = new byte[length];
+			in.readFully(page.analysis);
+		}
+		return page;
+	}
+
+	private static Set<String> readTerms(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		Set<String> terms = new HashSet<>(Math.max(16, count * 2));
+		for (int i = 0; i < count; i++) {
+			terms.add(readText(in));
+		}
+		return terms;
+	}
+
+	private static String readText(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The operations of one log record, applied together.
+	 */
+	private static final class RecordBuilder {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream out = new DataOutputStream(bytes);
+		private int operations = 0;
+
+		void putFile(StoredFile file) throws IOException {
+			out.writeByte(FILE_RECORD);
+			out.writeInt(file.fileId);
+			writeText(file.fileName);
+			writeText(file.fileHash);
+			writeText(file.pageLayout);
+			writeText(file.dateCreated);
+			writeText(file.lastModified);
+			out.writeDouble(file.tfidf);
+			writeTerms(file.terms);
+			out.writeInt(file.pages.size());
+			for (StoredPage page : file.pages) {
+				writePage(page);
+			}
+			operations++;
+		}
+
+		void deleteFile(int fileId) throws IOException {
+			out.writeByte(DELETE_RECORD);
+			out.writeInt(fileId);
+			operations++;
+		}
+
+		void putPage(StoredFile file, String fileName, String fileHash, String lastModified, double tfidf,
+				Set<String> terms, StoredPage page) throws IOException {
+			out.writeByte(PAGE_RECORD);
+			out.writeInt(file.fileId);
+			writeText(fileName);
+			writeText(fileHash);
+			writeText(lastModified);
+			out.writeDouble(tfidf);
+			writeTerms(terms);
+			writePage(page);
+			operations++;
+		}
+
+		void putTransliteration(int pageId, String text) throws IOException {
+			out.writeByte(TRANSLITERATION_RECORD);
+			out.writeInt(pageId);
+			writeText(text);
+			operations++;
+		}
+
+		private void writePage(StoredPage page) throws IOException {
+			out.writeInt(page.pageId);
+			out.writeInt(page.pageNumber);
+			writeText(page.content);
+			writeText(page.pageHash);
+			writeText(page.transliteration);
+			if (page.analysis == null) {
+				out.writeInt(-1);
+			} else {
+				out.writeInt(page.analysis.length);
+				out.write(page.analysis);
+			}
+		}
+
+		private void writeTerms(Set<String> terms) throws IOException {
+			out.writeInt(terms.size());
+			for (String term : terms) {
+				writeText(term);
+			}
+		}
+
+		private void writeText(String text) throws IOException {
+			if (text == null) {
+				out.writeInt(-1);
+				return;
+			}
+			byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(encoded.length);
+			out.write(encoded);
+		}
+
+		byte[] toByteArray() throws IOException {
+			out.flush();
+			byte[] body = bytes.toByteArray();
+			ByteBuffer record = ByteBuffer.allocate(4 + body.length);
+			record.putInt(operations).put(body);
+			return record.array();
+		}
+	}
+
+	private static final class StoredFile {
+		private final int fileId;
+		private String fileName;
+		private String fileHash;
+		private final String pageLayout;
+		private final String dateCreated;
+		private String lastModified;
+		private double tfidf;
+		private Set<String> terms = new HashSet<>();
+		private final List<StoredPage> pages = new ArrayList<>();
+
+		StoredFile(int fileId, String fileName, String fileHash, String pageLayout, String dateCreated,
+				String lastModified) {
+			this.fileId = fileId;
+			this.fileName = fileName;
+			this.fileHash = fileHash;
+			this.pageLayout = pageLayout;
+			this.dateCreated = dateCreated;
+			this.lastModified = lastModified;
+		}
+
+		StoredPage page(int pageNumber) {
+			for (StoredPage page : pages) {
+				if (page.pageNumber == pageNumber) {
+					return page;
+				}
+			}
+			return null;
+		}
+
+		String content() {
+			StringBuilder content = new StringBuilder();
+			for (StoredPage page : pages) {
+				content.append(page.content);
+			}
+			return content.toString();
+		}
+
+		List<Pages> copyPages() {
+			List<Pages> copies = new ArrayList<>(pages.size());
+			for (StoredPage page : pages) {
+				copies.add(new Pages(page.pageId, fileId, page.pageNumber, page.content));
+			}
+			return copies;
+		}
+	}
+
+	private static final class StoredPage {
+		private final int pageId;
+		private final int pageNumber;
+		private final String content;
+		private final String pageHash;
+		private String transliteration;
+		private byte[] analysis;
+
+		StoredPage(int pageId, int pageNumber, String content, String pageHash) {
+			this.pageId = pageId;
+			this.pageNumber = pageNumber;
+			this.content = content;
+			this.pageHash = pageHash;
+		}
+	}
+}
@@ -1,9 +1,13 @@
 package dal;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
 
 import dto.Documents;
+import dto.PageAnalysis;
+import dto.Pages;
+import dto.SearchResult;
 
 public class FacadeDAO implements IFacadeDAO {
 
@@ -18,21 +22,81 @@ public class FacadeDAO implements IFacadeDAO {
 		return mariaDB.createFileInDB(nameOfFile, content);
 	}
 
+	@Override
+	public boolean createFileInDB(String nameOfFile, ContentSource source) {
+		return mariaDB.createFileInDB(nameOfFile, source);
+	}
+
+	@Override
+	public int bulkLoadFilesInDB(List<File> files) {
+		return mariaDB.bulkLoadFilesInDB(files);
+	}
+
 	@Override
 	public boolean updateFileInDB(int id, String fileName, int pageNumber, String content) {
 		return mariaDB.updateFileInDB(id, fileName, pageNumber, content);
 	}
 
+	@Override
+	public boolean repaginateFileInDB(int fileId, PageLayout layout) {
+		return mariaDB.repaginateFileInDB(fileId, layout);
+	}
+
 	@Override
 	public boolean deleteFileInDB(int id) {
 		return mariaDB.deleteFileInDB(id);
 	}
 
+	@Override
+	public boolean deleteFilesInDB(List<Integer> ids) {
+		return mariaDB.deleteFilesInDB(ids);
+	}
+
 	@Override
 	public List<Documents> getFilesFromDB() {
 		return mariaDB.getFilesFromDB();
 	}
 
+	@Override
+	public Documents getFileFromDB(int id) {
+		return mariaDB.getFileFromDB(id);
+	}
+
+	@Override
+	public List<Documents> getFileSummariesFromDB() {
+		return mariaDB.getFileSummariesFromDB();
+	}
+
+	@Override
+	public List<Pages> getPagesFromDB(int fileId) {
+		return mariaDB.getPagesFromDB(fileId);
+	}
+
+	@Override
+	public PageAnalysis getPageAnalysisFromDB(int pageId) {
+		return mariaDB.getPageAnalysisFromDB(pageId);
+	}
+
+	@Override
+	public List<SearchResult> searchPagesInDB(String keyword) {
+		return mariaDB.searchPagesInDB(keyword);
+	}
+
+	@Override
+	public List<Pages> getPagesByRootFromDB(String root) {
+		return mariaDB.getPagesByRootFromDB(root);
+	}
+
+	@Override
+	public Map<Integer, Integer> getLemmaCountsPerFileFromDB(String lemma) {
+		return mariaDB.getLemmaCountsPerFileFromDB(lemma);
+	}
+
+	@Override
+	public List<String> getWordsByPOSFromDB(String tag) {
+		return mariaDB.getWordsByPOSFromDB(tag);
+	}
+
 	@Override
 	public String transliterateInDB(int pageId, String arabicText) {
 		// TODO Auto-generated method stub
@@ -64,6 +128,11 @@ public class FacadeDAO implements IFacadeDAO {
 		return mariaDB.performTFIDF(unSelectedDocsContent, selectedDocContent);
 	}
 
+	@Override
+	public double getTFIDFScoreFromDB(int fileId) {
+		return mariaDB.getTFIDFScoreFromDB(fileId);
+	}
+
 	@Override
 	public Map<String, Double> performPMI(String content) {
 		// TODO Auto-generated method stub
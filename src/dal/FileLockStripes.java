@@ -0,0 +1,29 @@
+package dal;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared out among files by id. Writes to one file are
+ * ordered by holding its lock, while writes to files on other stripes run in
+ * parallel. Two files may share a stripe; that only costs them parallelism.
+ */
+public class FileLockStripes {
+	private final ReentrantLock[] locks;
+
+	public FileLockStripes(int stripes) {
+		locks = new ReentrantLock[Math.max(1, stripes)];
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	public Lock forFile(int fileId) {
+		// File ids are sequential, so consecutive files land on different stripes
+		return locks[Math.floorMod(fileId, locks.length)];
+	}
+
+	public int size() {
+		return locks.length;
+	}
+}
@@ -0,0 +1,144 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.EditorPO;
+
+/**
+ * Removes the rows of soft-deleted files in the background. A deleted file
+ * is hidden at once by files.isDeleted; its analytics, pages and finally the
+ * file row itself are then deleted here in small auto-committed batches, with
+ * a pause after each, so no statement holds many row locks or keeps the
+ * editor's own queries waiting. The file row goes last, so a purge that is
+ * interrupted is picked up again on the next start.
+ */
+public class FilePurger implements Runnable {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+	private static FilePurger INSTANCE;
+
+	private final DatabaseConnection database;
+	private final int batchRows;
+	private final int batchPages;
+	private final long pauseMillis;
+	private final long idleMillis;
+	private final Object signal = new Object();
+	private boolean pending = true;
+	private Thread thread;
+
+	private FilePurger(DatabaseConnection database) {
+		this.database = database;
+		this.batchRows = Math.max(1, EditorConfig.getInt("purge.batchRows", 1000));
+		this.batchPages = Math.max(1, EditorConfig.getInt("purge.batchPages", 20));
+		this.pauseMillis = EditorConfig.getLong("purge.pauseMs", 200);
+		this.idleMillis = EditorConfig.getLong("purge.idleMs", 300000);
+	}
+
+	public static synchronized FilePurger getInstance() {
+		if (INSTANCE == null) {
+			INSTANCE = new FilePurger(DatabaseConnection.getInstance());
+		}
+		return INSTANCE;
+	}
+
+	public synchronized void start() {
+		if (thread != null && thread.isAlive()) {
+			return;
+		}
+		thread = new Thread(this, "purge");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Starts a purge pass now instead of at the next idle check.
+	 */
+	public void wake() {
+		synchronized (signal) {
+			pending = true;
+			signal.notifyAll();
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				synchronized (signal) {
+					if (!pending) {
+						signal.wait(idleMillis);
+					}
+					pending = false;
+				}
+				try {
+					int fileId;
+					while ((fileId = nextDeletedFile()) > 0) {
+						purge(fileId);
+					}
+				} catch (SQLException e) {
+					e.printStackTrace();
+					LOGGER.error(e.getMessage());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private int nextDeletedFile() throws SQLException {
+		String query = "SELECT fileId FROM files WHERE isDeleted = 1 ORDER BY deletedAt LIMIT 1";
+		try (Connection conn = database.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery()) {
+			return rs.next() ? rs.getInt("fileId") : 0;
+		}
+	}
+
+	private void purge(int fileId) throws SQLException, InterruptedException {
+		int removed = 0;
+		if (AnalyticsTable.isPartitioned()) {
+			// No foreign keys on the partitioned tables, so their rows do not go with the pages
+			List<String> tables = new ArrayList<>();
+			for (AnalyticsTable table : AnalyticsTable.values()) {
+				tables.add(table.getTableName());
+			}
+			tables.add("pageanalytics");
+			for (String table : tables) {
+				removed += deleteInBatches("DELETE FROM " + table + " WHERE fileId = ? LIMIT ?", fileId, batchRows);
+			}
+		}
+		// Few pages at a time: without partitioning each one cascades to its analytics rows
+		removed += deleteInBatches("DELETE FROM pages WHERE fileId = ? LIMIT ?", fileId, batchPages);
+		// Also takes the file's tfidf row through its foreign key
+		try (Connection conn = database.getConnection();
+				PreparedStatement stmt = conn.prepareStatement("DELETE FROM files WHERE fileId = ? AND isDeleted = 1")) {
+			stmt.setInt(1, fileId);
+			removed += stmt.executeUpdate();
+		}
+		LOGGER.info("Purged deleted file " + fileId + ": " + removed + " rows");
+	}
+
+	private int deleteInBatches(String query, int fileId, int batchSize) throws SQLException, InterruptedException {
+		int total = 0;
+		while (true) {
+			int deleted;
+			try (Connection conn = database.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+				stmt.setInt(1, fileId);
+				stmt.setInt(2, batchSize);
+				deleted = stmt.executeUpdate();
+			}
+			total += deleted;
+			if (deleted < batchSize) {
+				return total;
+			}
+			Thread.sleep(pauseMillis);
+		}
+	}
+}
@@ -12,6 +12,36 @@ public class HashCalculator {
 	        return hexHash;
 	    }
 
+	    /**
+	     * Builds the same hash as calculateHash for text that arrives in pieces.
+	     * A high surrogate at the end of a piece is held back until its pair
+	     * arrives, so pieces may be cut anywhere.
+	     */
+	    public static class Incremental {
+	        private final MessageDigest md;
+	        private String pendingHighSurrogate = "";
+
+	        public Incremental() throws Exception {
+	            md = MessageDigest.getInstance("MD5");
+	        }
+
+	        public void update(String piece) {
+	            String text = pendingHighSurrogate + piece;
+	            pendingHighSurrogate = "";
+	            if (!text.isEmpty() && Character.isHighSurrogate(text.charAt(text.length() - 1))) {
+	                pendingHighSurrogate = text.substring(text.length() - 1);
+	                text = text.substring(0, text.length() - 1);
+	            }
+	            md.update(text.getBytes(StandardCharsets.UTF_8));
+	        }
+
+	        public String finish() {
+	            md.update(pendingHighSurrogate.getBytes(StandardCharsets.UTF_8));
+	            pendingHighSurrogate = "";
+	            return bytesToHex(md.digest());
+	        }
+	    }
+
 	    private static String bytesToHex(byte[] bytes) {
 	        StringBuilder hexString = new StringBuilder();
 	        for (byte b : bytes) {
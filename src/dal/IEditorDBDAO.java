@@ -1,19 +1,48 @@
 package dal;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
 
 import dto.Documents;
+import dto.PageAnalysis;
+import dto.Pages;
+import dto.SearchResult;
 
 public interface IEditorDBDAO {
 	boolean createFileInDB(String nameOfFile, String content);
 
+	boolean createFileInDB(String nameOfFile, ContentSource source);
+
+	// Number of files loaded, or -1 if the load failed
+	int bulkLoadFilesInDB(List<File> files);
+
 	boolean updateFileInDB(int id, String fileName, int pageNumber, String content);
 
+	boolean repaginateFileInDB(int fileId, PageLayout layout);
+
 	boolean deleteFileInDB(int id);
 
+	boolean deleteFilesInDB(List<Integer> ids);
+
 	List<Documents> getFilesFromDB();
 
+	Documents getFileFromDB(int id);
+
+	List<Documents> getFileSummariesFromDB();
+
+	List<Pages> getPagesFromDB(int fileId);
+
+	PageAnalysis getPageAnalysisFromDB(int pageId);
+
+	List<SearchResult> searchPagesInDB(String keyword);
+
+	List<Pages> getPagesByRootFromDB(String root);
+
+	Map<Integer, Integer> getLemmaCountsPerFileFromDB(String lemma);
+
+	List<String> getWordsByPOSFromDB(String tag);
+
 	String transliterateInDB(int pageId, String arabicText);
 
 	Map<String, String> lemmatizeWords(String text);
@@ -24,6 +53,8 @@ public interface IEditorDBDAO {
 
 	double performTFIDF(List<String> unSelectedDocsContent, String selectedDocContent);
 
+	double getTFIDFScoreFromDB(int fileId);
+
 	Map<String, Double> performPMI(String content);
 
 	Map<String, Double> performPKL(String content);
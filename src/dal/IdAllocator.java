@@ -0,0 +1,89 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Hands out ids in contiguous blocks reserved from the idallocator table, so
+ * inserting rows needs no generated-key round trip per row and rows written
+ * with explicit ids never collide. Each table has its own row in idallocator.
+ * Blocks are reserved on their own auto-commit connection and are never
+ * returned; ids of a rolled back import are simply skipped.
+ */
+public class IdAllocator {
+	private static IdAllocator PAGES;
+	private static IdAllocator FILES;
+
+	private static final String SEED_QUERY = "INSERT IGNORE INTO idallocator (name, nextId) VALUES (?, 1)";
+
+	private final DatabaseConnection database;
+	private final String name;
+	private final String reserveQuery;
+	private final int blockSize;
+	private int nextId = 0;
+	private int limit = 0;
+	private boolean seeded = false;
+
+	private IdAllocator(DatabaseConnection database, String table, String idColumn, int blockSize) {
+		this.database = database;
+		this.name = table;
+		// Never below the ids already in the table, including rows written before the allocator
+		this.reserveQuery = "UPDATE idallocator SET nextId = LAST_INSERT_ID(GREATEST(nextId, (SELECT COALESCE(MAX("
+				+ idColumn + "), 0) + 1 FROM " + table + ")) + ?) WHERE name = ?";
+		this.blockSize = Math.max(1, blockSize);
+	}
+
+	public static synchronized IdAllocator forPages() {
+		if (PAGES == null) {
+			PAGES = new IdAllocator(DatabaseConnection.getInstance(), "pages", "pageId",
+					EditorConfig.getInt("db.pageIdBlockSize", 1000));
+		}
+		return PAGES;
+	}
+
+	public static synchronized IdAllocator forFiles() {
+		if (FILES == null) {
+			FILES = new IdAllocator(DatabaseConnection.getInstance(), "files", "fileId",
+					EditorConfig.getInt("db.fileIdBlockSize", 1));
+		}
+		return FILES;
+	}
+
+	/**
+	 * Reserves {@code count} consecutive ids and returns the first one.
+	 */
+	public synchronized int allocate(int count) throws SQLException {
+		if (limit - nextId < count) {
+			int reserve = Math.max(count, blockSize);
+			nextId = reserveBlock(reserve);
+			limit = nextId + reserve;
+		}
+		int first = nextId;
+		nextId += count;
+		return first;
+	}
+
+	private int reserveBlock(int size) throws SQLException {
+		try (Connection conn = database.getConnection()) {
+			if (!seeded) {
+				try (PreparedStatement seed = conn.prepareStatement(SEED_QUERY)) {
+					seed.setString(1, name);
+					seed.executeUpdate();
+				}
+				seeded = true;
+			}
+			try (PreparedStatement reserve = conn.prepareStatement(reserveQuery)) {
+				reserve.setInt(1, size);
+				reserve.setString(2, name);
+				reserve.executeUpdate();
+			}
+			try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()")) {
+				rs.next();
+				return (int) (rs.getLong(1) - size);
+			}
+		}
+	}
+}
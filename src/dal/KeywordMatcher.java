@@ -0,0 +1,59 @@
+package dal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dto.SearchResult;
+
+/**
+ * Finds whole-word occurrences of a keyword in a page. A full-text index
+ * picks candidate pages; this gives the offsets and drops pages the index
+ * matched on a different form of the word.
+ */
+public final class KeywordMatcher {
+
+	private KeywordMatcher() {
+	}
+
+	public static SearchResult match(int fileId, String fileName, int pageNumber, String content, String keyword) {
+		List<Integer> offsets = offsets(content, keyword);
+		if (offsets.isEmpty()) {
+			return null;
+		}
+		return new SearchResult(fileId, fileName, pageNumber, offsets, precedingWord(content, offsets.get(0)));
+	}
+
+	public static List<Integer> offsets(String content, String keyword) {
+		List<Integer> offsets = new ArrayList<>();
+		int length = keyword.length();
+		for (int i = 0; i + length <= content.length(); i++) {
+			if (content.regionMatches(true, i, keyword, 0, length) && isBoundary(content, i - 1)
+					&& isBoundary(content, i + length)) {
+				offsets.add(i);
+				i += length - 1;
+			}
+		}
+		return offsets;
+	}
+
+	private static boolean isBoundary(String content, int index) {
+		if (index < 0 || index >= content.length()) {
+			return true;
+		}
+		// Arabic diacritics belong to the word they are written on
+		char c = content.charAt(index);
+		return !Character.isLetterOrDigit(c) && Character.getType(c) != Character.NON_SPACING_MARK;
+	}
+
+	private static String precedingWord(String content, int offset) {
+		int end = offset;
+		while (end > 0 && Character.isWhitespace(content.charAt(end - 1))) {
+			end--;
+		}
+		int start = end;
+		while (start > 0 && !Character.isWhitespace(content.charAt(start - 1))) {
+			start--;
+		}
+		return content.substring(start, end);
+	}
+}
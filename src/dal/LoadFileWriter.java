@@ -0,0 +1,192 @@
+package dal;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batch writer that stages rows in local tab-separated files instead of
+ * sending INSERTs, and then loads each file with one LOAD DATA LOCAL INFILE
+ * statement. Rows use the format LOAD DATA reads by default: a tab between
+ * fields, a newline after each row, backslash escapes and \N for NULL.
+ * Binary values are staged as hex. Besides pages and analytics it takes the
+ * files, tfidf and file_terms rows of the files being loaded.
+ */
+public class LoadFileWriter extends AnalyticsBatchWriter {
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	private final Path directory;
+	private final Map<String, Path> paths = new LinkedHashMap<>();
+	private final Map<String, Writer> writers = new LinkedHashMap<>();
+
+	public LoadFileWriter(Path directory) {
+		super(null);
+		this.directory = directory;
+		register("files", "fileid, fileName, fileHash, pageLayout", false);
+		register("tfidf", "fileId, tfidfScore", false);
+		register("file_terms", "fileId, term", false);
+	}
+
+	public void addFile(int fileId, String fileName, String fileHash, String pageLayout) throws SQLException {
+		add("files", fileId, fileName, fileHash, pageLayout);
+	}
+
+	public void addTfidf(int fileId, double score) throws SQLException {
+		add("tfidf", fileId, score);
+	}
+
+	public void addTerms(int fileId, Set<String> terms) throws SQLException {
+		for (String term : terms) {
+			add("file_terms", fileId, term);
+		}
+	}
+
+	@Override
+	protected void writeRows(String table, String columnList, int columns, int rows, List<Object> values)
+			throws SQLException {
+		try {
+			Writer out = writers.get(table);
+			if (out == null) {
+				Path path = directory.resolve(table + ".tsv");
+				out = new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8), 1 << 16);
+				paths.put(table, path);
+				writers.put(table, out);
+			}
+			for (int row = 0; row < rows; row++) {
+				for (int c = 0; c < columns; c++) {
+					if (c > 0) {
+						out.write('\t');
+					}
+					writeValue(out, values.get(row * columns + c));
+				}
+				out.write('\n');
+			}
+		} catch (IOException e) {
+			throw new SQLException("Could not stage rows for " + table, e);
+		}
+	}
+
+	@Override
+	public void flush() throws SQLException {
+		super.flush();
+		try {
+			for (Writer out : writers.values()) {
+				out.flush();
+			}
+		} catch (IOException e) {
+			throw new SQLException(e);
+		}
+	}
+
+	/**
+	 * Loads every staged table on {@code conn}, the files table first, and
+	 * returns the number of rows loaded. The connection must allow local
+	 * infile.
+	 */
+	public long load(Connection conn) throws SQLException {
+		flush();
+		closeWriters();
+
+		List<String> order = new ArrayList<>();
+		order.add("files");
+		for (String table : tables().keySet()) {
+			if (!order.contains(table)) {
+				order.add(table);
+			}
+		}
+
+		long rows = 0;
+		try (Statement stmt = conn.createStatement()) {
+			for (String table : order) {
+				Path path = paths.get(table);
+				if (path == null) {
+					continue;
+				}
+				String columnList = tables().get(table);
+				String sql = "LOAD DATA LOCAL INFILE '" + path.toAbsolutePath().toString().replace("\\", "\\\\")
+						.replace("'", "\\'") + "' INTO TABLE " + table + " CHARACTER SET utf8mb4 ";
+				if ("pageanalytics".equals(table)) {
+					sql += "(" + columnList.replace("analysis", "@analysis") + ") SET analysis = UNHEX(@analysis)";
+				} else {
+					sql += "(" + columnList + ")";
+				}
+				rows += stmt.executeUpdate(sql);
+			}
+		}
+		return rows;
+	}
+
+	private static void writeValue(Writer out, Object value) throws IOException {
+		if (value == null) {
+			out.write("\\N");
+		} else if (value instanceof byte[]) {
+			for (byte b : (byte[]) value) {
+				out.write(HEX[(b >> 4) & 0xF]);
+				out.write(HEX[b & 0xF]);
+			}
+		} else if (value instanceof String) {
+			String text = (String) value;
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				switch (c) {
+				case '\\':
+					out.write("\\\\");
+					break;
+				case '\t':
+					out.write("\\t");
+					break;
+				case '\n':
+					out.write("\\n");
+					break;
+				case '\r':
+					out.write("\\r");
+					break;
+				case '\0':
+					out.write("\\0");
+					break;
+				default:
+					out.write(c);
+				}
+			}
+		} else {
+			out.write(String.valueOf(value));
+		}
+	}
+
+	private void closeWriters() throws SQLException {
+		try {
+			for (Writer out : writers.values()) {
+				out.close();
+			}
+			writers.clear();
+		} catch (IOException e) {
+			throw new SQLException(e);
+		}
+	}
+
+	/**
+	 * Removes the staged files.
+	 */
+	@Override
+	public void close() throws SQLException {
+		closeWriters();
+		try {
+			for (Path path : paths.values()) {
+				Files.deleteIfExists(path);
+			}
+		} catch (IOException e) {
+			throw new SQLException(e);
+		}
+	}
+}
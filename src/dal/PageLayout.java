@@ -0,0 +1,75 @@
+package dal;
+
+/**
+ * How files are cut into pages: the unit the page size is measured in, the
+ * size, and which boundaries a page may end on. Read from the pagination.*
+ * settings; {@link #toString()} gives a compact form that identifies the
+ * layout a file was paginated with.
+ */
+public final class PageLayout {
+	public enum Unit {
+		CHARS, WORDS, BYTES
+	}
+
+	public enum Boundary {
+		/** End pages after a sentence or line where possible, otherwise between words */
+		SENTENCE,
+		/** End pages between words */
+		WORD,
+		/** Cut exactly at the size limit */
+		NONE
+	}
+
+	/** Fixed 100-character pages, used by files stored before layouts were recorded */
+	public static final PageLayout LEGACY = new PageLayout(Unit.CHARS, 100, Boundary.NONE);
+
+	private final Unit unit;
+	private final int size;
+	private final Boundary boundary;
+
+	public PageLayout(Unit unit, int size, Boundary boundary) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Page size must be positive: " + size);
+		}
+		this.unit = unit;
+		this.size = size;
+		this.boundary = boundary;
+	}
+
+	public static PageLayout configured() {
+		return new PageLayout(Unit.valueOf(EditorConfig.getString("pagination.unit", "chars").trim().toUpperCase()),
+				EditorConfig.getInt("pagination.size", 100),
+				Boundary.valueOf(EditorConfig.getString("pagination.boundary", "sentence").trim().toUpperCase()));
+	}
+
+	public Unit getUnit() {
+		return unit;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public Boundary getBoundary() {
+		return boundary;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof PageLayout)) {
+			return false;
+		}
+		PageLayout layout = (PageLayout) other;
+		return unit == layout.unit && size == layout.size && boundary == layout.boundary;
+	}
+
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return unit.name().toLowerCase() + ":" + size + ":" + boundary.name().toLowerCase();
+	}
+}
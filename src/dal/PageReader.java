@@ -0,0 +1,154 @@
+package dal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import dto.Pages;
+
+/**
+ * Cuts a character stream into pages as it is read, so only about one page
+ * is in memory at a time. Each character is looked at once: the scan for a
+ * page remembers the last word and sentence boundary it passed, and when the
+ * page is full it ends at the best of them that the layout allows. Pages put
+ * back together give the input unchanged, whitespace included. Empty input
+ * yields a single empty page, as {@link PaginationDAO#paginate(String)} does.
+ */
+public class PageReader implements Closeable {
+	// Upper bound for one page when a single word is longer than the page size
+	private static final int MAX_PAGE_CHARS = 1 << 20;
+	private static final int CHUNK_SIZE = 8192;
+
+	private final Reader reader;
+	private final PageLayout layout;
+	private final char[] chunk = new char[CHUNK_SIZE];
+	private final StringBuilder pending = new StringBuilder();
+	private int start = 0;
+	private boolean eof = false;
+	private int nextPageNumber = 1;
+
+	public PageReader(Reader reader) {
+		this(reader, PageLayout.configured());
+	}
+
+	public PageReader(Reader reader, PageLayout layout) {
+		this.reader = reader;
+		this.layout = layout;
+	}
+
+	/**
+	 * Returns the next page, or null once the stream is exhausted.
+	 */
+	public Pages next() throws IOException {
+		int length = findCut();
+		if (length == 0 && nextPageNumber > 1) {
+			return null;
+		}
+		String content = pending.substring(start, start + length);
+		start += length;
+		return new Pages(0, 0, nextPageNumber++, content);
+	}
+
+	private int findCut() throws IOException {
+		int size = layout.getSize();
+		long used = 0;
+		int wordCut = 0;
+		int sentenceCut = 0;
+		boolean inWord = false;
+		boolean afterSentence = false;
+
+		for (int i = 0;; i++) {
+			if (start + i == pending.length() && !fill()) {
+				return i;
+			}
+			char c = pending.charAt(start + i);
+			boolean whitespace = Character.isWhitespace(c);
+
+			if (!whitespace && !inWord && i > 0) {
+				wordCut = i;
+				if (afterSentence && used * 2 >= size) {
+					sentenceCut = i;
+				}
+			}
+
+			int cost = cost(c, whitespace, inWord);
+			if ((used + cost > size && i > 0) || i == MAX_PAGE_CHARS) {
+				return chooseCut(i, wordCut, sentenceCut);
+			}
+			used += cost;
+
+			if (!whitespace) {
+				afterSentence = isSentenceEnd(c);
+			} else if (c == '\n') {
+				afterSentence = true;
+			}
+			inWord = !whitespace;
+		}
+	}
+
+	private int chooseCut(int limit, int wordCut, int sentenceCut) {
+		PageLayout.Boundary boundary = layout.getBoundary();
+		if (boundary == PageLayout.Boundary.SENTENCE && sentenceCut > 0) {
+			return sentenceCut;
+		}
+		if (boundary != PageLayout.Boundary.NONE && wordCut > 0) {
+			return wordCut;
+		}
+		// Never separate the halves of a surrogate pair
+		if (limit > 1 && Character.isHighSurrogate(pending.charAt(start + limit - 1))
+				&& Character.isLowSurrogate(pending.charAt(start + limit))) {
+			return limit - 1;
+		}
+		return limit;
+	}
+
+	private int cost(char c, boolean whitespace, boolean inWord) {
+		switch (layout.getUnit()) {
+		case WORDS:
+			return !whitespace && !inWord ? 1 : 0;
+		case BYTES:
+			if (c < 0x80) {
+				return 1;
+			} else if (c < 0x800) {
+				return 2;
+			} else if (Character.isHighSurrogate(c)) {
+				return 4;
+			} else if (Character.isLowSurrogate(c)) {
+				return 0;
+			}
+			return 3;
+		default:
+			return 1;
+		}
+	}
+
+	private static boolean isSentenceEnd(char c) {
+		return c == '.' || c == '!' || c == '?' || c == '؟' || c == '۔' || c == '…';
+	}
+
+	// Appends the next chunk of input, first dropping the pages already handed out
+	private boolean fill() throws IOException {
+		if (eof) {
+			return false;
+		}
+		if (start > 0) {
+			pending.delete(0, start);
+			start = 0;
+		}
+		int read;
+		do {
+			read = reader.read(chunk, 0, chunk.length);
+		} while (read == 0);
+		if (read < 0) {
+			eof = true;
+			return false;
+		}
+		pending.append(chunk, 0, read);
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -1,5 +1,7 @@
 package dal;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -7,25 +9,19 @@ import dto.Pages;
 
 public class PaginationDAO {
 
-	
 	static List<Pages> paginate(String fileContent){
-		int pageSize = 100;
-		int pageNumber = 1;
-		String pageContent = "";
+		return paginate(fileContent, PageLayout.configured());
+	}
+
+	static List<Pages> paginate(String fileContent, PageLayout layout){
 		List<Pages> pages = new ArrayList<Pages>();
-		if(fileContent==null || fileContent.isEmpty())
-		{
-			pages.add(new Pages(0, 0, pageNumber, pageContent.toString()));
-			return pages;
-		}
-		for(int i = 0; i < fileContent.length(); i++)
-		{
-			pageContent += fileContent.charAt(i);
-			if (pageContent.length() == pageSize || i == fileContent.length() - 1){
-				pages.add(new Pages(0, 0, pageNumber, pageContent));
-				pageNumber++;
-				pageContent = "";
+		try (PageReader reader = new PageReader(new StringReader(fileContent == null ? "" : fileContent), layout)) {
+			Pages page;
+			while ((page = reader.next()) != null) {
+				pages.add(page);
 			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
 		}
 		return pages;
 	} 
@@ -0,0 +1,152 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.EditorPO;
+
+/**
+ * Moves stored files to a new page layout in the background, one file per
+ * transaction. Progress is files.pageLayout itself, which only changes in
+ * the transaction that swaps a file's pages, so the job can be stopped or
+ * killed at any point and simply started again. Files edited within the
+ * last repagination.idleMinutes are left for a later pass so an open editor
+ * does not keep page numbers from the old layout.
+ *
+ * Runs inside the editor when repagination.enabled is set, or on its own
+ * with the application's classpath and config.properties:
+ * java dal.RepaginationJob
+ */
+public class RepaginationJob implements Runnable {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+
+	private final IEditorDBDAO dao;
+	private final DatabaseConnection database;
+	private final PageLayout layout;
+	private final IntConsumer onRepaginated;
+	private final int batchSize;
+	private final int idleMinutes;
+	private final long retryDelayMillis;
+	private volatile boolean running = false;
+	private Thread thread;
+
+	public RepaginationJob(IEditorDBDAO dao, PageLayout layout, IntConsumer onRepaginated) {
+		this.dao = dao;
+		this.database = DatabaseConnection.getInstance();
+		this.layout = layout;
+		this.onRepaginated = onRepaginated;
+		this.batchSize = Math.max(1, EditorConfig.getInt("repagination.batchSize", 50));
+		this.idleMinutes = Math.max(0, EditorConfig.getInt("repagination.idleMinutes", 10));
+		this.retryDelayMillis = EditorConfig.getLong("repagination.retryDelayMs", 60000);
+	}
+
+	public static void main(String[] args) {
+		DatabaseConnection database = DatabaseConnection.getInstance();
+		try {
+			new RepaginationJob(new EditorDBDAO(), PageLayout.configured(), fileId -> {
+			}).run();
+		} finally {
+			database.closeConnection();
+		}
+	}
+
+	public synchronized void start() {
+		if (thread != null && thread.isAlive()) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this, "repagination");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops after the file being repaginated, if any, is committed.
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public void run() {
+		running = true;
+		LOGGER.info("Repaginating stored files as " + layout);
+		try {
+			while (running) {
+				int skipped = pass();
+				if (skipped == 0) {
+					LOGGER.info("All files are paginated as " + layout);
+					break;
+				}
+				LOGGER.info(skipped + " files are still to be repaginated; retrying in " + retryDelayMillis + " ms");
+				Thread.sleep(retryDelayMillis);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+		} finally {
+			running = false;
+		}
+	}
+
+	// One walk over the files still in another layout; returns how many were left as they were
+	private int pass() throws SQLException {
+		int lastFileId = 0;
+		int skipped = 0;
+		while (running) {
+			Map<Integer, Boolean> batch = pendingFiles(lastFileId);
+			if (batch.isEmpty()) {
+				break;
+			}
+			for (Map.Entry<Integer, Boolean> file : batch.entrySet()) {
+				if (!running) {
+					break;
+				}
+				lastFileId = file.getKey();
+				if (file.getValue() && dao.repaginateFileInDB(file.getKey(), layout)) {
+					onRepaginated.accept(file.getKey());
+				} else {
+					skipped++;
+				}
+			}
+		}
+		return skipped;
+	}
+
+	// File ids after lastFileId not yet in the target layout, each mapped to whether it has been idle long enough
+	private Map<Integer, Boolean> pendingFiles(int lastFileId) throws SQLException {
+		String query = "SELECT fileId, lastModified < NOW() - INTERVAL ? MINUTE AS idle FROM files "
+				+ "WHERE COALESCE(pageLayout, ?) <> ? AND isDeleted = 0 AND fileId > ? ORDER BY fileId LIMIT ?";
+		Map<Integer, Boolean> files = new LinkedHashMap<>();
+		try (Connection conn = database.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, idleMinutes);
+			stmt.setString(2, PageLayout.LEGACY.toString());
+			stmt.setString(3, layout.toString());
+			stmt.setInt(4, lastFileId);
+			stmt.setInt(5, batchSize);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					files.put(rs.getInt("fileId"), rs.getBoolean("idle"));
+				}
+			}
+		}
+		return files;
+	}
+}
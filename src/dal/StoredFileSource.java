@@ -0,0 +1,85 @@
+package dal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The content of a stored file, read back a batch of pages at a time. Every
+ * batch is fetched on a pooled connection that is returned straight away,
+ * so the reader can be used while the caller holds its own transaction.
+ */
+public class StoredFileSource implements ContentSource {
+	private static final int BATCH_PAGES = 100;
+
+	private final DatabaseConnection database;
+	private final int fileId;
+
+	public StoredFileSource(DatabaseConnection database, int fileId) {
+		this.database = database;
+		this.fileId = fileId;
+	}
+
+	@Override
+	public Reader open() {
+		return new PagesReader();
+	}
+
+	private final class PagesReader extends Reader {
+		private final Deque<String> batch = new ArrayDeque<>();
+		private String current = "";
+		private int position = 0;
+		private int lastPageNumber = 0;
+		private boolean exhausted = false;
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			while (position == current.length()) {
+				if (batch.isEmpty() && !fetch()) {
+					return -1;
+				}
+				current = batch.poll();
+				position = 0;
+			}
+			int count = Math.min(len, current.length() - position);
+			current.getChars(position, position + count, cbuf, off);
+			position += count;
+			return count;
+		}
+
+		private boolean fetch() throws IOException {
+			if (exhausted) {
+				return false;
+			}
+			String query = "SELECT pageNumber, pageContent FROM pages WHERE fileId = ? AND pageNumber > ? "
+					+ "ORDER BY pageNumber LIMIT " + BATCH_PAGES;
+			try (Connection conn = database.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+				stmt.setInt(1, fileId);
+				stmt.setInt(2, lastPageNumber);
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						lastPageNumber = rs.getInt("pageNumber");
+						batch.add(rs.getString("pageContent"));
+					}
+				}
+			} catch (SQLException e) {
+				throw new IOException(e);
+			}
+			exhausted = batch.size() < BATCH_PAGES;
+			return !batch.isEmpty();
+		}
+
+		@Override
+		public void close() {
+			batch.clear();
+		}
+	}
+}
@@ -7,65 +7,71 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public class TFIDFCalculator {
 
-	private List<String> corpus = new ArrayList<>();
+	// Distinct terms of each document, tokenized the same way as the scored document
+	private List<Set<String>> corpus = new ArrayList<>();
 
 	public void addDocumentToCorpus(String document) {
-		corpus.add(PreProcessText.preprocessText(document));
+		corpus.add(uniqueTerms(document));
 	}
 
 	public double calculateDocumentTfIdf(String document) {
-		String preprocessedDoc = PreProcessText.preprocessText(document);
-		String[] words = preprocessedDoc.split("\\s+");
-		List<String> wordList = Arrays.asList(words);
-
-		Map<String, Double> tf = calculateTermFrequency(wordList);
-		Map<String, Double> idf = calculateInverseDocumentFrequency();
-
-		double totalTfIdf = 0.0;
-		for (String word : tf.keySet()) {
-			double tfValue = tf.get(word);
-			double idfValue = idf.getOrDefault(word, Math.log(corpus.size() + 1));
-			totalTfIdf += tfValue * idfValue;
+		Map<String, Integer> documentFrequencies = new HashMap<>();
+		for (Set<String> terms : corpus) {
+			for (String term : terms) {
+				documentFrequencies.merge(term, 1, Integer::sum);
+			}
 		}
-
-		return totalTfIdf / wordList.size();
+		return calculateDocumentTfIdf(document, documentFrequencies, corpus.size());
 	}
 
-	private Map<String, Double> calculateTermFrequency(List<String> wordList) {
-		Map<String, Double> tf = new HashMap<>();
-		double totalWords = wordList.size();
+	/**
+	 * Scores a document against a corpus that is only known by its size and the
+	 * document frequency of each term, so callers holding a persisted index do
+	 * not need the corpus text.
+	 */
+	public static double calculateDocumentTfIdf(String document, Map<String, Integer> documentFrequencies,
+			int totalDocs) {
+		return calculateDocumentTfIdf(termCounts(document), documentFrequencies, totalDocs);
+	}
 
-		for (String word : wordList) {
-			tf.put(word, tf.getOrDefault(word, 0.0) + 1);
+	/**
+	 * Same score computed from the number of times each term occurs, as
+	 * collected by {@link TermCounter} for documents read in pieces.
+	 */
+	public static double calculateDocumentTfIdf(Map<String, Integer> termCounts,
+			Map<String, Integer> documentFrequencies, int totalDocs) {
+		double totalWords = 0;
+		for (int count : termCounts.values()) {
+			totalWords += count;
 		}
 
-		for (String word : tf.keySet()) {
-			tf.put(word, tf.get(word) / totalWords);
+		double totalTfIdf = 0.0;
+		for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
+			int df = documentFrequencies.getOrDefault(entry.getKey(), 0);
+			double idfValue = df > 0 ? Math.log((double) totalDocs / (1 + df)) : Math.log(totalDocs + 1);
+			totalTfIdf += (entry.getValue() / totalWords) * idfValue;
 		}
 
-		return tf;
+		return totalTfIdf / totalWords;
 	}
 
-	private Map<String, Double> calculateInverseDocumentFrequency() {
-		Map<String, Double> idf = new HashMap<>();
-		int totalDocs = corpus.size();
-
-		for (String doc : corpus) {
-			Set<String> uniqueWords = Arrays.stream(doc.split("\\s+")).collect(Collectors.toSet());
-			for (String word : uniqueWords) {
-				idf.put(word, idf.getOrDefault(word, 0.0) + 1);
-			}
-		}
+	public static List<String> tokenize(String document) {
+		return Arrays.asList(PreProcessText.preprocessText(document).split("\\s+"));
+	}
 
-		for (String word : idf.keySet()) {
-			idf.put(word, Math.log((double) totalDocs / (1 + idf.get(word))));
+	public static Map<String, Integer> termCounts(String document) {
+		Map<String, Integer> termCounts = new HashMap<>();
+		for (String word : tokenize(document)) {
+			termCounts.merge(word, 1, Integer::sum);
 		}
+		return termCounts;
+	}
 
-		return idf;
+	public static Set<String> uniqueTerms(String document) {
+		return new HashSet<>(tokenize(document));
 	}
 
 //    public static void main(String[] args) {
@@ -0,0 +1,77 @@
+package dal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the terms {@link TFIDFCalculator#tokenize(String)} would produce for
+ * a text that is fed in pieces, so a file can be scored without holding all
+ * of it in memory. Pieces may be cut anywhere, including inside a word.
+ */
+public class TermCounter {
+	private final Map<String, Integer> counts = new HashMap<>();
+	private final StringBuilder term = new StringBuilder();
+	private String pendingHighSurrogate = "";
+	private boolean started = false;
+	private boolean leadingWhitespace = false;
+	private boolean anyTerm = false;
+
+	public void add(String piece) {
+		String text = pendingHighSurrogate + piece;
+		pendingHighSurrogate = "";
+		if (!text.isEmpty() && Character.isHighSurrogate(text.charAt(text.length() - 1))) {
+			pendingHighSurrogate = text.substring(text.length() - 1);
+			text = text.substring(0, text.length() - 1);
+		}
+		consume(PreProcessText.preprocessText(text));
+	}
+
+	/**
+	 * Returns the count of every term. String.split drops trailing empty
+	 * strings but keeps a leading one, and an empty text splits into one
+	 * empty term; both are reproduced here.
+	 */
+	public Map<String, Integer> finish() {
+		consume(PreProcessText.preprocessText(pendingHighSurrogate));
+		pendingHighSurrogate = "";
+		endTerm();
+		if (!started || (leadingWhitespace && anyTerm)) {
+			counts.merge("", 1, Integer::sum);
+		}
+		return counts;
+	}
+
+	public static Map<String, Integer> count(String text) {
+		TermCounter counter = new TermCounter();
+		counter.add(text);
+		return counter.finish();
+	}
+
+	private void consume(String processed) {
+		for (int i = 0; i < processed.length(); i++) {
+			char c = processed.charAt(i);
+			if (isSplitWhitespace(c)) {
+				if (!started) {
+					leadingWhitespace = true;
+				}
+				endTerm();
+			} else {
+				term.append(c);
+			}
+			started = true;
+		}
+	}
+
+	private void endTerm() {
+		if (term.length() > 0) {
+			counts.merge(term.toString(), 1, Integer::sum);
+			term.setLength(0);
+			anyTerm = true;
+		}
+	}
+
+	// The characters \s matches in the split pattern
+	private static boolean isSplitWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+}
@@ -0,0 +1,90 @@
+package dal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A text file read through a file channel and an explicit decoder. Line
+ * endings come out as they did when files were imported line by line: CRLF
+ * and CR become LF, and the last line always ends with LF.
+ */
+public class TextFileSource implements ContentSource {
+	private final File file;
+	private final Charset charset;
+
+	public TextFileSource(File file) {
+		this(file, Charset.forName(EditorConfig.getString("import.charset", "UTF-8")));
+	}
+
+	public TextFileSource(File file, Charset charset) {
+		this.file = file;
+		this.charset = charset;
+	}
+
+	@Override
+	public Reader open() throws IOException {
+		CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		return new LineEndingReader(Channels.newReader(channel, decoder, -1));
+	}
+
+	private static final class LineEndingReader extends Reader {
+		private final Reader in;
+		private final char[] buffer = new char[8192];
+		private boolean afterCarriageReturn = false;
+		private boolean wroteAny = false;
+		private char last = '\n';
+		private boolean finished = false;
+
+		LineEndingReader(Reader in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (finished) {
+				return -1;
+			}
+			int count = 0;
+			while (count == 0) {
+				int read = in.read(buffer, 0, Math.min(len, buffer.length));
+				if (read < 0) {
+					finished = true;
+					if (wroteAny && last != '\n') {
+						cbuf[off] = '\n';
+						return 1;
+					}
+					return -1;
+				}
+				for (int i = 0; i < read; i++) {
+					char c = buffer[i];
+					if (c == '\n' && afterCarriageReturn) {
+						afterCarriageReturn = false;
+						continue;
+					}
+					afterCarriageReturn = c == '\r';
+					last = afterCarriageReturn ? '\n' : c;
+					cbuf[off + count++] = last;
+				}
+				wroteAny |= count > 0;
+			}
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
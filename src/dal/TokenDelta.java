@@ -0,0 +1,48 @@
+package dal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Distinct whitespace-separated tokens that appear in or disappear from a
+ * page between two versions, normalised and tokenised the same way the
+ * analysers see their input.
+ */
+public class TokenDelta {
+	private final Set<String> added;
+	private final Set<String> removed;
+
+	private TokenDelta(Set<String> added, Set<String> removed) {
+		this.added = added;
+		this.removed = removed;
+	}
+
+	public static TokenDelta between(String before, String after) {
+		Set<String> beforeTokens = tokens(before);
+		Set<String> afterTokens = tokens(after);
+
+		Set<String> added = new HashSet<>(afterTokens);
+		added.removeAll(beforeTokens);
+		Set<String> removed = new HashSet<>(beforeTokens);
+		removed.removeAll(afterTokens);
+		return new TokenDelta(Collections.unmodifiableSet(added), Collections.unmodifiableSet(removed));
+	}
+
+	static Set<String> tokens(String text) {
+		return new HashSet<>(Arrays.asList(PreProcessText.preprocessText(text).split("\\s+")));
+	}
+
+	public Set<String> getAdded() {
+		return added;
+	}
+
+	public Set<String> getRemoved() {
+		return removed;
+	}
+
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty();
+	}
+}
@@ -0,0 +1,108 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.EditorPO;
+
+/**
+ * Converts analytics tables that still store the surface word as LONGTEXT to
+ * the words dictionary. Each table is filled into the dictionary, given a
+ * wordId column that is set in id ranges so no single statement locks the
+ * whole table, and then stripped of its word column. Tables that are already
+ * converted are skipped, so the tool can be re-run after an interruption.
+ *
+ * Run with the application's classpath and config.properties:
+ * java dal.WordDictionaryMigration
+ */
+public class WordDictionaryMigration {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+	private static final int RANGE_SIZE = 10000;
+
+	private final DatabaseConnection database;
+
+	public WordDictionaryMigration(DatabaseConnection database) {
+		this.database = database;
+	}
+
+	public static void main(String[] args) {
+		DatabaseConnection database = DatabaseConnection.getInstance();
+		try {
+			new WordDictionaryMigration(database).migrate();
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			System.exit(1);
+		} finally {
+			database.closeConnection();
+		}
+	}
+
+	public void migrate() throws SQLException {
+		try (Connection conn = database.getConnection(); Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate("CREATE TABLE IF NOT EXISTS `words` (`wordId` INT(11) NOT NULL AUTO_INCREMENT, "
+					+ "`word` VARCHAR(" + WordVocabulary.MAX_WORD_LENGTH + ") NOT NULL COLLATE 'utf8mb4_bin', "
+					+ "PRIMARY KEY (`wordId`) USING BTREE, UNIQUE INDEX `word` (`word`) USING BTREE) "
+					+ "COLLATE='utf8mb4_general_ci' ENGINE=InnoDB");
+
+			for (AnalyticsTable table : AnalyticsTable.values()) {
+				if (hasColumn(conn, table.getTableName(), "word")) {
+					migrateTable(conn, table.getTableName());
+				} else {
+					LOGGER.info(table.getTableName() + " already uses the words dictionary");
+				}
+			}
+		}
+	}
+
+	private void migrateTable(Connection conn, String table) throws SQLException {
+		String word = "CONVERT(LEFT(a.word, " + WordVocabulary.MAX_WORD_LENGTH + ") USING utf8mb4) COLLATE utf8mb4_bin";
+
+		try (Statement stmt = conn.createStatement()) {
+			LOGGER.info("Migrating " + table);
+			stmt.executeUpdate("INSERT IGNORE INTO words (word) SELECT DISTINCT " + word + " FROM " + table + " a");
+			if (!hasColumn(conn, table, "wordId")) {
+				stmt.executeUpdate("ALTER TABLE " + table + " ADD COLUMN wordId INT(11) NULL AFTER pageId");
+			}
+
+			int maxId;
+			try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+				rs.next();
+				maxId = rs.getInt(1);
+			}
+
+			try (PreparedStatement update = conn.prepareStatement("UPDATE " + table + " a JOIN words w ON w.word = "
+					+ word + " SET a.wordId = w.wordId WHERE a.id BETWEEN ? AND ? AND a.wordId IS NULL")) {
+				for (int start = 1; start <= maxId; start += RANGE_SIZE) {
+					update.setInt(1, start);
+					update.setInt(2, start + RANGE_SIZE - 1);
+					update.executeUpdate();
+				}
+			}
+
+			stmt.executeUpdate("ALTER TABLE " + table + " MODIFY wordId INT(11) NOT NULL, DROP COLUMN word, "
+					+ "ADD INDEX `" + table + "_word` (`wordId`) USING BTREE, "
+					+ "ADD CONSTRAINT `" + table + "_word_fk` FOREIGN KEY (`wordId`) REFERENCES `words` (`wordId`) "
+					+ "ON UPDATE RESTRICT ON DELETE RESTRICT");
+			LOGGER.info("Migrated " + table + " to the words dictionary");
+		}
+	}
+
+	private boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+		String query = "SELECT 1 FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() "
+				+ "AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setString(1, table);
+			stmt.setString(2, column);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+}
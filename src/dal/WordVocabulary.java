@@ -0,0 +1,162 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Maps surface words to their id in the words dictionary, keeping the most
+ * recently used mappings in memory. Unknown words are added on a connection
+ * of their own and committed at once; a dictionary entry is never removed,
+ * so an id handed out here stays valid even if the caller's transaction
+ * rolls back.
+ */
+public class WordVocabulary {
+	private static WordVocabulary INSTANCE;
+
+	/** Longest word the dictionary stores; longer tokens are identified by this prefix. */
+	public static final int MAX_WORD_LENGTH = 768;
+	private static final int CHUNK_SIZE = 500;
+
+	private final DatabaseConnection database;
+	private final Map<String, Integer> cache;
+
+	private WordVocabulary(DatabaseConnection database, final int cacheSize) {
+		this.database = database;
+		this.cache = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	public static synchronized WordVocabulary getInstance() {
+		if (INSTANCE == null) {
+			INSTANCE = new WordVocabulary(DatabaseConnection.getInstance(),
+					EditorConfig.getInt("vocabulary.cacheSize", 200000));
+		}
+		return INSTANCE;
+	}
+
+	public static String normalize(String word) {
+		return word.length() > MAX_WORD_LENGTH ? word.substring(0, MAX_WORD_LENGTH) : word;
+	}
+
+	/**
+	 * Returns the id of every given word, adding the ones the dictionary does
+	 * not know yet.
+	 */
+	public Map<String, Integer> resolve(Collection<String> words) throws SQLException {
+		return fetch(words, true);
+	}
+
+	/**
+	 * Returns the ids of the given words that are already in the dictionary,
+	 * without adding the others.
+	 */
+	public Map<String, Integer> lookup(Collection<String> words) throws SQLException {
+		return fetch(words, false);
+	}
+
+	private Map<String, Integer> fetch(Collection<String> words, boolean create) throws SQLException {
+		Map<String, Integer> ids = new HashMap<>();
+		TreeSet<String> missing = new TreeSet<>();
+		synchronized (cache) {
+			for (String word : words) {
+				Integer id = cache.get(normalize(word));
+				if (id != null) {
+					ids.put(word, id);
+				} else {
+					missing.add(normalize(word));
+				}
+			}
+		}
+		if (missing.isEmpty()) {
+			return ids;
+		}
+
+		Map<String, Integer> loaded = new HashMap<>();
+		try (Connection conn = database.getConnection()) {
+			for (List<String> chunk : chunks(missing)) {
+				if (create) {
+					try (PreparedStatement insert = conn
+							.prepareStatement("INSERT IGNORE INTO words (word) VALUES " + rows(chunk.size()))) {
+						bind(insert, chunk);
+						insert.executeUpdate();
+					}
+				}
+				loaded.putAll(select(conn, chunk));
+			}
+		}
+
+		synchronized (cache) {
+			cache.putAll(loaded);
+		}
+		for (String word : words) {
+			Integer id = loaded.get(normalize(word));
+			if (id != null) {
+				ids.put(word, id);
+			}
+		}
+		return ids;
+	}
+
+	private Map<String, Integer> select(Connection conn, List<String> chunk) throws SQLException {
+		Map<String, Integer> ids = new HashMap<>();
+		StringBuilder query = new StringBuilder("SELECT wordId, word FROM words WHERE word IN (");
+		for (int i = 0; i < chunk.size(); i++) {
+			query.append(i == 0 ? "?" : ", ?");
+		}
+		query.append(")");
+		try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+			bind(stmt, chunk);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					ids.put(rs.getString("word"), rs.getInt("wordId"));
+				}
+			}
+		}
+		return ids;
+	}
+
+	private static List<List<String>> chunks(Collection<String> words) {
+		List<List<String>> chunks = new ArrayList<>();
+		List<String> current = new ArrayList<>();
+		for (String word : words) {
+			current.add(word);
+			if (current.size() == CHUNK_SIZE) {
+				chunks.add(current);
+				current = new ArrayList<>();
+			}
+		}
+		if (!current.isEmpty()) {
+			chunks.add(current);
+		}
+		return chunks;
+	}
+
+	private static String rows(int count) {
+		StringBuilder sql = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sql.append(i == 0 ? "(?)" : ", (?)");
+		}
+		return sql.toString();
+	}
+
+	private static void bind(PreparedStatement stmt, List<String> values) throws SQLException {
+		for (int i = 0; i < values.size(); i++) {
+			stmt.setString(i + 1, values.get(i));
+		}
+	}
+}
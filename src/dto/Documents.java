@@ -9,6 +9,7 @@ public class Documents {
 	private String lastModified;
 	private String dateCreated;
 	private List<Pages> pages;
+	private PageLoader pageLoader;
 
 	public Documents(int id, String name, String hash, String lastModified, String dateCreated, List<Pages> pages) {
 		this.id = id;
@@ -19,6 +20,16 @@ public class Documents {
 		this.pages = pages;
 	}
 
+	/**
+	 * Summary of a document whose pages are fetched through the loader the
+	 * first time {@link #getPages()} is called.
+	 */
+	public Documents(int id, String name, String hash, String lastModified, String dateCreated,
+			PageLoader pageLoader) {
+		this(id, name, hash, lastModified, dateCreated, (List<Pages>) null);
+		this.pageLoader = pageLoader;
+	}
+
 	public int getId() {
 		return id;
 	}
@@ -39,10 +50,17 @@ public class Documents {
 		return dateCreated;
 	}
 
-	public List<Pages> getPages() {
+	public synchronized List<Pages> getPages() {
+		if (pages == null && pageLoader != null) {
+			pages = pageLoader.loadPages(id);
+		}
 		return pages;
 	}
 
+	public synchronized boolean isPagesLoaded() {
+		return pages != null;
+	}
+
 	public void setId(int id) {
 		this.id = id;
 	}
@@ -63,7 +81,7 @@ public class Documents {
 		this.dateCreated = dateCreated;
 	}
 
-	public void setPages(List<Pages> pages) {
+	public synchronized void setPages(List<Pages> pages) {
 		this.pages = pages;
 	}
 
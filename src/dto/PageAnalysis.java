@@ -0,0 +1,112 @@
+package dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class PageAnalysis {
+	private int pageId;
+	private int pageNumber;
+	private String pageContent;
+	private String transliteratedText;
+	private Map<String, List<String>> posTags;
+	private Map<String, String> lemmas;
+	private Map<String, String> roots;
+	private Map<String, String> segments;
+	private Map<String, String> stems;
+	private Map<String, Double> pklScores;
+	private Map<String, Double> pmiScores;
+
+	public PageAnalysis(int pageId, int pageNumber, String pageContent) {
+		this.pageId = pageId;
+		this.pageNumber = pageNumber;
+		this.pageContent = pageContent;
+	}
+
+	public int getPageId() {
+		return pageId;
+	}
+
+	public int getPageNumber() {
+		return pageNumber;
+	}
+
+	public String getPageContent() {
+		return pageContent;
+	}
+
+	public String getTransliteratedText() {
+		return transliteratedText;
+	}
+
+	public Map<String, List<String>> getPosTags() {
+		return posTags;
+	}
+
+	public Map<String, String> getLemmas() {
+		return lemmas;
+	}
+
+	public Map<String, String> getRoots() {
+		return roots;
+	}
+
+	public Map<String, String> getSegments() {
+		return segments;
+	}
+
+	public Map<String, String> getStems() {
+		return stems;
+	}
+
+	public Map<String, Double> getPklScores() {
+		return pklScores;
+	}
+
+	public Map<String, Double> getPmiScores() {
+		return pmiScores;
+	}
+
+	public void setPageId(int pageId) {
+		this.pageId = pageId;
+	}
+
+	public void setPageNumber(int pageNumber) {
+		this.pageNumber = pageNumber;
+	}
+
+	public void setPageContent(String pageContent) {
+		this.pageContent = pageContent;
+	}
+
+	public void setTransliteratedText(String transliteratedText) {
+		this.transliteratedText = transliteratedText;
+	}
+
+	public void setPosTags(Map<String, List<String>> posTags) {
+		this.posTags = posTags;
+	}
+
+	public void setLemmas(Map<String, String> lemmas) {
+		this.lemmas = lemmas;
+	}
+
+	public void setRoots(Map<String, String> roots) {
+		this.roots = roots;
+	}
+
+	public void setSegments(Map<String, String> segments) {
+		this.segments = segments;
+	}
+
+	public void setStems(Map<String, String> stems) {
+		this.stems = stems;
+	}
+
+	public void setPklScores(Map<String, Double> pklScores) {
+		this.pklScores = pklScores;
+	}
+
+	public void setPmiScores(Map<String, Double> pmiScores) {
+		this.pmiScores = pmiScores;
+	}
+}
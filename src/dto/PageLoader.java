@@ -0,0 +1,7 @@
+package dto;
+
+import java.util.List;
+
+public interface PageLoader {
+	List<Pages> loadPages(int fileId);
+}
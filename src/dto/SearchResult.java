@@ -0,0 +1,62 @@
+package dto;
+
+import java.util.List;
+
+public class SearchResult {
+
+	int fileId;
+	String fileName;
+	int pageNumber;
+	// Character offsets of each match within the page
+	List<Integer> offsets;
+	// The word in front of the first match, shown as context
+	String precedingWord;
+
+	public SearchResult(int fileId, String fileName, int pageNumber, List<Integer> offsets, String precedingWord) {
+		this.fileId = fileId;
+		this.fileName = fileName;
+		this.pageNumber = pageNumber;
+		this.offsets = offsets;
+		this.precedingWord = precedingWord;
+	}
+
+	public int getFileId() {
+		return fileId;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public int getPageNumber() {
+		return pageNumber;
+	}
+
+	public List<Integer> getOffsets() {
+		return offsets;
+	}
+
+	public String getPrecedingWord() {
+		return precedingWord;
+	}
+
+	public void setFileId(int fileId) {
+		this.fileId = fileId;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public void setPageNumber(int pageNumber) {
+		this.pageNumber = pageNumber;
+	}
+
+	public void setOffsets(List<Integer> offsets) {
+		this.offsets = offsets;
+	}
+
+	public void setPrecedingWord(String precedingWord) {
+		this.precedingWord = precedingWord;
+	}
+}
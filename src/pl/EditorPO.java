@@ -11,7 +11,8 @@ import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.rmi.RemoteException;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +33,8 @@ import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 
 import org.apache.logging.log4j.LogManager;
@@ -39,6 +42,7 @@ import org.apache.logging.log4j.Logger;
 
 import bll.IEditorBO;
 import dto.Documents;
+import dto.PageAnalysis;
 import dto.Pages;
 
 public class EditorPO extends JFrame {
@@ -65,25 +69,18 @@ public class EditorPO extends JFrame {
 //	private int unselectedRows = 0;
 //	private int totalRows = 0;
 	private Thread importThread;
-	private Thread autoSaveThread;
-	private boolean autoSaveRunning = false;
+	private boolean loadingPage = false;
 	private Thread tfidfThread;
 	private int selectedDocFileId;
 	private Documents selectedDoc;
 	private double tfidfScore = 0;
-	private Thread pklThread;
+	private Thread analyticsThread;
 	private Map<String, Double> pklResults = new HashMap<>();
-	private Thread pmiThread;
 	private Map<String, Double> pmiResults = new HashMap<>();
-	private Thread posThread;
 	private Map<String, List<String>> posMap = new HashMap<>();
-	private Thread rootThread;
 	private Map<String, String> rootMap = new HashMap<>();
-	private Thread lemmaThread;
 	private Map<String, String> lemmaMap = new HashMap<>();
-	private Thread stemThread;
 	private Map<String, String> stemMap = new HashMap<>();
-	private Thread wordSegementThread;
 	private Map<String, String> segmentMap = new HashMap<>();
 	private Thread wordCountThread;
 	private Thread avgWordLengthThread;
@@ -105,6 +102,12 @@ public class EditorPO extends JFrame {
 		setTitle("Real Text Editor");
 		setExtendedState(JFrame.MAXIMIZED_BOTH);
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				businessObj.flushAutoSaves();
+			}
+		});
 		setLocationRelativeTo(null);
 		setLayout(new CardLayout());
 
@@ -209,29 +212,8 @@ public class EditorPO extends JFrame {
 						@Override
 						public void run() {
 							selectedDocFileId = (int) tableModel.getValueAt(selectedRow, 0);
-							selectedDoc = null;
 							selectedDoc = businessObj.getFile(selectedDocFileId);
-							pages = selectedDoc.getPages();
-							String selectedDocContent = null;
-							for (int i = 0; i < pages.size(); i++) {
-								selectedDocContent = pages.get(i).getPageContent();
-							}
-
-							List<String> unselectedDocsContent = new ArrayList<String>();
-							for (int row = 0; row < fileTable.getRowCount(); row++) {
-								int unselectedDocFileId = (int) tableModel.getValueAt(row, 0);
-								if (unselectedDocFileId != selectedDocFileId) {
-									Documents unselectedDoc = null;
-									unselectedDoc = businessObj.getFile(unselectedDocFileId);
-									pages = unselectedDoc.getPages();
-									String unselectedDocContent = null;
-									for (int i = 0; i < pages.size(); i++) {
-										unselectedDocContent = pages.get(i).getPageContent();
-									}
-									unselectedDocsContent.add(unselectedDocContent);
-								}
-							}
-							tfidfScore = businessObj.performTFIDF(unselectedDocsContent, selectedDocContent);
+							tfidfScore = businessObj.getTFIDFScore(selectedDocFileId);
 						}
 
 					});
@@ -305,6 +287,21 @@ public class EditorPO extends JFrame {
 		contentTextArea.setWrapStyleWord(true);
 		contentTextArea.setEditable(true);
 		contentTextArea.setComponentOrientation(ComponentOrientation.RIGHT_TO_LEFT);
+		contentTextArea.getDocument().addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				scheduleAutoSave();
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				scheduleAutoSave();
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+			}
+		});
 
 		JScrollPane contentScroller = new JScrollPane(contentTextArea);
 		contentScroller.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
@@ -338,6 +335,7 @@ public class EditorPO extends JFrame {
 
 		pageCountLabel = new JLabel("Page 0 of 0");
 		savingStatusLabel = new JLabel("Auto-Saving...");
+		savingStatusLabel.setVisible(false);
 		wordCountLabel = new JLabel("Words: 0");
 		avgWordLengthLabel = new JLabel("(Avg Word Length: 0)");
 		totalLineCountLabel = new JLabel("Lines: 0");
@@ -436,11 +434,6 @@ public class EditorPO extends JFrame {
 			saveFile();
 		});
 		backButton.addActionListener(e -> {
-			autoSaveRunning = false;
-			if (autoSaveThread != null && autoSaveThread.isAlive()) {
-				autoSaveThread.interrupt();
-			}
-			
 		    totalLineCountRunning = false; 
 		    if (totalLineCountThread != null && totalLineCountThread.isAlive()) {
 		    	totalLineCountThread.interrupt();
@@ -458,7 +451,8 @@ public class EditorPO extends JFrame {
 		    }
 			CardLayout cardLayout = (CardLayout) getContentPane().getLayout();
 			cardLayout.show(getContentPane(), "MainMenu");
-			refreshFileList();
+			// Listed once the last edits are written, which happens off the EDT
+			businessObj.flushAutoSavesAsync().thenAccept(flushed -> SwingUtilities.invokeLater(this::refreshFileList));
 		});
 		transliterateButton.addActionListener(e -> {
 			transliterateContent();
@@ -657,34 +651,6 @@ public class EditorPO extends JFrame {
 
 		loadPage(currentPage);
 
-		if (autoSaveThread != null && autoSaveThread.isAlive()) {
-			autoSaveRunning = false;
-			try {
-				autoSaveThread.join();
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-			}
-		}
-
-		autoSaveThread = new Thread(new Runnable() {
-
-			@Override
-			public void run() {
-				autoSaveRunning = true;
-				while (autoSaveRunning) {
-					try {
-						autoSaveFile();
-						Thread.sleep(10000);
-					} catch (InterruptedException e) {
-						Thread.currentThread().interrupt();
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-				}
-			}
-
-		});
-		
 		totalLineCountThread = new Thread(new Runnable() {
 	        
 	        @Override
@@ -746,74 +712,9 @@ public class EditorPO extends JFrame {
 	        }
 	    });
 
-		pklThread = new Thread(new Runnable() {
-
-			@Override
-			public void run() {
-				pklResults = null;
-				pklResults = businessObj.performPKL(contentTextArea.getText());
-			}
-		});
-
-		pmiThread = new Thread(new Runnable() {
-
-			@Override
-			public void run() {
-				pmiResults = null;
-				pmiResults = businessObj.performPMI(contentTextArea.getText());
-			}
-		});
-
-		posThread = new Thread(new Runnable() {
-
-			@Override
-			public void run() {
-				posMap = businessObj.extractPOS(contentTextArea.getText());
-			}
-		});
-		lemmaThread = new Thread(new Runnable() {
-
-			@Override
-			public void run() {
-				lemmaMap = businessObj.lemmatizeWords(contentTextArea.getText());
-			}
-		});
-
-		rootThread = new Thread(new Runnable() {
-
-			@Override
-			public void run() {
-				rootMap = businessObj.extractRoots(contentTextArea.getText());
-			}
-		});
-
-		stemThread = new Thread(new Runnable() {
-
-			@Override
-			public void run() {
-				stemMap = businessObj.stemWords(contentTextArea.getText());
-			}
-		});
-
-		wordSegementThread = new Thread(new Runnable() {
-
-			@Override
-			public void run() {
-				segmentMap = businessObj.segmentWords(contentTextArea.getText());
-			}
-		});
-
-		autoSaveThread.start();
 		totalLineCountThread.start();
 		wordCountThread.start();
 		avgWordLengthThread.start();
-		pklThread.start();
-		pmiThread.start();
-		posThread.start();
-		lemmaThread.start();
-		rootThread.start();
-		stemThread.start();
-		wordSegementThread.start();
 
 		CardLayout cardLayout = (CardLayout) getContentPane().getLayout();
 		cardLayout.show(getContentPane(), "EditDocument");
@@ -831,14 +732,18 @@ public class EditorPO extends JFrame {
 	}
 
 	private void deleteSelectedFiles(ActionEvent e) {
-		if (confirmAction("Do you want to delete the selected file?")) {
-			int selectedRow = fileTable.getSelectedRow();
-			if (selectedRow != -1) {
-				int fileId = (int) tableModel.getValueAt(selectedRow, 0);
-				boolean deleted = businessObj.deleteFile(fileId);
+		if (confirmAction("Do you want to delete the selected file(s)?")) {
+			int[] selectedRows = fileTable.getSelectedRows();
+			if (selectedRows.length > 0) {
+				List<Integer> fileIds = new ArrayList<>();
+				for (int row : selectedRows) {
+					fileIds.add((int) tableModel.getValueAt(row, 0));
+				}
+				boolean deleted = fileIds.size() == 1 ? businessObj.deleteFile(fileIds.get(0))
+						: businessObj.deleteFiles(fileIds);
 				JOptionPane.showMessageDialog(null,
-						deleted ? "File deleted successfully!" : "Failed to delete the selected file.");
-				logger.info(deleted ? "File deleted successfully!" : "Failed to delete the selected file.");
+						deleted ? "File(s) deleted successfully!" : "Failed to delete the selected file(s).");
+				logger.info(deleted ? "File(s) deleted successfully!" : "Failed to delete the selected file(s).");
 				refreshFileList();
 			} else {
 				JOptionPane.showMessageDialog(null, "Please select a file to delete.");
@@ -858,37 +763,34 @@ public class EditorPO extends JFrame {
 				content = "";
 			}
 
-			boolean updated = businessObj.updateFile(fileId, fileName, currentPage, content);
-			JOptionPane.showMessageDialog(null,
-					updated ? "File updated successfully!" : "File update failed. Duplicate file may exist.");
-			logger.info(updated ? "File updated successfully!" : "File update failed. Duplicate file may exist.");
-			refreshFilePage(fileId, currentPage);
+			int page = currentPage;
+			businessObj.saveFileAsync(fileId, fileName, page, content).thenAccept(updated -> SwingUtilities.invokeLater(() -> {
+				JOptionPane.showMessageDialog(null,
+						updated ? "File updated successfully!" : "File update failed. Duplicate file may exist.");
+				logger.info(updated ? "File updated successfully!" : "File update failed. Duplicate file may exist.");
+				refreshFilePage(fileId, page);
+			}));
 		} else {
 			JOptionPane.showMessageDialog(null, "Please select a file to save.");
 		}
 	}
 
-	private void autoSaveFile() throws RemoteException, InterruptedException {
-		int selectedRow = fileTable.getSelectedRow();
-		if (selectedRow != -1) {
-			int fileId = (int) tableModel.getValueAt(selectedRow, 0);
-			String fileName = (String) tableModel.getValueAt(selectedRow, 1);
-			String content = contentTextArea.getText();
-
-			if (content == null || content.trim().isEmpty()) {
-				content = "";
-			}
+	private void scheduleAutoSave() {
+		if (loadingPage || doc == null) {
+			return;
+		}
+		String content = contentTextArea.getText();
+		if (content == null || content.trim().isEmpty()) {
+			content = "";
+		}
 
-			boolean updated = businessObj.updateFile(fileId, fileName, currentPage, content);
-			if (updated) {
-				savingStatusLabel.setVisible(true);
-				Thread.sleep(5000);
-				savingStatusLabel.setVisible(false);
+		savingStatusLabel.setVisible(true);
+		businessObj.scheduleAutoSave(doc.getId(), doc.getName(), currentPage, content).thenAccept(updated -> {
+			if (!updated) {
+				logger.error("Unable to Save File");
 			}
-		} else {
-			JOptionPane.showMessageDialog(null, "Unable to Save File");
-			logger.error("Unable to Save File");
-		}
+			SwingUtilities.invokeLater(() -> savingStatusLabel.setVisible(false));
+		});
 	}
 
 	private void nextPage() {
@@ -912,12 +814,51 @@ public class EditorPO extends JFrame {
 				pageContent = pages.get(i).getPageContent();
 			}
 		}
-		contentTextArea.setText(pageContent);
+		loadingPage = true;
+		try {
+			contentTextArea.setText(pageContent);
+		} finally {
+			loadingPage = false;
+		}
 
 		pageCountLabel.setText("Page " + (page) + " of " + totalPageCount);
 
 		nextButton.setEnabled(page < totalPageCount);
 		previousButton.setEnabled(page > 1);
+		loadPageAnalytics(page);
+	}
+
+	// Reads the page's stored analytics; they are only recomputed if missing or out of date
+	private void loadPageAnalytics(int page) {
+		Pages shown = null;
+		for (Pages candidate : pages) {
+			if (candidate.getPageNumber() == page) {
+				shown = candidate;
+			}
+		}
+		if (shown == null) {
+			return;
+		}
+		Pages requested = shown;
+		String content = contentTextArea.getText();
+		analyticsThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				PageAnalysis analysis = businessObj.getPageAnalysis(requested.getPageId(), page, content);
+				if (analysis == null || currentPage != page) {
+					return;
+				}
+				pklResults = analysis.getPklScores();
+				pmiResults = analysis.getPmiScores();
+				posMap = analysis.getPosTags();
+				lemmaMap = analysis.getLemmas();
+				rootMap = analysis.getRoots();
+				stemMap = analysis.getStems();
+				segmentMap = analysis.getSegments();
+			}
+		});
+		analyticsThread.start();
 	}
 
 	private boolean confirmAction(String message) {
@@ -943,11 +884,12 @@ public class EditorPO extends JFrame {
 
 	private void refreshFilePage(int fileId, int currPage) {
 		openEditPanel(fileId);
+		currentPage = currPage;
 		loadPage(currPage);
 	}
 
 	private void refreshFileList() {
-		List<Documents> docs = businessObj.getAllFiles();
+		List<Documents> docs = businessObj.getFileSummaries();
 		tableModel.setRowCount(0);
 
 		for (Documents doc : docs) {
@@ -2,6 +2,7 @@ package pl;
 
 import java.awt.event.ActionEvent;
 import java.io.File;
+import java.util.Arrays;
 
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
@@ -14,6 +15,8 @@ import bll.IEditorBO;
 
 public class FileImporter {
 	private static final Logger logger = LogManager.getLogger(EditorPO.class);
+    // Selections at least this large are seeded with one bulk load
+    private static final int BULK_IMPORT_THRESHOLD = 20;
     private IEditorBO businessObj;
 
     public FileImporter(IEditorBO businessObj) {
@@ -33,7 +36,23 @@ public class FileImporter {
 
         if (result == JFileChooser.APPROVE_OPTION) {
             File[] selectedFiles = fileChooser.getSelectedFiles();
-            if (selectedFiles.length > 0) {
+            if (selectedFiles.length >= BULK_IMPORT_THRESHOLD) {
+                int imported = businessObj.importTextFilesInBulk(Arrays.asList(selectedFiles));
+                if (imported < 0) {
+                    logger.error("Bulk import failed, importing the files one at a time");
+                    imported = 0;
+                    for (File selectedFile : selectedFiles) {
+                        if (businessObj.importTextFiles(selectedFile, selectedFile.getName())) {
+                            imported++;
+                        }
+                    }
+                }
+                // Duplicates, files that are not text and failed imports are all skipped
+                String message = imported + " files uploaded successfully, " + (selectedFiles.length - imported)
+                        + " skipped!";
+                JOptionPane.showMessageDialog(null, message);
+                logger.info(message);
+            } else if (selectedFiles.length > 0) {
                 for (File selectedFile : selectedFiles) {
                     String fileName = selectedFile.getName();
                     boolean isImport = businessObj.importTextFiles(selectedFile, fileName);